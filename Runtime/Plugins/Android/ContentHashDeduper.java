@@ -0,0 +1,133 @@
+package com.unicorn.tools;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容去重（可选）：已通过规则判定的截图在后台线程按大采样率解码为极小的位图，计算感知哈希，
+ * 时间窗口内与最近回调过的截图几乎相同的副本（相册、云同步工具复制、改名或重新插入）不再回调。
+ * <p>
+ * 内存预算固定：解码后的像素数不超过 maxDecodePixels（RGB_565），像素缓冲按预算预分配一次并复用；
+ * 后台只有一个线程，空闲时退出；队列已满、解码失败或图片细节太少时视为非重复，由调用方照常回调。
+ */
+final class ContentHashDeduper {
+    interface Callback {
+        /**
+         * 在后台线程调用
+         *
+         * @param duplicate true：与时间窗口内已回调的截图相似
+         */
+        void onChecked(boolean duplicate);
+    }
+
+    private static final String TAG = ScreenshotLifecycleObserver.TAG;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final int maxDecodePixels;
+    private final SimilarImageCache cache;
+    private final ThreadPoolExecutor executor;
+    // 只在后台线程访问
+    private int[] pixels;
+
+    /**
+     * @param maxDecodePixels 解码后的最大像素数
+     * @param windowMs        相似图片视为重复的时间窗口（毫秒）
+     * @param maxDistance     视为相同图片的最大汉明距离
+     */
+    ContentHashDeduper(int maxDecodePixels, long windowMs, int maxDistance) {
+        this.maxDecodePixels = Math.max(64, maxDecodePixels);
+        this.cache = new SimilarImageCache(16, windowMs, maxDistance);
+        this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                r -> new Thread(r, "ScreenshotObserver-Hash"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交一张已通过判定的截图
+     *
+     * @param width  媒体库中的宽度，未知时传负数（先解码边界获取）
+     * @param height 媒体库中的高度
+     * @return false：队列已满或已停止，未提交（调用方直接回调）
+     */
+    boolean submit(ContentResolver resolver, Uri itemUri, int width, int height, long nowMs, Callback callback) {
+        try {
+            executor.execute(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                callback.onChecked(check(resolver, itemUri, width, height, nowMs));
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 停止接收新任务；已排队的截图仍会检查完并回调，之后后台线程退出。
+     * 停止后 submit 返回 false，调用方直接回调。
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private boolean check(ContentResolver resolver, Uri itemUri, int width, int height, long nowMs) {
+        long hash;
+        try {
+            Bitmap bitmap = decodeSmall(resolver, itemUri, width, height);
+            if (bitmap == null) return false;
+            try {
+                int w = bitmap.getWidth();
+                int h = bitmap.getHeight();
+                if ((long) w * h > maxDecodePixels || w <= 0 || h <= 0) return false;
+                if (pixels == null) {
+                    pixels = new int[maxDecodePixels];
+                }
+                bitmap.getPixels(pixels, 0, w, 0, 0, w, h);
+                hash = PerceptualHash.dHash(pixels, w, h);
+            } finally {
+                bitmap.recycle();
+            }
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            Log.w(TAG, "Content hash failed for " + itemUri + ": " + e);
+            return false;
+        }
+
+        if (!PerceptualHash.hasDetail(hash)) return false;
+        if (cache.containsSimilar(hash, nowMs)) return true;
+        cache.add(hash, nowMs);
+        return false;
+    }
+
+    private Bitmap decodeSmall(ContentResolver resolver, Uri itemUri, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        if (width <= 0 || height <= 0) {
+            options.inJustDecodeBounds = true;
+            try (InputStream in = resolver.openInputStream(itemUri)) {
+                if (in == null) return null;
+                BitmapFactory.decodeStream(in, null, options);
+            }
+            width = options.outWidth;
+            height = options.outHeight;
+            if (width <= 0 || height <= 0) return null;
+            options.inJustDecodeBounds = false;
+        }
+        options.inSampleSize = PerceptualHash.sampleSize(width, height, maxDecodePixels);
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        try (InputStream in = resolver.openInputStream(itemUri)) {
+            if (in == null) return null;
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.unicorn.tools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 检测进度检查点：固定布局的小文件，通过 FileChannel 内存映射读写，用于进程重启或 stop/start 后快速恢复。
+ * <p>
+ * 保存已扫描的最大 _ID、媒体库 generation、最近一次写入时间，以及最近处理过的去重 key 环。
+ * 每次写入只修改映射内存中的几个字节，由系统负责回写文件；进程被杀后数据仍在页缓存中，不需要 fsync。
+ * <p>
+ * 文件布局（大端）：
+ * <pre>
+ * 0   int  MAGIC
+ * 4   int  VERSION
+ * 8   long 媒体库版本哈希（MediaStore.getVersion，版本变化说明 _ID 不再可比）
+ * 16  long 最大 _ID
+ * 24  long generation
+ * 32  long 最近写入时间（毫秒）
+ * 40  int  环容量
+ * 44  int  环写入位置
+ * 48  int  环记录数
+ * 52  int  保留
+ * 56  环：capacity × (long key, long 时间)
+ * </pre>
+ * 线程约束：只在所属会话的处理线程使用。
+ */
+final class DetectionCheckpoint implements Closeable {
+    private static final int MAGIC = 0x53534350; // "SSCP"
+    private static final int VERSION = 1;
+
+    private static final int OFFSET_STORE_VERSION = 8;
+    private static final int OFFSET_LAST_ID = 16;
+    private static final int OFFSET_GENERATION = 24;
+    private static final int OFFSET_SAVED_AT = 32;
+    private static final int OFFSET_CAPACITY = 40;
+    private static final int OFFSET_HEAD = 44;
+    private static final int OFFSET_SIZE = 48;
+    private static final int HEADER_SIZE = 56;
+    private static final int ENTRY_SIZE = 16;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final boolean restored;
+
+    private DetectionCheckpoint(RandomAccessFile file, MappedByteBuffer buffer, int capacity, boolean restored) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.restored = restored;
+    }
+
+    /**
+     * 打开（或创建）检查点文件。文件不存在、布局不匹配、环的写入位置或记录数越界（文件损坏）
+     * 或媒体库版本变化时重新初始化，视为没有可用的检查点。
+     *
+     * @param capacity     去重 key 环容量
+     * @param storeVersion 媒体库版本哈希，未知时传 0
+     */
+    static DetectionCheckpoint open(File path, int capacity, long storeVersion) throws IOException {
+        int cap = Math.max(1, capacity);
+        long size = HEADER_SIZE + (long) cap * ENTRY_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(path, "rw");
+        try {
+            boolean sizeMatches = raf.length() == size;
+            if (!sizeMatches) {
+                raf.setLength(size);
+            }
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            boolean valid = sizeMatches
+                    && buffer.getInt(0) == MAGIC
+                    && buffer.getInt(4) == VERSION
+                    && buffer.getInt(OFFSET_CAPACITY) == cap
+                    && isRingValid(buffer.getInt(OFFSET_HEAD), buffer.getInt(OFFSET_SIZE), cap)
+                    && buffer.getLong(OFFSET_STORE_VERSION) == storeVersion;
+            if (!valid) {
+                initialize(buffer, cap, storeVersion);
+            }
+            return new DetectionCheckpoint(raf, buffer, cap, valid);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static boolean isRingValid(int head, int size, int capacity) {
+        return head >= 0 && head < capacity && size >= 0 && size <= capacity;
+    }
+
+    private static void initialize(MappedByteBuffer buffer, int capacity, long storeVersion) {
+        for (int i = 0; i < buffer.capacity(); i += 8) {
+            buffer.putLong(i, 0);
+        }
+        buffer.putLong(OFFSET_STORE_VERSION, storeVersion);
+        buffer.putLong(OFFSET_LAST_ID, -1);
+        buffer.putLong(OFFSET_GENERATION, -1);
+        buffer.putInt(OFFSET_CAPACITY, capacity);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * 打开时文件中是否已有可用的检查点（而不是新建或重新初始化）
+     */
+    boolean isRestored() {
+        return restored;
+    }
+
+    long lastId() {
+        return buffer.getLong(OFFSET_LAST_ID);
+    }
+
+    long generation() {
+        return buffer.getLong(OFFSET_GENERATION);
+    }
+
+    /**
+     * 最近一次写入的时间（毫秒），0 表示从未写入
+     */
+    long savedAtMs() {
+        return buffer.getLong(OFFSET_SAVED_AT);
+    }
+
+    /**
+     * 保存扫描进度
+     */
+    void saveWatermark(long lastId, long generation, long nowMs) {
+        buffer.putLong(OFFSET_LAST_ID, lastId);
+        buffer.putLong(OFFSET_GENERATION, generation);
+        buffer.putLong(OFFSET_SAVED_AT, nowMs);
+    }
+
+    /**
+     * 只更新最近写入时间（例如停止监听时）
+     */
+    void touch(long nowMs) {
+        buffer.putLong(OFFSET_SAVED_AT, nowMs);
+    }
+
+    /**
+     * 追加一个去重 key；环已满时覆盖最早的记录
+     */
+    void addDedupKey(long key, long timeMs) {
+        int head = buffer.getInt(OFFSET_HEAD);
+        int offset = HEADER_SIZE + head * ENTRY_SIZE;
+        buffer.putLong(offset, key);
+        buffer.putLong(offset + 8, timeMs);
+        buffer.putInt(OFFSET_HEAD, (head + 1) % capacity);
+        int size = buffer.getInt(OFFSET_SIZE);
+        if (size < capacity) {
+            buffer.putInt(OFFSET_SIZE, size + 1);
+        }
+        buffer.putLong(OFFSET_SAVED_AT, timeMs);
+    }
+
+    /**
+     * 按写入顺序（从旧到新）把保存的去重 key 写回缓存；缓存自身会按时间淘汰过期记录
+     *
+     * @return 写回的记录数
+     */
+    int restoreDedupKeys(ScreenshotDedupCache cache) {
+        int size = Math.min(buffer.getInt(OFFSET_SIZE), capacity);
+        int head = buffer.getInt(OFFSET_HEAD);
+        int index = ((head - size) % capacity + capacity) % capacity;
+        for (int i = 0; i < size; i++) {
+            int offset = HEADER_SIZE + index * ENTRY_SIZE;
+            cache.add(buffer.getLong(offset), buffer.getLong(offset + 8));
+            index = (index + 1) % capacity;
+        }
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
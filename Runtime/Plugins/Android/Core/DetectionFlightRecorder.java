@@ -0,0 +1,185 @@
+package com.unicorn.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 检测决策的飞行记录器：固定容量、预分配的环形缓冲，每次判定以几个 long 记录（_ID、时间、结果、规则、延迟、策略），
+ * 新记录覆盖最旧的记录。需要排查"截屏未检测到"时按需导出最近 N 条。
+ * <p>
+ * 记录无锁、不分配：写入方通过一次原子自增领取槽位，字段以有序写（lazySet）写入，最后写入槽位序号发布；
+ * 导出时在读取字段前后各检查一次序号（seqlock），读取过程中被覆盖的槽位直接跳过。可在任意线程记录与导出。
+ */
+final class DetectionFlightRecorder {
+    /**
+     * 全部规则通过，判定为截图
+     */
+    static final int OUTCOME_ACCEPTED = 1;
+    /**
+     * 被某条规则拒绝
+     */
+    static final int OUTCOME_REJECTED = 2;
+    /**
+     * 行尚未写入完成（IS_PENDING 或宽高不可用），已安排重试
+     */
+    static final int OUTCOME_NOT_READY = 3;
+    /**
+     * 具体条目查询不到，转为在卷内查找新行
+     */
+    static final int OUTCOME_NOT_FOUND = 4;
+
+    private static final String[] OUTCOME_NAMES = {"unknown", "accepted", "rejected", "not_ready", "not_found"};
+
+    /**
+     * 规则代码上限；超过后新规则名统一记为 other
+     */
+    private static final int MAX_RULES = 32;
+    private static final int RULE_OTHER = MAX_RULES - 1;
+
+    // 每个槽位的字段（long）：_ID、时间、延迟、打包的结果/规则/来源
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_TIME = 1;
+    private static final int FIELD_DELAY = 2;
+    private static final int FIELD_CODES = 3;
+    private static final int STRIDE = 4;
+
+    private final AtomicLongArray data;
+    // 槽位序号：写入完成后为该记录的序号 + 1，写入中为 0
+    private final AtomicLongArray stamps;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 规则名表：下标为规则代码，0 表示无规则；写时复制，新规则名出现时才替换
+    private volatile String[] ruleNames = {null,
+            ScreenshotRules.RULE_PATH, ScreenshotRules.RULE_DEDUP,
+            ScreenshotRules.RULE_CREATION_TIME, ScreenshotRules.RULE_SIZE, ScreenshotRules.RULE_CONTENT};
+
+    /**
+     * @param capacity 记录条数，向上取整为 2 的幂（至少为 2）
+     */
+    DetectionFlightRecorder(int capacity) {
+        int cap = (capacity <= 2) ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.data = new AtomicLongArray(cap * STRIDE);
+        this.stamps = new AtomicLongArray(cap);
+        this.mask = cap - 1;
+    }
+
+    /**
+     * 记录一次决策
+     *
+     * @param id      MediaStore _ID，未知时传 -1
+     * @param timeMs  决策时的系统时间（毫秒）
+     * @param outcome OUTCOME_*
+     * @param rule    拒绝的规则名，通过或不涉及规则时为 null
+     * @param delayMs 测得的延迟（毫秒）：判定时为距 DATE_ADDED 的时长，未就绪时为距首次通知的时长，未知时传 -1
+     * @param source  检测策略，{@link ScreenshotListener} 的 SOURCE_*
+     */
+    void record(long id, long timeMs, int outcome, String rule, long delayMs, int source) {
+        long seq = sequence.getAndIncrement();
+        int slot = (int) seq & mask;
+        int base = slot * STRIDE;
+        long codes = ((long) (outcome & 0xff) << 16) | ((long) ruleCode(rule) << 8) | (source & 0xff);
+        stamps.set(slot, 0);
+        data.lazySet(base + FIELD_ID, id);
+        data.lazySet(base + FIELD_TIME, timeMs);
+        data.lazySet(base + FIELD_DELAY, delayMs);
+        data.lazySet(base + FIELD_CODES, codes);
+        stamps.lazySet(slot, seq + 1);
+    }
+
+    /**
+     * 累计记录的决策数（包括已被覆盖的）
+     */
+    long recordedCount() {
+        return sequence.get();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 导出最近的记录（JSON 数组，按时间从旧到新）：
+     * [{"seq":..,"id":..,"timeMs":..,"outcome":"rejected","rule":"creation_time","delayMs":..,"strategy":"legacy"}, ...]
+     *
+     * @param maxEntries 最多导出的条数，不超过容量
+     */
+    String dump(int maxEntries) {
+        long end = sequence.get();
+        long count = Math.min(Math.max(0, maxEntries), Math.min(end, capacity()));
+        StringBuilder sb = new StringBuilder(32 + (int) count * 112);
+        sb.append('[');
+        boolean first = true;
+        String[] names = ruleNames;
+        for (long seq = end - count; seq < end; seq++) {
+            int slot = (int) seq & mask;
+            int base = slot * STRIDE;
+            if (stamps.get(slot) != seq + 1) continue;
+            long id = data.get(base + FIELD_ID);
+            long timeMs = data.get(base + FIELD_TIME);
+            long delayMs = data.get(base + FIELD_DELAY);
+            long codes = data.get(base + FIELD_CODES);
+            // 读取期间被覆盖（或仍在写入）的记录跳过
+            if (stamps.get(slot) != seq + 1) continue;
+
+            int outcome = (int) (codes >>> 16) & 0xff;
+            int rule = (int) (codes >>> 8) & 0xff;
+            int source = (int) codes & 0xff;
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"seq\":").append(seq)
+                    .append(",\"id\":").append(id)
+                    .append(",\"timeMs\":").append(timeMs)
+                    .append(",\"outcome\":\"").append(outcome < OUTCOME_NAMES.length ? OUTCOME_NAMES[outcome] : "unknown")
+                    .append("\",\"rule\":");
+            if (rule == 0) {
+                sb.append("null");
+            } else {
+                ScreenshotEventFormatter.appendJsonString(sb, rule < names.length ? names[rule] : "other");
+            }
+            sb.append(",\"delayMs\":").append(delayMs)
+                    .append(",\"strategy\":\"").append(strategyName(source)).append("\"}");
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private static String strategyName(int source) {
+        switch (source) {
+            case ScreenshotListener.SOURCE_MEDIA_STORE:
+                return "legacy";
+            case ScreenshotListener.SOURCE_SCREEN_CAPTURE:
+                return "android14";
+            default:
+                return "unknown";
+        }
+    }
+
+    /**
+     * 规则名到代码：已知规则名直接查表（先比较引用），新规则名加锁登记一次
+     */
+    private int ruleCode(String rule) {
+        if (rule == null) return 0;
+        String[] names = ruleNames;
+        for (int i = 1; i < names.length; i++) {
+            if (names[i] == rule) return i;
+        }
+        for (int i = 1; i < names.length; i++) {
+            if (rule.equals(names[i])) return i;
+        }
+        return registerRule(rule);
+    }
+
+    private synchronized int registerRule(String rule) {
+        String[] names = ruleNames;
+        for (int i = 1; i < names.length; i++) {
+            if (rule.equals(names[i])) return i;
+        }
+        if (names.length >= RULE_OTHER) return RULE_OTHER;
+        String[] next = new String[names.length + 1];
+        System.arraycopy(names, 0, next, 0, names.length);
+        next[names.length] = rule;
+        ruleNames = next;
+        return names.length;
+    }
+}
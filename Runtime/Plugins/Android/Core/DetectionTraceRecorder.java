@@ -0,0 +1,141 @@
+package com.unicorn.tools;
+
+/**
+ * legacy 策略的检测轨迹记录：按时间顺序记录收到的 onChange URI 与处理时读取到的媒体库行，
+ * 导出为文本后可在 JVM 上重放（见 Tests/Android~ 的重放工具），用于复现现场问题与压测。
+ * <p>
+ * 轨迹格式（每行一条，字段以空格分隔，时间为相对开始记录的毫秒数）：
+ * <pre>
+ * #screenshot-trace v1
+ * start &lt;开始时的系统时间（毫秒）&gt; &lt;屏幕宽&gt; &lt;屏幕高&gt;
+ * change &lt;时间&gt; &lt;URI，null 为 -&gt;
+ * row &lt;时间&gt; id=.. path=.. date_added=..(秒) width=.. height=.. size=.. pending=.. mime=..
+ * expect &lt;路径&gt;      （仅手写的期望结果：应被判定为截图的路径）
+ * </pre>
+ * 字段值中的空格、换行、制表符与 % 按百分号编码；缺失的列不写出。
+ * <p>
+ * 记录数有上限，超过后不再追加并在末尾标记 #truncated；方法均加锁，可在任意线程调用。
+ */
+final class DetectionTraceRecorder {
+    static final String HEADER = "#screenshot-trace v1";
+    static final String TRUNCATED = "#truncated";
+
+    private final StringBuilder sb = new StringBuilder(1024);
+    private final long baseUptimeMs;
+    private final int maxEvents;
+    private int events;
+    private boolean truncated;
+
+    /**
+     * @param startEpochMs 开始记录时的系统时间（毫秒）
+     * @param baseUptimeMs 开始记录时的 SystemClock.uptimeMillis()，事件时间以此为零点
+     * @param maxEvents    最多记录的事件数（change 与 row 合计）
+     */
+    DetectionTraceRecorder(long startEpochMs, long baseUptimeMs, int screenWidth, int screenHeight, int maxEvents) {
+        this.baseUptimeMs = baseUptimeMs;
+        this.maxEvents = Math.max(1, maxEvents);
+        sb.append(HEADER).append('\n');
+        sb.append("start ").append(startEpochMs).append(' ').append(screenWidth).append(' ').append(screenHeight).append('\n');
+    }
+
+    synchronized void recordChange(long uptimeMs, Object uri) {
+        if (!reserve()) return;
+        sb.append("change ").append(uptimeMs - baseUptimeMs).append(' ');
+        if (uri != null) {
+            appendEscaped(sb, uri.toString());
+        } else {
+            sb.append('-');
+        }
+        sb.append('\n');
+    }
+
+    synchronized void recordRow(long uptimeMs, ScreenshotCandidate row) {
+        if (!reserve()) return;
+        sb.append("row ").append(uptimeMs - baseUptimeMs);
+        if (row.id != ScreenshotCandidate.UNKNOWN) sb.append(" id=").append(row.id);
+        if (row.path != null) {
+            sb.append(" path=");
+            appendEscaped(sb, row.path);
+        }
+        if (row.dateAddedMs != ScreenshotCandidate.UNKNOWN) sb.append(" date_added=").append(row.dateAddedMs / 1000);
+        if (row.width != ScreenshotCandidate.UNKNOWN) sb.append(" width=").append(row.width);
+        if (row.height != ScreenshotCandidate.UNKNOWN) sb.append(" height=").append(row.height);
+        if (row.sizeBytes != ScreenshotCandidate.UNKNOWN) sb.append(" size=").append(row.sizeBytes);
+        if (row.isPending != ScreenshotCandidate.UNKNOWN) sb.append(" pending=").append(row.isPending);
+        if (row.mimeType != null) {
+            sb.append(" mime=");
+            appendEscaped(sb, row.mimeType);
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * 已记录的事件数
+     */
+    synchronized int eventCount() {
+        return events;
+    }
+
+    /**
+     * 导出轨迹文本
+     */
+    synchronized String export() {
+        return truncated ? sb + TRUNCATED + "\n" : sb.toString();
+    }
+
+    private boolean reserve() {
+        if (events >= maxEvents) {
+            truncated = true;
+            return false;
+        }
+        events++;
+        return true;
+    }
+
+    /**
+     * 写出字段值：空格、换行、制表符与 % 按百分号编码
+     */
+    static void appendEscaped(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '%':
+                    sb.append("%25");
+                    break;
+                case ' ':
+                    sb.append("%20");
+                    break;
+                case '\t':
+                    sb.append("%09");
+                    break;
+                case '\n':
+                    sb.append("%0A");
+                    break;
+                case '\r':
+                    sb.append("%0D");
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * {@link #appendEscaped} 的逆操作
+     */
+    static String unescape(String value) {
+        if (value.indexOf('%') < 0) return value;
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length()) {
+                sb.append((char) Integer.parseInt(value.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.unicorn.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图：按 2 的幂划分桶（单位微秒），记录只需几次原子加法，不分配对象。
+ * 百分位数返回所在桶的上界，精度为 2 倍以内，足够用于线上监控。
+ */
+final class LatencyHistogram {
+    // 桶 i 覆盖 [2^(i-1), 2^i) 微秒，桶 0 为 0 微秒；最后一个桶收纳更大的值
+    private static final int BUCKET_COUNT = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    void recordMicros(long micros) {
+        long value = Math.max(0, micros);
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumUs.addAndGet(value);
+        long max;
+        while (value > (max = maxUs.get())) {
+            if (maxUs.compareAndSet(max, value)) break;
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    long maxMicros() {
+        return maxUs.get();
+    }
+
+    /**
+     * 百分位数（微秒，取所在桶的上界，不超过最大值）
+     *
+     * @param percentile 0~100
+     */
+    long percentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upper = (i == 0) ? 0 : (1L << i) - 1;
+                return Math.min(upper, maxUs.get());
+            }
+        }
+        return maxUs.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sumUs.set(0);
+        maxUs.set(0);
+    }
+
+    /**
+     * 追加 JSON：{"count":N,"sumUs":N,"maxUs":N,"p50Us":N,"p90Us":N,"p99Us":N}
+     */
+    void appendJson(StringBuilder sb) {
+        sb.append("{\"count\":").append(count.get())
+                .append(",\"sumUs\":").append(sumUs.get())
+                .append(",\"maxUs\":").append(maxUs.get())
+                .append(",\"p50Us\":").append(percentileMicros(50))
+                .append(",\"p90Us\":").append(percentileMicros(90))
+                .append(",\"p99Us\":").append(percentileMicros(99))
+                .append('}');
+    }
+}
@@ -0,0 +1,945 @@
+package com.unicorn.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * legacy 策略（ContentObserver + 媒体库查询）单个会话的检测流程：onChange 合并、风暴保护、自适应就绪重试、
+ * 具体条目查询、各存储卷的 _ID 增量扫描、规则判定与检查点。
+ * <p>
+ * 依赖平台的部分通过接口注入：{@link Scheduler}（Android 上为会话处理线程的 Handler）、
+ * {@link MediaSource}（ContentResolver 查询）与 {@link Callback}（投递与日志）。
+ * Android 插件与 Tests/Android~ 中的轨迹重放驱动的是同一份实现。
+ * <p>
+ * 线程约束：除 {@link #release()}、{@link #volumeNames()} 与 {@link #lastRejectReason()} 外，
+ * 只在调度器所在线程调用；会话结束后随会话一起丢弃，旧会话残留的任务不会触及新会话的状态。
+ */
+final class LegacyDetectionPipeline {
+    /**
+     * 截屏依据中的路径判断关键字
+     */
+    static final String[] KEYWORDS = {
+            "screenshot", "screen_shot", "screen-shot", "screen shot",
+            "screencapture", "screen_capture", "screen-capture", "screen capture",
+            "screencap", "screen_cap", "screen-cap", "screen cap"
+    };
+
+    /**
+     * 最大时间差（毫秒），文件创建时间与当前时间相差超过此值则忽略
+     */
+    static final long MAX_COST_TIME = 10000; // 10秒
+
+    /**
+     * 去重缓存最大记录数
+     */
+    static final int DEDUP_CAPACITY = 64;
+
+    /**
+     * 增量扫描每批最多行数（{@link MediaSource} 的区间查询按此限制行数）与每次最多批数
+     */
+    static final int SCAN_BATCH_SIZE = 20;
+    static final int SCAN_MAX_BATCHES = 5;
+
+    /**
+     * 会话处理线程的调度器
+     */
+    interface Scheduler {
+        /**
+         * 单调时钟（毫秒），Android 上为 SystemClock.uptimeMillis
+         */
+        long uptimeMillis();
+
+        /**
+         * 系统时间（毫秒），用于与 DATE_ADDED 比较
+         */
+        long currentTimeMillis();
+
+        /**
+         * 在 uptimeMs 时刻执行任务；同一时刻的任务按提交顺序执行
+         */
+        void postAtTime(Runnable task, long uptimeMs);
+
+        /**
+         * 取消尚未执行的任务
+         */
+        void removeCallbacks(Runnable task);
+    }
+
+    /**
+     * 查询结果（Android 上包装 Cursor）；实现可以在下一次查询时复用同一个对象，调用方读完即关闭
+     */
+    interface Rows extends ScreenshotCandidateReader.RowSource {
+        boolean moveToFirst();
+
+        boolean moveToNext();
+
+        void close();
+    }
+
+    /**
+     * 媒体库查询。projection 为当前规则引擎所需的投影，规则不变时总是同一个数组，实现可按引用缓存查询计划。
+     * 查询返回 null 表示没有结果；失败时直接抛出异常，由流程统计并记录。
+     */
+    interface MediaSource {
+        /**
+         * 查询通知中的具体条目 URI
+         *
+         * @param uri 通知中的 URI 对象，原样传入（Android 上为 android.net.Uri）
+         */
+        Rows queryItem(Object uri, String[] projection);
+
+        /**
+         * 查询卷中最新修改的一行
+         */
+        Rows queryLatest(MediaVolumeState volume, String[] projection);
+
+        /**
+         * 查询卷中最大的 _ID（结果只有 _ID 一列）
+         */
+        Rows queryMaxId(MediaVolumeState volume, String[] projection);
+
+        /**
+         * 按 _ID 升序查询卷中大于 afterId 的行，最多 {@link #SCAN_BATCH_SIZE} 行
+         */
+        Rows queryRowsAfterId(MediaVolumeState volume, String[] projection, long afterId);
+
+        /**
+         * 按 _ID 降序查询卷中大于 afterId 的最新一批行，最多 {@link #SCAN_BATCH_SIZE} 行（风暴模式）
+         */
+        Rows queryNewestRowsAfterId(MediaVolumeState volume, String[] projection, long afterId);
+
+        /**
+         * 卷的媒体库 generation（Android 11+），不支持时返回 -1
+         */
+        long generation(MediaVolumeState volume);
+    }
+
+    /**
+     * 流程的输出：通过判定的截图与日志
+     */
+    interface Callback {
+        /**
+         * 在处理线程调用；row 会被下一行复用，需要异步使用时先复制
+         *
+         * @return true：已投递；false：投递延后（如内容去重的后台检查），得出结果后须调用
+         * {@link LegacyDetectionPipeline#completeDeferred}，在此之前不计入接受数
+         */
+        boolean onScreenshot(MediaVolumeState volume, ScreenshotCandidate row);
+
+        void onInfo(String message);
+
+        void onError(String message, Exception e);
+    }
+
+    /**
+     * 会话参数，默认值与 ScreenshotLifecycleObserver 的默认配置一致
+     */
+    static final class Config {
+        /**
+         * 开始监听的时间（毫秒），早于该时间加入的行不会被判定为截图
+         */
+        long startListenTimeMs;
+        int screenWidth = -1;
+        int screenHeight = -1;
+        /**
+         * 是否启用尺寸判断（Android 10+）
+         */
+        boolean screenSizeRule = true;
+        /**
+         * 自适应就绪模式（仅 Android 10+ 可用）：行 IS_PENDING 或尺寸尚不可用时重试，而不是直接判定
+         */
+        boolean adaptiveReadiness = true;
+        long coalesceWindowMs = 300;
+        long coalesceMaxLatencyMs = 1000;
+        /**
+         * 每秒 onChange 数达到该值时进入风暴模式，0 表示不启用风暴保护
+         */
+        int stormThreshold = 30;
+        long stormScanIntervalMs = 1000;
+    }
+
+    /**
+     * 跨会话共享的组件：Android 插件在进程内只创建一次，JVM 重放每次重放新建一份
+     */
+    static final class Shared {
+        /**
+         * 共享规则（路径关键字与自定义规则），新增规则时整体替换，立即对之后的判定生效
+         */
+        final AtomicReference<ScreenshotRuleEngine> sharedRules;
+        /**
+         * 具体 URI 查询不到时是否使用 _ID 增量扫描；false 时回退为只查询最新的 1 条记录
+         */
+        final AtomicBoolean incrementalScan;
+        /**
+         * 自适应就绪模式学习到的就绪延迟，跨会话保留
+         */
+        final ReadinessPolicy readinessPolicy;
+        final ScreenshotMetrics metrics;
+        final DetectionFlightRecorder flightRecorder;
+        /**
+         * 正在记录的检测轨迹，值为 null 表示未在记录
+         */
+        final AtomicReference<DetectionTraceRecorder> traceRecorder;
+
+        Shared(AtomicReference<ScreenshotRuleEngine> sharedRules, AtomicBoolean incrementalScan,
+               ReadinessPolicy readinessPolicy, ScreenshotMetrics metrics, DetectionFlightRecorder flightRecorder,
+               AtomicReference<DetectionTraceRecorder> traceRecorder) {
+            this.sharedRules = sharedRules;
+            this.incrementalScan = incrementalScan;
+            this.readinessPolicy = readinessPolicy;
+            this.metrics = metrics;
+            this.flightRecorder = flightRecorder;
+            this.traceRecorder = traceRecorder;
+        }
+    }
+
+    /**
+     * 默认的自适应就绪策略：初始等待 300ms，重试间隔 50ms 起指数退避、最长 800ms，截止 3 秒
+     */
+    static ReadinessPolicy newReadinessPolicy() {
+        return new ReadinessPolicy(300, 50, 800, 3000);
+    }
+
+    private final Scheduler scheduler;
+    private final MediaSource source;
+    private final Callback callback;
+
+    private final AtomicReference<ScreenshotRuleEngine> sharedRules;
+    private final AtomicBoolean incrementalScan;
+    private final ReadinessPolicy readinessPolicy;
+    private final ScreenshotMetrics metrics;
+    private final DetectionFlightRecorder flightRecorder;
+    private final AtomicReference<DetectionTraceRecorder> traceRecorder;
+
+    final ScreenshotRules.CreationTimeRule creationTimeRule = new ScreenshotRules.CreationTimeRule(MAX_COST_TIME);
+    final ScreenshotRules.ScreenSizeRule sizeRule = new ScreenshotRules.ScreenSizeRule();
+    private final boolean screenSizeRule;
+    private final boolean waitForReadiness;
+
+    private final MediaChangeCoalescer coalescer;
+    /**
+     * 风暴检测器，null 表示未启用风暴保护
+     */
+    private final MediaChangeStormDetector stormDetector;
+    private final long stormScanIntervalMs;
+    private final Runnable stormScanTask = this::runStormScan;
+    private boolean stormScanScheduled;
+    private final Runnable scanContinuationTask = this::continueScans;
+    private boolean scanContinuationScheduled;
+
+    /**
+     * 当前挂载并处理中的卷；volumeNames 为其名称快照，供其他线程读取
+     */
+    private final ArrayList<MediaVolumeState> volumes = new ArrayList<>();
+    private volatile String[] volumeNames = new String[0];
+
+    final ScreenshotCandidate candidate = new ScreenshotCandidate();
+    private final ScreenshotCandidateReader reader = new ScreenshotCandidateReader();
+    private ScreenshotRuleEngine sharedEngine;
+    private String[] projection;
+
+    private volatile boolean released;
+    private volatile String lastRejectReason;
+
+    LegacyDetectionPipeline(Config config, Shared shared, Scheduler scheduler, MediaSource source, Callback callback) {
+        this.scheduler = scheduler;
+        this.source = source;
+        this.callback = callback;
+        this.sharedRules = shared.sharedRules;
+        this.incrementalScan = shared.incrementalScan;
+        this.readinessPolicy = shared.readinessPolicy;
+        this.metrics = shared.metrics;
+        this.flightRecorder = shared.flightRecorder;
+        this.traceRecorder = shared.traceRecorder;
+
+        this.creationTimeRule.setStartListenTimeMs(config.startListenTimeMs);
+        this.sizeRule.setScreenSize(config.screenWidth, config.screenHeight);
+        this.screenSizeRule = config.screenSizeRule;
+        this.waitForReadiness = config.adaptiveReadiness;
+
+        // 延迟并合并处理，因为文件可能还在写入中，且一次截屏会触发多次通知
+        this.coalescer = new MediaChangeCoalescer(scheduler, (uri, firstUptimeMs) -> handleChange(uri, firstUptimeMs, 0),
+                config.coalesceWindowMs, config.coalesceMaxLatencyMs, metrics);
+        this.stormDetector = (config.stormThreshold > 0)
+                ? new MediaChangeStormDetector(config.stormThreshold, 1000) : null;
+        this.stormScanIntervalMs = Math.max(100, config.stormScanIntervalMs);
+    }
+
+    /**
+     * 结束会话（可在任意线程调用）：之后到期的合并、重试与风暴扫描任务直接丢弃
+     */
+    void release() {
+        released = true;
+    }
+
+    /**
+     * 最近一次被拒绝的候选记录对应的规则名称（无则为 null）
+     */
+    String lastRejectReason() {
+        return lastRejectReason;
+    }
+
+    // ==========================================
+    // 存储卷
+    // ==========================================
+
+    /**
+     * 开始处理一个卷：传入检查点时优先从检查点恢复，否则以该卷当前最大 _ID 作为高水位
+     *
+     * @param checkpoint 已打开的检查点，未启用时为 null
+     */
+    MediaVolumeState addVolume(String name, DetectionCheckpoint checkpoint) {
+        MediaVolumeState v = new MediaVolumeState(name, DEDUP_CAPACITY, MAX_COST_TIME);
+        volumes.add(v);
+        publishVolumeNames();
+        v.checkpoint = checkpoint;
+        if (checkpoint != null && restoreCheckpoint(v, checkpoint)) return v;
+        if (incrementalScan.get()) {
+            initScanWatermark(v);
+            saveCheckpoint(v);
+        }
+        return v;
+    }
+
+    /**
+     * 卷已卸载：关闭其检查点并丢弃状态
+     */
+    void removeVolume(MediaVolumeState v) {
+        closeCheckpoint(v);
+        volumes.remove(v);
+        publishVolumeNames();
+    }
+
+    MediaVolumeState volume(String name) {
+        for (int i = 0; i < volumes.size(); i++) {
+            MediaVolumeState volume = volumes.get(i);
+            if (volume.name.equals(name)) return volume;
+        }
+        return null;
+    }
+
+    int volumeCount() {
+        return volumes.size();
+    }
+
+    MediaVolumeState volumeAt(int index) {
+        return volumes.get(index);
+    }
+
+    /**
+     * 当前处理中的卷名称快照（可在任意线程调用）
+     */
+    String[] volumeNames() {
+        return volumeNames;
+    }
+
+    private void publishVolumeNames() {
+        String[] names = new String[volumes.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = volumes.get(i).name;
+        }
+        volumeNames = names;
+    }
+
+    /**
+     * 恢复检查点中的去重 key 与扫描进度，随后立即增量扫描一次，补上间隔期间新增的截图
+     *
+     * @return true：已从检查点恢复高水位，无需再初始化
+     */
+    private boolean restoreCheckpoint(MediaVolumeState v, DetectionCheckpoint checkpoint) {
+        if (!checkpoint.isRestored()) return false;
+
+        checkpoint.restoreDedupKeys(v.processedFiles);
+        // 上次写入检查点之后的截图也应被接受（仍受 MAX_COST_TIME 约束）
+        long savedAtMs = checkpoint.savedAtMs();
+        if (savedAtMs > 0 && savedAtMs < scheduler.currentTimeMillis()) {
+            creationTimeRule.setStartListenTimeMs(savedAtMs / 1000 * 1000);
+        }
+        if (!incrementalScan.get() || checkpoint.lastId() < 0) return false;
+
+        v.scanWatermarkId = checkpoint.lastId();
+        v.lastScannedGeneration = checkpoint.generation();
+        callback.onInfo("Resuming " + v.name + " from checkpoint at _ID " + v.scanWatermarkId);
+        engine(v);
+        scanRowsAfterWatermark(v);
+        return true;
+    }
+
+    /**
+     * 将卷的扫描进度写入检查点（未开启时忽略）
+     */
+    private void saveCheckpoint(MediaVolumeState v) {
+        DetectionCheckpoint checkpoint = v.checkpoint;
+        if (checkpoint != null) {
+            checkpoint.saveWatermark(v.scanWatermarkId, v.lastScannedGeneration, scheduler.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 关闭所有卷的检查点（会话结束时在处理线程调用）
+     */
+    void closeCheckpoints() {
+        for (int i = 0; i < volumes.size(); i++) {
+            closeCheckpoint(volumes.get(i));
+        }
+    }
+
+    private void closeCheckpoint(MediaVolumeState v) {
+        DetectionCheckpoint checkpoint = v.checkpoint;
+        if (checkpoint == null) return;
+        v.checkpoint = null;
+        try {
+            checkpoint.touch(scheduler.currentTimeMillis());
+            checkpoint.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    // ==========================================
+    // 通知处理
+    // ==========================================
+
+    /**
+     * ContentObserver.onChange：记录轨迹，风暴模式下交给定时区间扫描，否则送入合并器
+     *
+     * @param uri 通知的 URI，未指明时为 null。原样交给合并器与 {@link MediaSource#queryItem}，
+     *            toString() 须返回 URI 字符串（android.net.Uri 缓存该字符串，不会每次分配）
+     */
+    void onChange(Object uri) {
+        if (released) return;
+        DetectionTraceRecorder recorder = traceRecorder.get();
+        if (recorder != null) {
+            recorder.recordChange(scheduler.uptimeMillis(), uri);
+        }
+        if (stormDetector != null && handleStormChange()) return;
+        if (waitForReadiness) {
+            coalescer.setWindowMs(readinessPolicy.initialDelayMs());
+        }
+        coalescer.submit(uri);
+    }
+
+    /**
+     * 处理合并后的一次媒体内容变化
+     *
+     * @param firstUptimeMs 首次收到通知的时间（调度器的单调时钟）
+     * @param attempt       自适应就绪模式下的重试次数（首次为 0）
+     */
+    private void handleChange(Object uri, long firstUptimeMs, int attempt) {
+        if (released) return;
+        String text = (uri != null) ? uri.toString() : null;
+
+        // 通知未指明具体卷（集合级通知或卷尚未同步）：逐卷扫描
+        MediaVolumeState v = volumeFor(text);
+        if (v == null) {
+            for (int i = 0; i < volumes.size(); i++) {
+                scanVolume(volumes.get(i));
+            }
+            return;
+        }
+        // 集合级通知（如 .../images/media）：直接查询只会得到整表的第一行，改为在该卷内查找新行
+        if (!isItemUri(text)) {
+            scanVolume(v);
+            return;
+        }
+        engine(v);
+
+        Rows rows = null;
+        try {
+            // 先尝试直接查询收到的具体 URI
+            rows = queryItem(uri);
+            if (rows != null && rows.moveToFirst()) {
+                ScreenshotCandidate row = readRow(rows);
+                if (waitForReadiness) {
+                    if (!isReady(row) && scheduleReadinessRetry(uri, firstUptimeMs, attempt)) {
+                        flightRecorder.record(row.id, row.observedAtMs, DetectionFlightRecorder.OUTCOME_NOT_READY,
+                                null, scheduler.uptimeMillis() - firstUptimeMs, ScreenshotListener.SOURCE_MEDIA_STORE);
+                        return;
+                    }
+                    readinessPolicy.recordReady(attempt, scheduler.uptimeMillis() - firstUptimeMs);
+                }
+                classifyCandidate(v, row);
+                return;
+            }
+            close(rows);
+            rows = null;
+
+            // Android 10+ 写入中的行（IS_PENDING）对查询不可见：具体条目 URI 查不到时先等待重试
+            boolean retrying = waitForReadiness && scheduleReadinessRetry(uri, firstUptimeMs, attempt);
+            flightRecorder.record(itemId(text), scheduler.currentTimeMillis(),
+                    retrying ? DetectionFlightRecorder.OUTCOME_NOT_READY : DetectionFlightRecorder.OUTCOME_NOT_FOUND,
+                    null, scheduler.uptimeMillis() - firstUptimeMs, ScreenshotListener.SOURCE_MEDIA_STORE);
+            if (retrying) {
+                return;
+            }
+        } catch (Exception e) {
+            callback.onError("Error handling media content change", e);
+            return;
+        } finally {
+            close(rows);
+        }
+
+        // 如果查询失败或为空：在该卷内查找新行
+        scanVolume(v);
+    }
+
+    /**
+     * 在单个卷内查找新行：增量扫描 _ID 高水位之后的新行；未启用增量扫描（或高水位未初始化）时取该卷最新的一行
+     */
+    private void scanVolume(MediaVolumeState v) {
+        engine(v);
+        if (incrementalScan.get() && v.scanWatermarkId >= 0) {
+            scanRowsAfterWatermark(v);
+            return;
+        }
+
+        Rows rows = null;
+        try {
+            rows = queryLatest(v);
+            if (rows != null && rows.moveToFirst()) {
+                classifyCandidate(v, readRow(rows));
+            }
+        } catch (Exception e) {
+            callback.onError("Error querying latest row on " + v.name, e);
+        } finally {
+            close(rows);
+        }
+    }
+
+    /**
+     * 风暴检测：记录一次通知，风暴模式下由定时区间扫描代替逐条处理
+     *
+     * @return true：处于风暴模式，本次通知不再逐条处理
+     */
+    private boolean handleStormChange() {
+        if (stormDetector.record(scheduler.uptimeMillis())) {
+            metrics.stormsEntered.incrementAndGet();
+            callback.onInfo("MediaStore change storm detected, switching to range scans");
+        }
+        if (!stormDetector.isStorming()) return false;
+
+        metrics.changesReceived.incrementAndGet();
+        metrics.changesDuringStorm.incrementAndGet();
+        if (!stormScanScheduled) {
+            stormScanScheduled = true;
+            scheduler.postAtTime(stormScanTask, scheduler.uptimeMillis() + stormScanIntervalMs);
+        }
+        return true;
+    }
+
+    /**
+     * 风暴模式下的定时任务：查询一次高水位之后最新的一批记录并逐行判定；频率回落后恢复正常模式
+     */
+    private void runStormScan() {
+        if (released) return;
+        stormScanScheduled = false;
+        metrics.stormScans.incrementAndGet();
+        for (int i = 0; i < volumes.size(); i++) {
+            stormScanVolume(volumes.get(i));
+        }
+
+        if (stormDetector.checkExit(scheduler.uptimeMillis())) {
+            callback.onInfo("MediaStore change storm ended, resuming per-change processing");
+            return;
+        }
+        stormScanScheduled = true;
+        scheduler.postAtTime(stormScanTask, scheduler.uptimeMillis() + stormScanIntervalMs);
+    }
+
+    /**
+     * 风暴模式下对单个卷查询一次高水位之后最新的一批记录
+     */
+    private void stormScanVolume(MediaVolumeState v) {
+        engine(v);
+        Rows rows = null;
+        try {
+            rows = (v.scanWatermarkId >= 0) ? queryNewestRowsAfterId(v, v.scanWatermarkId) : queryLatest(v);
+            if (rows != null) {
+                long maxId = v.scanWatermarkId;
+                while (rows.moveToNext()) {
+                    classifyCandidate(v, readRow(rows));
+                    maxId = Math.max(maxId, candidate.id);
+                }
+                // 跳过风暴期间中间的大批导入，只保证最新的记录被判定
+                if (v.scanWatermarkId >= 0) {
+                    v.scanWatermarkId = maxId;
+                    saveCheckpoint(v);
+                }
+            }
+        } catch (Exception e) {
+            callback.onError("Error scanning " + v.name + " during MediaStore change storm", e);
+        } finally {
+            close(rows);
+        }
+    }
+
+    /**
+     * 行未就绪时按退避间隔重新处理该 URI
+     *
+     * @return true：已安排重试；false：已到截止时间，调用方按现有行继续处理
+     */
+    private boolean scheduleReadinessRetry(Object uri, long firstUptimeMs, int attempt) {
+        long now = scheduler.uptimeMillis();
+        long delay = readinessPolicy.nextDelayMs(attempt + 1, now - firstUptimeMs);
+        if (delay < 0) {
+            metrics.readinessTimeouts.incrementAndGet();
+            return false;
+        }
+        metrics.readinessRetries.incrementAndGet();
+        scheduler.postAtTime(() -> handleChange(uri, firstUptimeMs, attempt + 1), now + delay);
+        return true;
+    }
+
+    /**
+     * 初始化卷的 _ID 高水位：以开始处理时该卷中最大的 _ID 为起点，之后只扫描新增行
+     */
+    private void initScanWatermark(MediaVolumeState v) {
+        engine(v);
+        Rows rows = null;
+        try {
+            v.lastScannedGeneration = source.generation(v);
+            rows = queryMaxId(v);
+            if (rows == null) return;
+            v.scanWatermarkId = rows.moveToFirst() ? rows.getLong(0) : 0;
+        } catch (Exception e) {
+            callback.onError("Failed to init scan watermark", e);
+        } finally {
+            close(rows);
+        }
+    }
+
+    /**
+     * 增量扫描：分批查询卷中 _ID 大于高水位的行并逐行判定。
+     * Android 11+ 该卷的媒体库 generation 未变化时直接跳过查询。
+     * <p>
+     * 单次最多扫描 {@link #SCAN_MAX_BATCHES} 批；最后一批仍是满批时可能还有未扫描的行，此时不记录 generation
+     * （否则剩余的行会被 generation 检查跳过），而是安排一次后续扫描从新的高水位继续。
+     */
+    private void scanRowsAfterWatermark(MediaVolumeState v) {
+        v.scanContinuationPending = false;
+        try {
+            long generation = source.generation(v);
+            if (generation >= 0 && generation == v.lastScannedGeneration) {
+                metrics.scansSkipped.incrementAndGet();
+                return;
+            }
+
+            boolean complete = false;
+            for (int batch = 0; batch < SCAN_MAX_BATCHES && !complete; batch++) {
+                Rows rows = queryRowsAfterId(v, v.scanWatermarkId);
+                if (rows == null) return;
+                int count = 0;
+                try {
+                    while (rows.moveToNext()) {
+                        count++;
+                        classifyCandidate(v, readRow(rows));
+                        if (candidate.id != ScreenshotCandidate.UNKNOWN) {
+                            v.scanWatermarkId = Math.max(v.scanWatermarkId, candidate.id);
+                        }
+                    }
+                } finally {
+                    rows.close();
+                }
+                complete = count < SCAN_BATCH_SIZE;
+            }
+
+            if (!complete) {
+                scheduleScanContinuation(v);
+            } else if (generation >= 0) {
+                v.lastScannedGeneration = generation;
+            }
+            saveCheckpoint(v);
+        } catch (Exception e) {
+            // 卷刚被卸载（getGeneration 抛 IllegalArgumentException）或遍历游标失败：不更新 generation，下次通知时重试
+            metrics.queryFailures.incrementAndGet();
+            callback.onError("Error scanning rows after watermark on " + v.name, e);
+        }
+    }
+
+    /**
+     * 增量扫描达到批数上限后，在处理线程空闲时继续扫描该卷（期间到达的通知照常处理）
+     */
+    private void scheduleScanContinuation(MediaVolumeState v) {
+        v.scanContinuationPending = true;
+        if (!scanContinuationScheduled) {
+            scanContinuationScheduled = true;
+            scheduler.postAtTime(scanContinuationTask, scheduler.uptimeMillis());
+        }
+    }
+
+    private void continueScans() {
+        if (released) return;
+        scanContinuationScheduled = false;
+        for (int i = 0; i < volumes.size(); i++) {
+            MediaVolumeState v = volumes.get(i);
+            if (v.scanContinuationPending) {
+                engine(v);
+                scanRowsAfterWatermark(v);
+            }
+        }
+    }
+
+    // ==========================================
+    // 判定
+    // ==========================================
+
+    /**
+     * 卷使用的规则引擎：共享规则（路径与自定义规则）加上本卷的去重规则与会话的时间规则，按需启用尺寸判断。
+     * 共享规则被替换（新增规则）时重建，同时重建查询投影（各卷投影相同）。
+     */
+    private ScreenshotRuleEngine engine(MediaVolumeState volume) {
+        ScreenshotRuleEngine shared = sharedRules.get();
+        if (shared != sharedEngine) {
+            sharedEngine = shared;
+            projection = null;
+        }
+        if (volume.sharedEngine != shared) {
+            ScreenshotRuleEngine e = shared.withRule(volume.dedupRule).withRule(creationTimeRule);
+            if (screenSizeRule) {
+                e = e.withRule(sizeRule);
+            }
+            volume.engine = e;
+            volume.sharedEngine = shared;
+        }
+        if (projection == null) {
+            String[] p = volume.engine.projection();
+            if (waitForReadiness) {
+                p = withColumns(p, ScreenshotCandidate.COLUMN_IS_PENDING,
+                        ScreenshotCandidate.COLUMN_WIDTH, ScreenshotCandidate.COLUMN_HEIGHT);
+            }
+            projection = p;
+            reader.setProjection(p);
+        }
+        return volume.engine;
+    }
+
+    /**
+     * 读取已绑定结果的当前行到候选记录；正在记录轨迹时同时写入轨迹
+     */
+    private ScreenshotCandidate readRow(Rows rows) {
+        reader.read(rows, candidate, scheduler.currentTimeMillis());
+        DetectionTraceRecorder recorder = traceRecorder.get();
+        if (recorder != null) {
+            recorder.recordRow(scheduler.uptimeMillis(), candidate);
+        }
+        return candidate;
+    }
+
+    /**
+     * 对已读取的候选记录执行截图判定，通过则交给 {@link Callback#onScreenshot}
+     */
+    private void classifyCandidate(MediaVolumeState v, ScreenshotCandidate row) {
+        long classifyStart = System.nanoTime();
+        ScreenshotRule rejectedBy = engine(v).evaluate(row);
+        metrics.classifyLatency.recordNanos(System.nanoTime() - classifyStart);
+        metrics.candidates.incrementAndGet();
+        if (rejectedBy != null) {
+            recordRejected(row, rejectedBy.name(), row.observedAtMs);
+            return;
+        }
+
+        // 全部规则通过：先记入去重，再投递截图（投递延后时由 completeDeferred 计入结果）
+        v.processedFiles.add(row.pathHash(), row.observedAtMs);
+        if (v.checkpoint != null) {
+            v.checkpoint.addDedupKey(row.pathHash(), row.observedAtMs);
+        }
+        if (callback.onScreenshot(v, row)) {
+            recordAccepted(row, row.observedAtMs);
+        }
+    }
+
+    /**
+     * 延后投递的截图得出结果（可在任意线程调用），计入接受数或拒绝原因
+     *
+     * @param rejectedBy 被拒绝时的规则名称（如 {@link ScreenshotRules#RULE_CONTENT}），已投递时为 null
+     */
+    void completeDeferred(ScreenshotCandidate row, String rejectedBy) {
+        long nowMs = scheduler.currentTimeMillis();
+        if (rejectedBy != null) {
+            recordRejected(row, rejectedBy, nowMs);
+        } else {
+            recordAccepted(row, nowMs);
+        }
+    }
+
+    /**
+     * @param decidedAtMs 得出结果的系统时间（毫秒），记入飞行记录
+     */
+    private void recordAccepted(ScreenshotCandidate row, long decidedAtMs) {
+        metrics.accepted.incrementAndGet();
+        flightRecorder.record(row.id, decidedAtMs, DetectionFlightRecorder.OUTCOME_ACCEPTED, null,
+                decisionLatencyMs(row), ScreenshotListener.SOURCE_MEDIA_STORE);
+    }
+
+    private void recordRejected(ScreenshotCandidate row, String rule, long decidedAtMs) {
+        lastRejectReason = rule;
+        metrics.recordReject(rule);
+        flightRecorder.record(row.id, decidedAtMs, DetectionFlightRecorder.OUTCOME_REJECTED, rule,
+                decisionLatencyMs(row), ScreenshotListener.SOURCE_MEDIA_STORE);
+    }
+
+    private static long decisionLatencyMs(ScreenshotCandidate row) {
+        return (row.dateAddedMs != ScreenshotCandidate.UNKNOWN) ? row.observedAtMs - row.dateAddedMs : -1;
+    }
+
+    /**
+     * 行是否已写入完成：非 pending 且宽高可用
+     */
+    static boolean isReady(ScreenshotCandidate row) {
+        return row.isPending != 1 && row.width > 0 && row.height > 0;
+    }
+
+    // ==========================================
+    // 查询（统计次数、耗时与失败）
+    // ==========================================
+
+    private Rows queryItem(Object uri) {
+        long start = System.nanoTime();
+        try {
+            return bind(recordQuery(start, source.queryItem(uri, projection)));
+        } catch (Exception e) {
+            metrics.queryFailures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Rows queryLatest(MediaVolumeState v) {
+        long start = System.nanoTime();
+        try {
+            return bind(recordQuery(start, source.queryLatest(v, projection)));
+        } catch (Exception e) {
+            metrics.queryFailures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Rows queryMaxId(MediaVolumeState v) {
+        long start = System.nanoTime();
+        try {
+            return recordQuery(start, source.queryMaxId(v, projection));
+        } catch (Exception e) {
+            metrics.queryFailures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Rows queryRowsAfterId(MediaVolumeState v, long afterId) {
+        long start = System.nanoTime();
+        try {
+            return bind(recordQuery(start, source.queryRowsAfterId(v, projection, afterId)));
+        } catch (Exception e) {
+            metrics.queryFailures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Rows queryNewestRowsAfterId(MediaVolumeState v, long afterId) {
+        long start = System.nanoTime();
+        try {
+            return bind(recordQuery(start, source.queryNewestRowsAfterId(v, projection, afterId)));
+        } catch (Exception e) {
+            metrics.queryFailures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Rows recordQuery(long startNanos, Rows rows) {
+        metrics.queryLatency.recordNanos(System.nanoTime() - startNanos);
+        metrics.queries.incrementAndGet();
+        return rows;
+    }
+
+    /**
+     * 按当前投影解析一次列下标，之后逐行读取复用
+     */
+    private Rows bind(Rows rows) {
+        if (rows != null) {
+            reader.bind(rows);
+        }
+        return rows;
+    }
+
+    private static void close(Rows rows) {
+        if (rows != null) {
+            rows.close();
+        }
+    }
+
+    // ==========================================
+    // 通知 URI（content://media/&lt;卷名&gt;/images/media[/&lt;_ID&gt;]）
+    // ==========================================
+
+    /**
+     * 通知 URI 所属的已处理卷；直接与各卷名比较，不截取卷名字符串
+     */
+    private MediaVolumeState volumeFor(String uri) {
+        int start = volumeNameStart(uri);
+        if (start < 0) return null;
+        int end = volumeNameEnd(uri, start);
+        for (int i = 0; i < volumes.size(); i++) {
+            MediaVolumeState volume = volumes.get(i);
+            String name = volume.name;
+            if (name.length() == end - start && uri.regionMatches(start, name, 0, name.length())) return volume;
+        }
+        return null;
+    }
+
+    /**
+     * 通知 URI 中的卷名（authority 之后的第一段），无法解析时返回 null
+     */
+    static String volumeName(String uri) {
+        int start = volumeNameStart(uri);
+        if (start < 0) return null;
+        int end = volumeNameEnd(uri, start);
+        return (end > start) ? uri.substring(start, end) : null;
+    }
+
+    private static int volumeNameStart(String uri) {
+        if (uri == null) return -1;
+        int scheme = uri.indexOf("://");
+        if (scheme < 0) return -1;
+        int slash = uri.indexOf('/', scheme + 3);
+        return (slash < 0) ? -1 : slash + 1;
+    }
+
+    private static int volumeNameEnd(String uri, int start) {
+        int end = uri.indexOf('/', start);
+        return (end < 0) ? uri.length() : end;
+    }
+
+    /**
+     * 是否为具体条目的 URI（以数字 _ID 结尾），而非整个集合
+     */
+    static boolean isItemUri(String uri) {
+        return itemId(uri) >= 0;
+    }
+
+    /**
+     * 具体条目 URI 的 _ID，集合 URI、null 或无法解析时返回 -1
+     */
+    static long itemId(String uri) {
+        if (uri == null) return -1;
+        int start = uri.lastIndexOf('/') + 1;
+        int end = uri.length();
+        if (start >= end || end - start > 18) return -1;
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            char c = uri.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private static String[] withColumns(String[] projection, String... columns) {
+        String[] merged = Arrays.copyOf(projection, projection.length + columns.length);
+        int count = projection.length;
+        for (String column : columns) {
+            if (!Arrays.asList(projection).contains(column)) {
+                merged[count++] = column;
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+}
@@ -0,0 +1,130 @@
+package com.unicorn.tools;
+
+/**
+ * ContentObserver 通知合并器：同一 URI（null URI 视为 "latest"）在窗口期内的多次 onChange 合并为一次处理。
+ * URI 原样传给 Sink（Android 上为通知中的 android.net.Uri 对象），按 equals 判断是否相同，不转换为字符串。
+ * 一次截屏通常会触发插入、IS_PENDING 变更、更新、缩略图等 3~6 次通知，合并后只执行一次媒体库查询。
+ * <p>
+ * 待处理任务使用固定大小的槽位池，稳态下 submit 不产生分配；同时待处理的不同 URI 超过槽位数时，
+ * 新通知并入已有的 null URI 任务，没有时把最早的任务降级为 null URI（按"最新一行 / 增量扫描"处理），不会丢失；
+ * 任何时候最多只有一个 null URI 任务。
+ * <p>
+ * 线程约束：submit 必须在调度器所在线程调用（即 ContentObserver 的回调线程）。
+ */
+final class MediaChangeCoalescer {
+    interface Sink {
+        /**
+         * @param firstUptimeMs 合并窗口内首次通知的时间（调度器的单调时钟）
+         */
+        void onChange(Object uri, long firstUptimeMs);
+    }
+
+    private static final Object KEY_LATEST = new Object();
+    private static final int MAX_PENDING = 8;
+
+    private final LegacyDetectionPipeline.Scheduler scheduler;
+    private final Sink sink;
+    private long windowMs;
+    private final long maxLatencyMs;
+    private final ScreenshotMetrics metrics;
+    private final Pending[] slots = new Pending[MAX_PENDING];
+
+    /**
+     * @param windowMs     静默窗口：最后一次通知后等待该时长再处理
+     * @param maxLatencyMs 最大延迟：从首次通知起最多等待该时长，避免持续通知导致永远不处理
+     * @param metrics      记录收到与被合并的通知数量
+     */
+    MediaChangeCoalescer(LegacyDetectionPipeline.Scheduler scheduler, Sink sink, long windowMs, long maxLatencyMs,
+                         ScreenshotMetrics metrics) {
+        this.scheduler = scheduler;
+        this.sink = sink;
+        this.metrics = metrics;
+        this.windowMs = Math.max(0, windowMs);
+        this.maxLatencyMs = Math.max(this.windowMs, maxLatencyMs);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Pending();
+        }
+    }
+
+    /**
+     * 调整静默窗口（不超过最大延迟），对之后的通知生效；自适应就绪模式下随学习到的典型延迟变化
+     */
+    void setWindowMs(long windowMs) {
+        this.windowMs = Math.min(maxLatencyMs, Math.max(0, windowMs));
+    }
+
+    void submit(Object uri) {
+        metrics.changesReceived.incrementAndGet();
+        Object key = (uri != null) ? uri : KEY_LATEST;
+        long now = scheduler.uptimeMillis();
+
+        Pending p = findPending(key);
+        if (p == null) {
+            p = acquireFreeSlot();
+            if (p != null) {
+                p.activate(key, uri, now);
+                scheduler.postAtTime(p, now + windowMs);
+                return;
+            }
+            // 槽位已满：按最新一行处理，并入已有的 latest 任务，没有时由最早的任务降级而来
+            uri = null;
+            p = findPending(KEY_LATEST);
+            if (p == null) {
+                p = oldestPending();
+                p.key = KEY_LATEST;
+            }
+        }
+
+        // 已有待处理任务：合并，并在不超过最大延迟的前提下顺延
+        metrics.changesCollapsed.incrementAndGet();
+        p.uri = uri;
+        scheduler.removeCallbacks(p);
+        scheduler.postAtTime(p, Math.min(now + windowMs, p.firstUptimeMs + maxLatencyMs));
+    }
+
+    private Pending findPending(Object key) {
+        for (Pending p : slots) {
+            if (p.active && p.key.equals(key)) return p;
+        }
+        return null;
+    }
+
+    private Pending acquireFreeSlot() {
+        for (Pending p : slots) {
+            if (!p.active) return p;
+        }
+        return null;
+    }
+
+    private Pending oldestPending() {
+        Pending oldest = slots[0];
+        for (Pending p : slots) {
+            if (p.firstUptimeMs < oldest.firstUptimeMs) oldest = p;
+        }
+        return oldest;
+    }
+
+    private final class Pending implements Runnable {
+        boolean active;
+        Object key;
+        long firstUptimeMs;
+        Object uri;
+
+        void activate(Object key, Object uri, long firstUptimeMs) {
+            this.active = true;
+            this.key = key;
+            this.uri = uri;
+            this.firstUptimeMs = firstUptimeMs;
+        }
+
+        @Override
+        public void run() {
+            Object target = uri;
+            long first = firstUptimeMs;
+            active = false;
+            key = null;
+            uri = null;
+            sink.onChange(target, first);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.unicorn.tools;
+
+/**
+ * onChange 风暴检测：统计滑动窗口内的通知数量，超过进入阈值时进入风暴模式，
+ * 降到退出阈值（进入阈值的 1/4）及以下时恢复正常模式（带迟滞，避免来回切换）。
+ * <p>
+ * 窗口被划分为固定数量的桶，记录与判断都是 O(1)，不产生分配。
+ * 线程约束：只在 ContentObserver 的回调线程（会话的处理线程）使用。
+ */
+final class MediaChangeStormDetector {
+    private static final int BUCKETS = 10;
+
+    private final int enterThreshold;
+    private final int exitThreshold;
+    private final long bucketMs;
+    private final int[] buckets = new int[BUCKETS];
+
+    private long currentBucket = Long.MIN_VALUE;
+    private int windowCount;
+    private boolean storming;
+
+    /**
+     * @param enterThreshold 窗口内通知数达到该值时进入风暴模式
+     * @param windowMs       滑动窗口长度（毫秒）
+     */
+    MediaChangeStormDetector(int enterThreshold, long windowMs) {
+        this.enterThreshold = Math.max(2, enterThreshold);
+        this.exitThreshold = Math.max(1, this.enterThreshold / 4);
+        this.bucketMs = Math.max(1, windowMs / BUCKETS);
+    }
+
+    /**
+     * 记录一次通知
+     *
+     * @return true：本次通知使检测器进入风暴模式
+     */
+    boolean record(long nowMs) {
+        advance(nowMs);
+        buckets[(int) (currentBucket % BUCKETS)]++;
+        windowCount++;
+        if (!storming && windowCount >= enterThreshold) {
+            storming = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 风暴模式下检查通知频率是否已回落
+     *
+     * @return true：本次检查使检测器恢复正常模式
+     */
+    boolean checkExit(long nowMs) {
+        advance(nowMs);
+        if (storming && windowCount <= exitThreshold) {
+            storming = false;
+            return true;
+        }
+        return false;
+    }
+
+    boolean isStorming() {
+        return storming;
+    }
+
+    /**
+     * 当前窗口内的通知数量
+     */
+    int windowCount(long nowMs) {
+        advance(nowMs);
+        return windowCount;
+    }
+
+    private void advance(long nowMs) {
+        long bucket = Math.max(0, nowMs) / bucketMs;
+        if (currentBucket == Long.MIN_VALUE) {
+            currentBucket = bucket;
+            return;
+        }
+        if (bucket <= currentBucket) return;
+        long steps = Math.min(bucket - currentBucket, BUCKETS);
+        for (long i = 1; i <= steps; i++) {
+            int index = (int) ((currentBucket + i) % BUCKETS);
+            windowCount -= buckets[index];
+            buckets[index] = 0;
+        }
+        currentBucket = bucket;
+    }
+}
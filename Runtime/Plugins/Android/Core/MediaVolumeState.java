@@ -0,0 +1,31 @@
+package com.unicorn.tools;
+
+/**
+ * legacy 策略中单个外部存储卷（如 external_primary、SD 卡）的处理状态：去重缓存、_ID 高水位、
+ * 媒体库 generation 与检查点。不同卷的 _ID 与 generation 互不可比，因此各自独立维护。
+ * <p>
+ * 线程约束：只由所属会话的处理线程访问；卷卸载时整体丢弃。
+ */
+final class MediaVolumeState {
+    final String name;
+    final ScreenshotDedupCache processedFiles;
+    final ScreenshotRules.DedupRule dedupRule;
+
+    // 增量扫描：已扫描的最大 _ID（高水位）与媒体库 generation
+    long scanWatermarkId = -1;
+    long lastScannedGeneration = -1;
+    // 上次增量扫描达到批数上限、仍可能有未扫描的行，等待后续扫描继续
+    boolean scanContinuationPending;
+
+    DetectionCheckpoint checkpoint;
+
+    // 本卷使用的规则引擎（共享规则 + 本卷去重规则 + 会话规则），由 LegacyDetectionPipeline 维护
+    ScreenshotRuleEngine sharedEngine;
+    ScreenshotRuleEngine engine;
+
+    MediaVolumeState(String name, int dedupCapacity, long maxCostTimeMs) {
+        this.name = name;
+        this.processedFiles = new ScreenshotDedupCache(dedupCapacity, maxCostTimeMs);
+        this.dedupRule = new ScreenshotRules.DedupRule(processedFiles);
+    }
+}
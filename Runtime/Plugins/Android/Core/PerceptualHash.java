@@ -0,0 +1,95 @@
+package com.unicorn.tools;
+
+/**
+ * 64 位感知哈希（dHash）：把图片按面积平均缩到 9×8 的灰度网格，每行比较相邻两格的亮度，得到 8×8 = 64 位。
+ * 同一张截图被重新编码、缩放或轻微调整亮度后，哈希的汉明距离通常只有几位；内容不同的图片一般相差 20 位以上。
+ * <p>
+ * 纯 Java 实现，输入为 ARGB 像素数组（与 Bitmap.getPixels 相同），不依赖 Android API，计算过程不产生分配。
+ */
+final class PerceptualHash {
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    /**
+     * 置位数少于该值（或多于 64 减该值）的哈希信息量太少（纯色、单一渐变），不适合比较
+     */
+    private static final int MIN_DETAIL_BITS = 4;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * 计算 dHash：某格比右侧相邻格更亮时对应位为 1
+     *
+     * @param pixels ARGB 像素，按行存放，行宽为 width
+     */
+    static long dHash(int[] pixels, int width, int height) {
+        if (width <= 0 || height <= 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException("Invalid pixel buffer " + width + "x" + height);
+        }
+        long hash = 0;
+        int bit = 0;
+        for (int cy = 0; cy < GRID_HEIGHT; cy++) {
+            int y0 = cy * height / GRID_HEIGHT;
+            int y1 = Math.max(y0 + 1, (cy + 1) * height / GRID_HEIGHT);
+            int left = cellLuma(pixels, width, 0, y0, y1);
+            for (int cx = 1; cx < GRID_WIDTH; cx++) {
+                int right = cellLuma(pixels, width, cx, y0, y1);
+                if (left > right) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+                left = right;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 两个哈希的汉明距离
+     */
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 哈希是否有足够的细节用于相似比较
+     */
+    static boolean hasDetail(long hash) {
+        int bits = Long.bitCount(hash);
+        return bits >= MIN_DETAIL_BITS && bits <= 64 - MIN_DETAIL_BITS;
+    }
+
+    /**
+     * 解码时的采样率（2 的幂）：按该采样率解码后的像素数不超过 maxPixels
+     */
+    static int sampleSize(int width, int height, int maxPixels) {
+        int sample = 1;
+        while (sample < (1 << 16)
+                && (long) ceilDiv(width, sample) * ceilDiv(height, sample) > Math.max(1, maxPixels)) {
+            sample <<= 1;
+        }
+        return sample;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * 网格第 cx 列、[y0, y1) 行范围内像素的平均亮度（ITU-R BT.601 整数近似）
+     */
+    private static int cellLuma(int[] pixels, int width, int cx, int y0, int y1) {
+        int x0 = cx * width / GRID_WIDTH;
+        int x1 = Math.max(x0 + 1, (cx + 1) * width / GRID_WIDTH);
+        long sum = 0;
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+            for (int x = x0; x < x1; x++) {
+                int p = pixels[row + x];
+                sum += ((p >> 16) & 0xff) * 77 + ((p >> 8) & 0xff) * 150 + (p & 0xff) * 29;
+            }
+        }
+        return (int) ((sum >> 8) / ((long) (x1 - x0) * (y1 - y0)));
+    }
+}
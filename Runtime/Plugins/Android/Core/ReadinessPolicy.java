@@ -0,0 +1,85 @@
+package com.unicorn.tools;
+
+/**
+ * 媒体库行"就绪"等待策略：首次查询前的等待时长按设备学习，未就绪时按有界指数退避重试，直到截止时间。
+ * <p>
+ * 学习规则（类似 AIMD）：
+ * - 首次查询即就绪：说明等待偏长，典型延迟按 1/8 递减
+ * - 重试后才就绪：典型延迟向实际就绪耗时靠拢 1/4
+ * <p>
+ * 典型延迟跨会话保留（同一设备的写入耗时相对稳定），可被任意线程读取。
+ */
+final class ReadinessPolicy {
+    private final long minDelayMs;
+    private final long maxRetryDelayMs;
+    private final long deadlineMs;
+    private final long initialTypicalDelayMs;
+
+    private volatile long typicalDelayMs;
+
+    /**
+     * @param initialTypicalDelayMs 尚未学习时的首次等待时长
+     * @param minDelayMs            首次等待与重试间隔的下限
+     * @param maxRetryDelayMs       单次重试间隔的上限
+     * @param deadlineMs            从首次通知起的最长等待时长，超过则放弃等待
+     */
+    ReadinessPolicy(long initialTypicalDelayMs, long minDelayMs, long maxRetryDelayMs, long deadlineMs) {
+        this.minDelayMs = Math.max(1, minDelayMs);
+        this.maxRetryDelayMs = Math.max(this.minDelayMs, maxRetryDelayMs);
+        this.deadlineMs = Math.max(this.minDelayMs, deadlineMs);
+        this.initialTypicalDelayMs = clamp(initialTypicalDelayMs);
+        this.typicalDelayMs = this.initialTypicalDelayMs;
+    }
+
+    /**
+     * 收到通知后首次查询前的等待时长（学习到的典型延迟）
+     */
+    long initialDelayMs() {
+        return typicalDelayMs;
+    }
+
+    /**
+     * 第 attempt 次（从 1 开始）重试前的等待时长
+     *
+     * @param elapsedMs 从首次通知起已经过的时长
+     * @return 等待时长；已到截止时间时返回 -1
+     */
+    long nextDelayMs(int attempt, long elapsedMs) {
+        long remaining = deadlineMs - elapsedMs;
+        if (remaining <= 0) return -1;
+        int shift = Math.min(Math.max(attempt - 1, 0), 16);
+        long delay = Math.min(maxRetryDelayMs, Math.max(minDelayMs, (typicalDelayMs >> 1) << shift));
+        return Math.min(delay, remaining);
+    }
+
+    /**
+     * 记录一次就绪
+     *
+     * @param attempts  就绪前的重试次数（0 表示首次查询即就绪）
+     * @param elapsedMs 从首次通知到就绪的时长
+     */
+    void recordReady(int attempts, long elapsedMs) {
+        long typical = typicalDelayMs;
+        if (attempts == 0) {
+            typical -= typical >> 3;
+        } else {
+            typical += (elapsedMs - typical) >> 2;
+        }
+        typicalDelayMs = clamp(typical);
+    }
+
+    long deadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * 恢复为未学习时的典型延迟
+     */
+    void reset() {
+        typicalDelayMs = initialTypicalDelayMs;
+    }
+
+    private long clamp(long delayMs) {
+        return Math.min(deadlineMs, Math.max(minDelayMs, delayMs));
+    }
+}
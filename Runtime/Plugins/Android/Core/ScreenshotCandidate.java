@@ -0,0 +1,139 @@
+package com.unicorn.tools;
+
+import java.util.Arrays;
+
+/**
+ * 待判定的媒体库记录（一行 MediaStore 数据）。
+ * <p>
+ * 纯 Java 数据结构，不依赖 Android API：Android 侧由游标填充，JVM 单测可直接构造假数据。
+ * 常用列以基本类型字段保存，其他列以字符串形式保存在 extras 中。
+ * 对象可复用：处理下一行前调用 {@link #reset()}；extras 使用可增长的平行数组，稳态下复用不产生分配。
+ */
+public final class ScreenshotCandidate {
+    // MediaStore 列名（与 MediaStore.MediaColumns 保持一致）
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_DATA = "_data";
+    public static final String COLUMN_DATE_ADDED = "date_added";
+    public static final String COLUMN_WIDTH = "width";
+    public static final String COLUMN_HEIGHT = "height";
+    public static final String COLUMN_SIZE = "_size";
+    public static final String COLUMN_MIME_TYPE = "mime_type";
+    public static final String COLUMN_IS_PENDING = "is_pending";
+    public static final String COLUMN_RELATIVE_PATH = "relative_path";
+    public static final String COLUMN_BUCKET_DISPLAY_NAME = "bucket_display_name";
+    public static final String COLUMN_OWNER_PACKAGE_NAME = "owner_package_name";
+
+    /**
+     * 数值列缺失时的取值
+     */
+    public static final long UNKNOWN = -1;
+
+    public long id = UNKNOWN;
+    public String path;
+    public long dateAddedMs = UNKNOWN;
+    public int width = (int) UNKNOWN;
+    public int height = (int) UNKNOWN;
+    public long sizeBytes = UNKNOWN;
+    public int isPending = (int) UNKNOWN;
+    public String mimeType;
+    public String relativePath;
+    public String bucketDisplayName;
+    public String ownerPackageName;
+
+    /**
+     * 读取该行时的系统时间（毫秒），时间维度判断以此为"当前时间"
+     */
+    public long observedAtMs;
+
+    private String[] extraColumns = new String[4];
+    private String[] extraValues = new String[4];
+    private int extraCount;
+    private long pathHash;
+    private boolean pathHashValid;
+
+    public void reset() {
+        id = UNKNOWN;
+        path = null;
+        dateAddedMs = UNKNOWN;
+        width = (int) UNKNOWN;
+        height = (int) UNKNOWN;
+        sizeBytes = UNKNOWN;
+        isPending = (int) UNKNOWN;
+        mimeType = null;
+        relativePath = null;
+        bucketDisplayName = null;
+        ownerPackageName = null;
+        observedAtMs = 0;
+        pathHashValid = false;
+        for (int i = 0; i < extraCount; i++) {
+            extraValues[i] = null;
+        }
+        extraCount = 0;
+    }
+
+    /**
+     * 设置路径，同时使缓存的路径哈希失效
+     */
+    public void setPath(String path) {
+        this.path = path;
+        this.pathHashValid = false;
+    }
+
+    /**
+     * 路径的 64 位哈希（去重 key），首次调用时计算
+     */
+    public long pathHash() {
+        if (!pathHashValid) {
+            pathHash = (path != null) ? ScreenshotDedupCache.hashPath(path) : 0;
+            pathHashValid = true;
+        }
+        return pathHash;
+    }
+
+    /**
+     * 保存未内置字段的列值
+     */
+    public void putExtra(String column, String value) {
+        int index = indexOfExtra(column);
+        if (index >= 0) {
+            extraValues[index] = value;
+            return;
+        }
+        if (extraCount == extraColumns.length) {
+            extraColumns = Arrays.copyOf(extraColumns, extraCount * 2);
+            extraValues = Arrays.copyOf(extraValues, extraCount * 2);
+        }
+        extraColumns[extraCount] = column;
+        extraValues[extraCount] = value;
+        extraCount++;
+    }
+
+    /**
+     * 按列名读取字符串值（内置字段与 extras 均可）
+     */
+    public String getString(String column) {
+        switch (column) {
+            case COLUMN_DATA:
+                return path;
+            case COLUMN_MIME_TYPE:
+                return mimeType;
+            case COLUMN_RELATIVE_PATH:
+                return relativePath;
+            case COLUMN_BUCKET_DISPLAY_NAME:
+                return bucketDisplayName;
+            case COLUMN_OWNER_PACKAGE_NAME:
+                return ownerPackageName;
+            default:
+                int index = indexOfExtra(column);
+                return (index >= 0) ? extraValues[index] : null;
+        }
+    }
+
+    private int indexOfExtra(String column) {
+        for (int i = 0; i < extraCount; i++) {
+            String name = extraColumns[i];
+            if (name == column || name.equals(column)) return i;
+        }
+        return -1;
+    }
+}
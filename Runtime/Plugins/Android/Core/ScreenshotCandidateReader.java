@@ -0,0 +1,149 @@
+package com.unicorn.tools;
+
+/**
+ * 将查询结果的一行读入可复用的 {@link ScreenshotCandidate}。
+ * <p>
+ * 列名到字段的映射在设置投影时解析一次，列下标在绑定游标时解析一次，
+ * 逐行读取只按下标取基本类型值，不做列名比较，也不产生分配。
+ * <p>
+ * 线程约束：与候选记录一样只在处理线程使用。
+ */
+final class ScreenshotCandidateReader {
+    /**
+     * 行数据来源（Android 侧包装 Cursor，JVM 单测可用假数据实现）
+     */
+    interface RowSource {
+        int getColumnIndex(String column);
+
+        long getLong(int index);
+
+        int getInt(int index);
+
+        String getString(int index);
+    }
+
+    private static final int FIELD_EXTRA = 0;
+    private static final int FIELD_ID = 1;
+    private static final int FIELD_DATA = 2;
+    private static final int FIELD_DATE_ADDED = 3;
+    private static final int FIELD_WIDTH = 4;
+    private static final int FIELD_HEIGHT = 5;
+    private static final int FIELD_SIZE = 6;
+    private static final int FIELD_IS_PENDING = 7;
+    private static final int FIELD_MIME_TYPE = 8;
+    private static final int FIELD_RELATIVE_PATH = 9;
+    private static final int FIELD_BUCKET_DISPLAY_NAME = 10;
+    private static final int FIELD_OWNER_PACKAGE_NAME = 11;
+
+    private String[] projection = new String[0];
+    private int[] fields = new int[0];
+    private int[] indices = new int[0];
+
+    /**
+     * 设置查询投影；与当前投影是同一数组时直接返回
+     */
+    void setProjection(String[] projection) {
+        if (projection == this.projection) return;
+        int[] newFields = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            newFields[i] = fieldOf(projection[i]);
+        }
+        this.fields = newFields;
+        this.indices = new int[projection.length];
+        this.projection = projection;
+    }
+
+    String[] projection() {
+        return projection;
+    }
+
+    /**
+     * 绑定新的游标：按投影解析一次列下标，之后逐行读取复用
+     */
+    void bind(RowSource source) {
+        for (int i = 0; i < projection.length; i++) {
+            indices[i] = source.getColumnIndex(projection[i]);
+        }
+    }
+
+    /**
+     * 读取当前行到 row（先 reset）
+     *
+     * @param observedAtMs 读取时的系统时间（毫秒）
+     */
+    void read(RowSource source, ScreenshotCandidate row, long observedAtMs) {
+        row.reset();
+        row.observedAtMs = observedAtMs;
+        for (int i = 0; i < fields.length; i++) {
+            int index = indices[i];
+            if (index < 0) continue;
+            switch (fields[i]) {
+                case FIELD_ID:
+                    row.id = source.getLong(index);
+                    break;
+                case FIELD_DATA:
+                    row.setPath(source.getString(index));
+                    break;
+                case FIELD_DATE_ADDED:
+                    row.dateAddedMs = source.getLong(index) * 1000; // 转换为毫秒
+                    break;
+                case FIELD_WIDTH:
+                    row.width = source.getInt(index);
+                    break;
+                case FIELD_HEIGHT:
+                    row.height = source.getInt(index);
+                    break;
+                case FIELD_SIZE:
+                    row.sizeBytes = source.getLong(index);
+                    break;
+                case FIELD_IS_PENDING:
+                    row.isPending = source.getInt(index);
+                    break;
+                case FIELD_MIME_TYPE:
+                    row.mimeType = source.getString(index);
+                    break;
+                case FIELD_RELATIVE_PATH:
+                    row.relativePath = source.getString(index);
+                    break;
+                case FIELD_BUCKET_DISPLAY_NAME:
+                    row.bucketDisplayName = source.getString(index);
+                    break;
+                case FIELD_OWNER_PACKAGE_NAME:
+                    row.ownerPackageName = source.getString(index);
+                    break;
+                default:
+                    row.putExtra(projection[i], source.getString(index));
+                    break;
+            }
+        }
+    }
+
+    private static int fieldOf(String column) {
+        switch (column) {
+            case ScreenshotCandidate.COLUMN_ID:
+                return FIELD_ID;
+            case ScreenshotCandidate.COLUMN_DATA:
+                return FIELD_DATA;
+            case ScreenshotCandidate.COLUMN_DATE_ADDED:
+                return FIELD_DATE_ADDED;
+            case ScreenshotCandidate.COLUMN_WIDTH:
+                return FIELD_WIDTH;
+            case ScreenshotCandidate.COLUMN_HEIGHT:
+                return FIELD_HEIGHT;
+            case ScreenshotCandidate.COLUMN_SIZE:
+                return FIELD_SIZE;
+            case ScreenshotCandidate.COLUMN_IS_PENDING:
+                return FIELD_IS_PENDING;
+            case ScreenshotCandidate.COLUMN_MIME_TYPE:
+                return FIELD_MIME_TYPE;
+            case ScreenshotCandidate.COLUMN_RELATIVE_PATH:
+                return FIELD_RELATIVE_PATH;
+            case ScreenshotCandidate.COLUMN_BUCKET_DISPLAY_NAME:
+                return FIELD_BUCKET_DISPLAY_NAME;
+            case ScreenshotCandidate.COLUMN_OWNER_PACKAGE_NAME:
+                return FIELD_OWNER_PACKAGE_NAME;
+            default:
+                return FIELD_EXTRA;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.unicorn.tools;
+
+/**
+ * 有界、按时间过期的去重缓存，用于替代只增不减的已处理路径集合。
+ * <p>
+ * - 只保存 64 位紧凑 key（MediaStore _ID 或路径哈希），不保存路径字符串，内存占用固定
+ * - 容量满时覆盖最早写入的记录；超过 ttlMs 的记录视为已过期
+ * - 单写线程（legacy 策略的处理线程）使用，读写均无需加锁
+ * <p>
+ * ttl 取 MAX_COST_TIME 即可：超过该时长的文件会被时间维度判断拒绝，无需继续记忆。
+ * <p>
+ * 时间使用系统时间（毫秒）：记录需要写入检查点并在进程重启后恢复，单调时钟在重启后不可比。
+ * 系统时间可能因校时回拨或跳变，写入顺序不代表时间顺序，因此查找时逐条判断有效期，不在遇到过期记录时提前结束；
+ * 时间晚于 nowMs 的记录（时钟回拨）视为仍在有效期内，最终由容量淘汰。
+ */
+final class ScreenshotDedupCache {
+    private static final long FNV64_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV64_PRIME = 0x100000001b3L;
+
+    private final long[] keys;
+    private final long[] insertTimes;
+    private final int mask;
+    private final long ttlMs;
+
+    private int head = 0; // 下一个写入位置
+    private volatile int size = 0;
+
+    /**
+     * @param capacity 最大记录数，向上取整为 2 的幂
+     * @param ttlMs    记录有效期（毫秒）
+     */
+    ScreenshotDedupCache(int capacity, long ttlMs) {
+        int cap = (capacity <= 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.keys = new long[cap];
+        this.insertTimes = new long[cap];
+        this.mask = cap - 1;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 是否在有效期内记录过该 key。从最新记录向前扫描全部记录（容量很小），跳过已过期的记录。
+     *
+     * @param nowMs 系统时间（与 add 使用同一时钟）
+     */
+    boolean contains(long key, long nowMs) {
+        int n = size;
+        int idx = head;
+        for (int i = 0; i < n; i++) {
+            idx = (idx - 1) & mask;
+            if (keys[idx] == key && nowMs - insertTimes[idx] <= ttlMs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录一个 key；容量已满时覆盖最早的记录
+     */
+    void add(long key, long nowMs) {
+        keys[head] = key;
+        insertTimes[head] = nowMs;
+        head = (head + 1) & mask;
+        if (size <= mask) {
+            size++;
+        }
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 当前保存的记录数（含已过期但尚未被覆盖的记录）
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 路径的 64 位 FNV-1a 哈希，逐字符计算，不产生临时对象
+     */
+    static long hashPath(CharSequence path) {
+        long hash = FNV64_OFFSET_BASIS;
+        for (int i = 0, len = path.length(); i < len; i++) {
+            char c = path.charAt(i);
+            hash ^= (c & 0xff);
+            hash *= FNV64_PRIME;
+            hash ^= (c >>> 8);
+            hash *= FNV64_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,69 @@
+package com.unicorn.tools;
+
+/**
+ * 截屏事件回传 Unity 时的消息格式化（纯 Java）
+ */
+final class ScreenshotEventFormatter {
+    private ScreenshotEventFormatter() {
+    }
+
+    /**
+     * 批量事件格式：{"events":["path1","path2"],"dropped":N}，与 C# 侧 ScreenshotEventBatch 对应
+     *
+     * @param sb      复用的 StringBuilder（会被清空）
+     * @param events  事件数组
+     * @param count   有效事件数量
+     * @param dropped 因队列溢出被丢弃的事件总数
+     */
+    static String formatBatch(StringBuilder sb, String[] events, int count, long dropped) {
+        sb.setLength(0);
+        sb.append("{\"events\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            appendJsonString(sb, events[i]);
+        }
+        sb.append("],\"dropped\":").append(dropped).append('}');
+        return sb.toString();
+    }
+
+    /**
+     * 追加 JSON 字符串字面量（含引号与转义）
+     */
+    static void appendJsonString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00");
+                        sb.append(Character.forDigit(c >> 4, 16));
+                        sb.append(Character.forDigit(c & 0xf, 16));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+}
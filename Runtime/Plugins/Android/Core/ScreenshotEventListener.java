@@ -0,0 +1,22 @@
+package com.unicorn.tools;
+
+/**
+ * 结构化截屏事件的直接回调通道，供 Unity 通过 AndroidJavaProxy 实现（也可由 Java 直接实现）。
+ * 通过 ScreenshotLifecycleObserver.setEventListener 注册。
+ * <p>
+ * 与 UnitySendMessage 不同，不按名字查找 GameObject，也不需要接收方再次查询媒体库。
+ * 参数全部为基本类型与字符串，AndroidJavaProxy 侧无需再通过 JNI 读取事件对象的字段。
+ * 回调在产生事件的线程执行（legacy 策略为工作线程，Android 14+ 回调为主线程），不是 Unity 主线程。
+ */
+public interface ScreenshotEventListener {
+    /**
+     * @param id          MediaStore _ID，未知（Android 14+ 回调）时为 -1
+     * @param path        截图路径，Android 14+ 回调为 "screenshot_detected" 标记
+     * @param width       图片宽度，未知时为 -1
+     * @param height      图片高度，未知时为 -1
+     * @param dateAddedMs 图片加入媒体库的时间（毫秒，未知时为 -1）；Android 14+ 回调为收到回调的时间
+     * @param source      检测来源：{@link ScreenshotListener#SOURCE_MEDIA_STORE} 或 {@link ScreenshotListener#SOURCE_SCREEN_CAPTURE}
+     * @param latencyMs   从 dateAddedMs 到投递的间隔（毫秒，dateAddedMs 未知时为 -1）；Android 14+ 回调为 0
+     */
+    void onScreenshotEvent(long id, String path, int width, int height, long dateAddedMs, int source, long latencyMs);
+}
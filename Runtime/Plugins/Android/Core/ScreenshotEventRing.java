@@ -0,0 +1,173 @@
+package com.unicorn.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（多生产者、多消费者），用于批量投递截屏事件。
+ * <p>
+ * 每个槽位带序号（Vyukov bounded MPMC queue），入队/出队只使用 CAS，不加锁。
+ * 队列满时按溢出策略处理，并累计丢弃数量。
+ * 每个事件可附带一个时间（如文件的 DATE_ADDED），出队时一并取出，用于统计到投递为止的延迟。
+ */
+final class ScreenshotEventRing {
+    /**
+     * 队列满时丢弃最早的事件，保留最新事件
+     */
+    static final int DROP_OLDEST = 0;
+    /**
+     * 队列满时丢弃新到达的事件
+     */
+    static final int DROP_NEWEST = 1;
+
+    private final AtomicReferenceArray<String> buffer;
+    private final AtomicLongArray times;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int overflowPolicy;
+
+    private final AtomicLong enqueuePos = new AtomicLong();
+    private final AtomicLong dequeuePos = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * @param capacity       容量，向上取整为 2 的幂（至少为 2）
+     * @param overflowPolicy {@link #DROP_OLDEST} 或 {@link #DROP_NEWEST}
+     */
+    ScreenshotEventRing(int capacity, int overflowPolicy) {
+        int cap = (capacity <= 2) ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(cap);
+        this.times = new AtomicLongArray(cap);
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = cap - 1;
+        this.overflowPolicy = (overflowPolicy == DROP_NEWEST) ? DROP_NEWEST : DROP_OLDEST;
+    }
+
+    /**
+     * 入队（不附带时间）；队列满时按溢出策略处理
+     *
+     * @return true：事件已入队；false：事件被丢弃（DROP_NEWEST）
+     */
+    boolean offer(String event) {
+        return offer(event, -1);
+    }
+
+    /**
+     * 入队；队列满时按溢出策略处理
+     *
+     * @param timeMs 随事件保存的时间，出队时由 {@link #drainTo(String[], long[])} 取出；不需要时传 -1
+     * @return true：事件已入队；false：事件被丢弃（DROP_NEWEST）
+     */
+    boolean offer(String event, long timeMs) {
+        if (event == null) return false;
+        while (!tryEnqueue(event, timeMs)) {
+            if (overflowPolicy == DROP_NEWEST) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            if (poll() != null) {
+                droppedCount.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 出队，队列为空时返回 null
+     */
+    String poll() {
+        return poll(null, 0);
+    }
+
+    /**
+     * 出队；outTimes 不为 null 时把事件附带的时间写入 outTimes[index]
+     */
+    private String poll(long[] outTimes, int index) {
+        long pos = dequeuePos.get();
+        for (; ; ) {
+            int idx = (int) pos & mask;
+            long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (dequeuePos.compareAndSet(pos, pos + 1)) {
+                    String event = buffer.get(idx);
+                    if (outTimes != null) {
+                        outTimes[index] = times.get(idx);
+                    }
+                    buffer.lazySet(idx, null);
+                    sequences.set(idx, pos + mask + 1);
+                    return event;
+                }
+                pos = dequeuePos.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = dequeuePos.get();
+            }
+        }
+    }
+
+    /**
+     * 批量出队到 out 中，最多取 out.length 个
+     *
+     * @return 实际取出的数量
+     */
+    int drainTo(String[] out) {
+        return drainTo(out, null);
+    }
+
+    /**
+     * 批量出队到 out 中，最多取 out.length 个；outTimes 不为 null 时同时取出各事件附带的时间
+     *
+     * @return 实际取出的数量
+     */
+    int drainTo(String[] out, long[] outTimes) {
+        int n = 0;
+        while (n < out.length) {
+            String event = poll(outTimes, n);
+            if (event == null) break;
+            out[n++] = event;
+        }
+        return n;
+    }
+
+    boolean isEmpty() {
+        long pos = dequeuePos.get();
+        return sequences.get((int) pos & mask) - (pos + 1) < 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 因队列已满而被丢弃的事件总数
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private boolean tryEnqueue(String event, long timeMs) {
+        long pos = enqueuePos.get();
+        for (; ; ) {
+            int idx = (int) pos & mask;
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (enqueuePos.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(idx, event);
+                    times.lazySet(idx, timeMs);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = enqueuePos.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = enqueuePos.get();
+            }
+        }
+    }
+}
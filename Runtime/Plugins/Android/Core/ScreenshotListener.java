@@ -0,0 +1,27 @@
+package com.unicorn.tools;
+
+/**
+ * 截屏事件订阅者（Java 侧）。通过 ScreenshotLifecycleObserver.addListener 注册。
+ * <p>
+ * 回调在产生事件的线程执行（legacy 策略为工作线程，Android 14+ 回调为主线程），实现应尽快返回。
+ */
+public interface ScreenshotListener {
+    /**
+     * legacy 策略（MediaStore）检测到的截图，事件为文件路径
+     */
+    int SOURCE_MEDIA_STORE = 1;
+    /**
+     * Android 14+ ScreenCaptureCallback，事件为 "screenshot_detected" 标记
+     */
+    int SOURCE_SCREEN_CAPTURE = 1 << 1;
+    /**
+     * 接收全部来源
+     */
+    int SOURCE_ALL = SOURCE_MEDIA_STORE | SOURCE_SCREEN_CAPTURE;
+
+    /**
+     * @param event  截图路径，或 Android 14+ 回调的 "screenshot_detected" 标记
+     * @param source 事件来源：{@link #SOURCE_MEDIA_STORE} 或 {@link #SOURCE_SCREEN_CAPTURE}
+     */
+    void onScreenshot(String event, int source);
+}
@@ -0,0 +1,124 @@
+package com.unicorn.tools;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 截屏检测的运行指标：计数器、按规则统计的拒绝次数与延迟直方图。
+ * 所有记录操作均为原子加法，可在任意线程调用；{@link #toJson()} 生成快照供 Unity 轮询上报。
+ */
+final class ScreenshotMetrics {
+    // onChange 与查询
+    final AtomicLong changesReceived = new AtomicLong();
+    final AtomicLong changesCollapsed = new AtomicLong();
+    final AtomicLong queries = new AtomicLong();
+    final AtomicLong queryFailures = new AtomicLong();
+    final AtomicLong scansSkipped = new AtomicLong();
+
+    // 就绪等待：行尚未就绪而重试查询的次数，以及等到截止时间仍未就绪的次数
+    final AtomicLong readinessRetries = new AtomicLong();
+    final AtomicLong readinessTimeouts = new AtomicLong();
+
+    // 风暴保护：进入风暴模式的次数、风暴期间未逐条处理的通知数与区间扫描次数
+    final AtomicLong stormsEntered = new AtomicLong();
+    final AtomicLong changesDuringStorm = new AtomicLong();
+    final AtomicLong stormScans = new AtomicLong();
+
+    // 判定与回调
+    final AtomicLong candidates = new AtomicLong();
+    final AtomicLong accepted = new AtomicLong();
+    final AtomicLong notified = new AtomicLong();
+    final AtomicLong screenCaptureCallbacks = new AtomicLong();
+
+    /**
+     * ContentResolver.query 耗时
+     */
+    final LatencyHistogram queryLatency = new LatencyHistogram();
+    /**
+     * 单条候选记录的规则判定耗时
+     */
+    final LatencyHistogram classifyLatency = new LatencyHistogram();
+    /**
+     * 从文件 DATE_ADDED 到事件交给 Unity 的间隔：逐条投递在 UnitySendMessage 之后记录，
+     * 批量投递在 Unity 取走该批事件时记录（含环形缓冲中的等待与切换主线程的时间）
+     */
+    final LatencyHistogram endToEndLatency = new LatencyHistogram();
+
+    private final ConcurrentHashMap<String, AtomicLong> rejects = new ConcurrentHashMap<>();
+
+    void recordReject(String reason) {
+        AtomicLong counter = rejects.get(reason);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = rejects.putIfAbsent(reason, created);
+            if (counter == null) counter = created;
+        }
+        counter.incrementAndGet();
+    }
+
+    long rejectCount(String reason) {
+        AtomicLong counter = rejects.get(reason);
+        return counter != null ? counter.get() : 0;
+    }
+
+    void reset() {
+        changesReceived.set(0);
+        changesCollapsed.set(0);
+        queries.set(0);
+        queryFailures.set(0);
+        scansSkipped.set(0);
+        readinessRetries.set(0);
+        readinessTimeouts.set(0);
+        stormsEntered.set(0);
+        changesDuringStorm.set(0);
+        stormScans.set(0);
+        candidates.set(0);
+        accepted.set(0);
+        notified.set(0);
+        screenCaptureCallbacks.set(0);
+        for (AtomicLong counter : rejects.values()) {
+            counter.set(0);
+        }
+        queryLatency.reset();
+        classifyLatency.reset();
+        endToEndLatency.reset();
+    }
+
+    /**
+     * 指标快照（JSON）
+     */
+    String toJson() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"changesReceived\":").append(changesReceived.get())
+                .append(",\"changesCollapsed\":").append(changesCollapsed.get())
+                .append(",\"queries\":").append(queries.get())
+                .append(",\"queryFailures\":").append(queryFailures.get())
+                .append(",\"scansSkipped\":").append(scansSkipped.get())
+                .append(",\"readinessRetries\":").append(readinessRetries.get())
+                .append(",\"readinessTimeouts\":").append(readinessTimeouts.get())
+                .append(",\"stormsEntered\":").append(stormsEntered.get())
+                .append(",\"changesDuringStorm\":").append(changesDuringStorm.get())
+                .append(",\"stormScans\":").append(stormScans.get())
+                .append(",\"candidates\":").append(candidates.get())
+                .append(",\"accepted\":").append(accepted.get())
+                .append(",\"notified\":").append(notified.get())
+                .append(",\"screenCaptureCallbacks\":").append(screenCaptureCallbacks.get())
+                .append(",\"rejects\":{");
+        boolean first = true;
+        for (Map.Entry<String, AtomicLong> entry : rejects.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            ScreenshotEventFormatter.appendJsonString(sb, entry.getKey());
+            sb.append(':').append(entry.getValue().get());
+        }
+        sb.append("},\"queryLatency\":");
+        queryLatency.appendJson(sb);
+        sb.append(",\"classifyLatency\":");
+        classifyLatency.appendJson(sb);
+        sb.append(",\"endToEndLatency\":");
+        endToEndLatency.appendJson(sb);
+        sb.append('}');
+        return sb.toString();
+    }
+}
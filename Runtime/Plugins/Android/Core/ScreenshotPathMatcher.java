@@ -0,0 +1,192 @@
+package com.unicorn.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 截图路径关键字匹配器（Aho-Corasick 多模式匹配，大小写不敏感）。
+ * <p>
+ * - 构建一次后不可变，可被多个线程同时使用
+ * - 匹配时逐字符折叠大小写，不生成小写副本，不产生临时对象
+ * - 大小写折叠与设备 Locale 无关（避免土耳其语等 Locale 下 "I" 折叠异常）
+ */
+final class ScreenshotPathMatcher {
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_STATES = new int[0];
+
+    private final String[] keywords;
+
+    // 每个状态的出边：按字符升序排列，匹配时二分查找
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final boolean[] terminal;
+
+    private ScreenshotPathMatcher(String[] keywords, char[][] edgeChars, int[][] edgeTargets,
+                                  int[] fail, boolean[] terminal) {
+        this.keywords = keywords;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.terminal = terminal;
+    }
+
+    /**
+     * 根据关键字构建匹配器，忽略 null 与空字符串
+     */
+    static ScreenshotPathMatcher build(String... keywords) {
+        List<String> words = new ArrayList<>();
+        if (keywords != null) {
+            for (String k : keywords) {
+                if (k != null && !k.isEmpty() && !words.contains(k)) {
+                    words.add(k);
+                }
+            }
+        }
+
+        // 1. 构建 trie（构建阶段使用可变结构，结束后压缩为数组）
+        List<StringBuilder> chars = new ArrayList<>();
+        List<List<Integer>> targets = new ArrayList<>();
+        List<Boolean> isTerminal = new ArrayList<>();
+        chars.add(new StringBuilder());
+        targets.add(new ArrayList<>());
+        isTerminal.add(false);
+        for (String word : words) {
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = fold(word.charAt(i));
+                int next = find(chars.get(state), targets.get(state), c);
+                if (next < 0) {
+                    next = chars.size();
+                    chars.add(new StringBuilder());
+                    targets.add(new ArrayList<>());
+                    isTerminal.add(false);
+                    chars.get(state).append(c);
+                    targets.get(state).add(next);
+                }
+                state = next;
+            }
+            isTerminal.set(state, true);
+        }
+
+        int count = chars.size();
+        char[][] edgeChars = new char[count][];
+        int[][] edgeTargets = new int[count][];
+        boolean[] terminal = new boolean[count];
+        for (int s = 0; s < count; s++) {
+            sortEdges(chars.get(s), targets.get(s), edgeChars, edgeTargets, s);
+            terminal[s] = isTerminal.get(s);
+        }
+
+        // 2. BFS 计算失配指针；终止标记沿失配链向下传递
+        int[] fail = new int[count];
+        int[] queue = new int[count];
+        int qHead = 0;
+        int qTail = 0;
+        for (int target : edgeTargets[0]) {
+            queue[qTail++] = target;
+        }
+        while (qHead < qTail) {
+            int state = queue[qHead++];
+            char[] cs = edgeChars[state];
+            int[] ts = edgeTargets[state];
+            for (int i = 0; i < cs.length; i++) {
+                int child = ts[i];
+                int f = fail[state];
+                int next;
+                while ((next = step(edgeChars, edgeTargets, f, cs[i])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = (next >= 0 && next != child) ? next : 0;
+                terminal[child] |= terminal[fail[child]];
+                queue[qTail++] = child;
+            }
+        }
+
+        return new ScreenshotPathMatcher(words.toArray(new String[0]), edgeChars, edgeTargets, fail, terminal);
+    }
+
+    /**
+     * 返回在当前关键字基础上追加新关键字后的匹配器（原匹配器不变）
+     */
+    ScreenshotPathMatcher withKeywords(String... extraKeywords) {
+        if (extraKeywords == null || extraKeywords.length == 0) return this;
+        String[] merged = Arrays.copyOf(keywords, keywords.length + extraKeywords.length);
+        System.arraycopy(extraKeywords, 0, merged, keywords.length, extraKeywords.length);
+        return build(merged);
+    }
+
+    /**
+     * 当前使用的关键字（副本）
+     */
+    String[] keywords() {
+        return keywords.clone();
+    }
+
+    /**
+     * text 中是否包含任一关键字（大小写不敏感）
+     */
+    boolean matches(CharSequence text) {
+        if (text == null) return false;
+        int state = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = step(edgeChars, edgeTargets, state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = (next >= 0) ? next : 0;
+            if (terminal[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int step(char[][] edgeChars, int[][] edgeTargets, int state, char c) {
+        int idx = Arrays.binarySearch(edgeChars[state], c);
+        return idx >= 0 ? edgeTargets[state][idx] : -1;
+    }
+
+    private static char fold(char c) {
+        if (c < 0x80) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static int find(StringBuilder chars, List<Integer> targets, char c) {
+        for (int i = 0; i < chars.length(); i++) {
+            if (chars.charAt(i) == c) return targets.get(i);
+        }
+        return -1;
+    }
+
+    private static void sortEdges(StringBuilder chars, List<Integer> targets,
+                                  char[][] outChars, int[][] outTargets, int state) {
+        int n = chars.length();
+        if (n == 0) {
+            outChars[state] = NO_CHARS;
+            outTargets[state] = NO_STATES;
+            return;
+        }
+        // 出边很少，插入排序即可
+        char[] cs = new char[n];
+        int[] ts = new int[n];
+        for (int i = 0; i < n; i++) {
+            char c = chars.charAt(i);
+            int t = targets.get(i);
+            int j = i - 1;
+            while (j >= 0 && cs[j] > c) {
+                cs[j + 1] = cs[j];
+                ts[j + 1] = ts[j];
+                j--;
+            }
+            cs[j + 1] = c;
+            ts[j + 1] = t;
+        }
+        outChars[state] = cs;
+        outTargets[state] = ts;
+    }
+}
@@ -0,0 +1,29 @@
+package com.unicorn.tools;
+
+/**
+ * 截图判定规则。每条规则声明所需的 MediaStore 列与相对开销，
+ * 由 {@link ScreenshotRuleEngine} 按开销从低到高依次执行，任一规则拒绝即停止。
+ * <p>
+ * 实现需为纯 Java 逻辑，只读取 {@link ScreenshotCandidate}，不访问 ContentResolver。
+ */
+public interface ScreenshotRule {
+    /**
+     * 规则名称，用于标识拒绝原因
+     */
+    String name();
+
+    /**
+     * 规则需要的 MediaStore 列名，引擎据此拼出最小查询投影
+     */
+    String[] requiredColumns();
+
+    /**
+     * 相对开销，数值越小越先执行；相同开销按添加顺序执行
+     */
+    int cost();
+
+    /**
+     * @return true：通过；false：拒绝该候选记录
+     */
+    boolean accept(ScreenshotCandidate candidate);
+}
@@ -0,0 +1,103 @@
+package com.unicorn.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 截图判定规则引擎（纯 Java）。
+ * <p>
+ * - 根据已启用规则拼出最小查询投影（_ID 与 _DATA 始终包含）
+ * - 按规则开销从低到高执行，遇到第一条拒绝的规则即短路返回
+ * - 不可变：添加规则返回新实例，可在多线程间安全共享
+ */
+final class ScreenshotRuleEngine {
+    private final ScreenshotRule[] rules;
+    private final String[] projection;
+
+    private ScreenshotRuleEngine(ScreenshotRule[] rules) {
+        this.rules = rules;
+        this.projection = buildProjection(rules);
+    }
+
+    static ScreenshotRuleEngine of(ScreenshotRule... rules) {
+        List<ScreenshotRule> list = new ArrayList<>();
+        if (rules != null) {
+            for (ScreenshotRule rule : rules) {
+                if (rule != null) list.add(rule);
+            }
+        }
+        return new ScreenshotRuleEngine(sortByCost(list));
+    }
+
+    /**
+     * 返回追加规则后的新引擎
+     */
+    ScreenshotRuleEngine withRule(ScreenshotRule rule) {
+        if (rule == null) return this;
+        List<ScreenshotRule> list = new ArrayList<>(rules.length + 1);
+        for (ScreenshotRule r : rules) {
+            list.add(r);
+        }
+        list.add(rule);
+        return new ScreenshotRuleEngine(sortByCost(list));
+    }
+
+    /**
+     * 执行判定
+     *
+     * @return null：全部规则通过；否则为第一条拒绝的规则
+     */
+    ScreenshotRule evaluate(ScreenshotCandidate candidate) {
+        for (ScreenshotRule rule : rules) {
+            if (!rule.accept(candidate)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查询所需的最小列集合（调用方不应修改返回的数组）
+     */
+    String[] projection() {
+        return projection;
+    }
+
+    /**
+     * 按执行顺序排列的规则（副本）
+     */
+    ScreenshotRule[] rules() {
+        return rules.clone();
+    }
+
+    private static ScreenshotRule[] sortByCost(List<ScreenshotRule> list) {
+        ScreenshotRule[] sorted = list.toArray(new ScreenshotRule[0]);
+        // 插入排序：规则数量很少，且需保持相同开销规则的添加顺序
+        for (int i = 1; i < sorted.length; i++) {
+            ScreenshotRule r = sorted[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j].cost() > r.cost()) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = r;
+        }
+        return sorted;
+    }
+
+    private static String[] buildProjection(ScreenshotRule[] rules) {
+        List<String> columns = new ArrayList<>();
+        columns.add(ScreenshotCandidate.COLUMN_ID);
+        columns.add(ScreenshotCandidate.COLUMN_DATA);
+        for (ScreenshotRule rule : rules) {
+            String[] required = rule.requiredColumns();
+            if (required == null) continue;
+            for (String column : required) {
+                if (column != null && !columns.contains(column)) {
+                    columns.add(column);
+                }
+            }
+        }
+        return columns.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,196 @@
+package com.unicorn.tools;
+
+/**
+ * 内置截图判定规则：路径关键字、去重、创建时间、图片尺寸。
+ * 规则对象在监听期间长期存在，会话相关参数（开始时间、屏幕尺寸等）由 ScreenshotLifecycleObserver 在启动时设置。
+ */
+final class ScreenshotRules {
+    static final String RULE_PATH = "path";
+    static final String RULE_DEDUP = "dedup";
+    static final String RULE_CREATION_TIME = "creation_time";
+    static final String RULE_SIZE = "size";
+    /**
+     * 内容去重（感知哈希，见 ContentHashDeduper）；不是规则引擎中的规则，只用于拒绝统计与决策记录
+     */
+    static final String RULE_CONTENT = "content";
+
+    private ScreenshotRules() {
+    }
+
+    /**
+     * 路径维度判断：路径包含截图关键字，且不是 .pending- 临时文件
+     */
+    static final class PathKeywordRule implements ScreenshotRule {
+        private static final String[] COLUMNS = {ScreenshotCandidate.COLUMN_DATA};
+
+        private volatile ScreenshotPathMatcher matcher;
+
+        PathKeywordRule(ScreenshotPathMatcher matcher) {
+            this.matcher = matcher;
+        }
+
+        void setMatcher(ScreenshotPathMatcher matcher) {
+            this.matcher = matcher;
+        }
+
+        ScreenshotPathMatcher getMatcher() {
+            return matcher;
+        }
+
+        @Override
+        public String name() {
+            return RULE_PATH;
+        }
+
+        @Override
+        public String[] requiredColumns() {
+            return COLUMNS;
+        }
+
+        @Override
+        public int cost() {
+            return 8;
+        }
+
+        @Override
+        public boolean accept(ScreenshotCandidate candidate) {
+            String filePath = candidate.path;
+            if (filePath == null || filePath.isEmpty()) {
+                return false;
+            }
+            // 过滤临时文件（.pending- 开头的文件）
+            if (filePath.contains("/.pending-")) {
+                return false;
+            }
+            return matcher.matches(filePath);
+        }
+    }
+
+    /**
+     * 去重判断：有效期内已回调过的文件不再处理
+     */
+    static final class DedupRule implements ScreenshotRule {
+        private static final String[] COLUMNS = {ScreenshotCandidate.COLUMN_DATA};
+
+        private final ScreenshotDedupCache cache;
+
+        DedupRule(ScreenshotDedupCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public String name() {
+            return RULE_DEDUP;
+        }
+
+        @Override
+        public String[] requiredColumns() {
+            return COLUMNS;
+        }
+
+        @Override
+        public int cost() {
+            return 4;
+        }
+
+        @Override
+        public boolean accept(ScreenshotCandidate candidate) {
+            return !cache.contains(candidate.pathHash(), candidate.observedAtMs);
+        }
+    }
+
+    /**
+     * 时间维度判断：文件创建时间晚于开始监听时间，且与当前时间相差不超过 maxCostMs
+     */
+    static final class CreationTimeRule implements ScreenshotRule {
+        private static final String[] COLUMNS = {ScreenshotCandidate.COLUMN_DATE_ADDED};
+
+        private final long maxCostMs;
+        private volatile long startListenTimeMs = -1;
+
+        CreationTimeRule(long maxCostMs) {
+            this.maxCostMs = maxCostMs;
+        }
+
+        /**
+         * @param startListenTimeMs 开始监听的时间（毫秒），-1 表示未开始
+         */
+        void setStartListenTimeMs(long startListenTimeMs) {
+            this.startListenTimeMs = startListenTimeMs;
+        }
+
+        @Override
+        public String name() {
+            return RULE_CREATION_TIME;
+        }
+
+        @Override
+        public String[] requiredColumns() {
+            return COLUMNS;
+        }
+
+        @Override
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public boolean accept(ScreenshotCandidate candidate) {
+            long dateAdded = candidate.dateAddedMs;
+            long startTime = startListenTimeMs;
+            if (dateAdded == ScreenshotCandidate.UNKNOWN || startTime < 0) {
+                return false;
+            }
+            if (dateAdded < startTime) {
+                return false;
+            }
+            return (candidate.observedAtMs - dateAdded) <= maxCostMs;
+        }
+    }
+
+    /**
+     * 尺寸维度判断：图片尺寸不超过屏幕尺寸（横竖屏均可）
+     */
+    static final class ScreenSizeRule implements ScreenshotRule {
+        private static final String[] COLUMNS = {ScreenshotCandidate.COLUMN_WIDTH, ScreenshotCandidate.COLUMN_HEIGHT};
+
+        // 宽高打包为一个 long，保证两者同时可见
+        private volatile long screenSize = -1;
+
+        /**
+         * 设置屏幕真实尺寸，传入负数表示未知
+         */
+        void setScreenSize(int width, int height) {
+            screenSize = (width < 0 || height < 0) ? -1 : ((long) width << 32) | (height & 0xffffffffL);
+        }
+
+        @Override
+        public String name() {
+            return RULE_SIZE;
+        }
+
+        @Override
+        public String[] requiredColumns() {
+            return COLUMNS;
+        }
+
+        @Override
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public boolean accept(ScreenshotCandidate candidate) {
+            long size = screenSize;
+            int width = candidate.width;
+            int height = candidate.height;
+            if (size < 0 || width < 0 || height < 0) {
+                return false;
+            }
+            int screenX = (int) (size >>> 32);
+            int screenY = (int) size;
+            return (width <= screenX && height <= screenY) ||
+                    (height <= screenX && width <= screenY);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.unicorn.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 截屏事件订阅者列表：写时复制数组，订阅/取消订阅加锁替换整个数组，分发时无锁遍历当前快照。
+ * <p>
+ * 每个订阅带来源过滤（{@link ScreenshotListener} 的 SOURCE_* 按位掩码），只接收匹配来源的事件；单个订阅者抛出的异常不影响其他订阅者。
+ */
+final class ScreenshotSubscribers {
+    private static final Subscription[] EMPTY = new Subscription[0];
+
+    private static final class Subscription {
+        final int id;
+        final int sourceMask;
+        final ScreenshotListener listener;
+
+        Subscription(int id, int sourceMask, ScreenshotListener listener) {
+            this.id = id;
+            this.sourceMask = sourceMask;
+            this.listener = listener;
+        }
+    }
+
+    private volatile Subscription[] subscriptions = EMPTY;
+    private int nextId = 1;
+    private final AtomicLong failedDispatches = new AtomicLong();
+
+    /**
+     * 添加订阅
+     *
+     * @param sourceMask 接收的事件来源（按位或），0 视为全部
+     * @return 订阅 id，用于取消订阅
+     */
+    synchronized int add(ScreenshotListener listener, int sourceMask) {
+        if (listener == null) return 0;
+        int mask = (sourceMask & ScreenshotListener.SOURCE_ALL) != 0 ? (sourceMask & ScreenshotListener.SOURCE_ALL) : ScreenshotListener.SOURCE_ALL;
+        Subscription[] current = subscriptions;
+        Subscription[] next = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        int id = nextId++;
+        next[current.length] = new Subscription(id, mask, listener);
+        subscriptions = next;
+        return id;
+    }
+
+    /**
+     * 取消订阅
+     *
+     * @return true：找到并移除了该订阅
+     */
+    synchronized boolean remove(int id) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id != id) continue;
+            if (current.length == 1) {
+                subscriptions = EMPTY;
+                return true;
+            }
+            Subscription[] next = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, next, 0, i);
+            System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+            subscriptions = next;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void clear() {
+        subscriptions = EMPTY;
+    }
+
+    int size() {
+        return subscriptions.length;
+    }
+
+    /**
+     * 向匹配来源的订阅者分发事件（无锁，遍历调用时刻的订阅快照）
+     *
+     * @return 收到事件的订阅者数量
+     */
+    int dispatch(String event, int source) {
+        Subscription[] snapshot = subscriptions;
+        int delivered = 0;
+        for (Subscription subscription : snapshot) {
+            if ((subscription.sourceMask & source) == 0) continue;
+            try {
+                subscription.listener.onScreenshot(event, source);
+                delivered++;
+            } catch (RuntimeException e) {
+                failedDispatches.incrementAndGet();
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 订阅者回调抛出异常的累计次数
+     */
+    long getFailedDispatchCount() {
+        return failedDispatches.get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.unicorn.tools;
+
+/**
+ * 有界、按时间过期的相似图片缓存：保存最近回调过的截图的感知哈希（{@link PerceptualHash}），
+ * 汉明距离不超过阈值且仍在时间窗口内的视为同一张截图（相册、云同步工具复制、改名或重新插入的副本）。
+ * <p>
+ * 结构与 {@link ScreenshotDedupCache} 相同：固定容量的环，容量满时覆盖最早的记录；
+ * 只由内容去重的后台线程使用，无需加锁。
+ * <p>
+ * 时间来自系统时间，可能因校时回拨，写入顺序不代表时间顺序，因此与 ScreenshotDedupCache 一样逐条判断是否在窗口内。
+ */
+final class SimilarImageCache {
+    private final long[] hashes;
+    private final long[] insertTimes;
+    private final int mask;
+    private final long windowMs;
+    private final int maxDistance;
+
+    private int head = 0; // 下一个写入位置
+    private int size = 0;
+
+    /**
+     * @param capacity    最大记录数，向上取整为 2 的幂
+     * @param windowMs    时间窗口（毫秒），超过该时长的记录视为已过期
+     * @param maxDistance 视为相同图片的最大汉明距离
+     */
+    SimilarImageCache(int capacity, long windowMs, int maxDistance) {
+        int cap = (capacity <= 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.hashes = new long[cap];
+        this.insertTimes = new long[cap];
+        this.mask = cap - 1;
+        this.windowMs = windowMs;
+        this.maxDistance = Math.max(0, maxDistance);
+    }
+
+    /**
+     * 时间窗口内是否记录过相似的哈希。从最新记录向前扫描全部记录（容量很小），跳过已过期的记录。
+     */
+    boolean containsSimilar(long hash, long nowMs) {
+        int idx = head;
+        for (int i = 0; i < size; i++) {
+            idx = (idx - 1) & mask;
+            if (nowMs - insertTimes[idx] > windowMs) {
+                continue;
+            }
+            if (PerceptualHash.distance(hashes[idx], hash) <= maxDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录一个哈希；容量已满时覆盖最早的记录
+     */
+    void add(long hash, long nowMs) {
+        hashes[head] = hash;
+        insertTimes[head] = nowMs;
+        head = (head + 1) & mask;
+        if (size <= mask) {
+            size++;
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
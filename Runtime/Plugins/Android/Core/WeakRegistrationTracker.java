@@ -0,0 +1,122 @@
+package com.unicorn.tools;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按对象身份记录"已注册回调"的目标（如 Activity），只持有弱引用，不阻止目标被回收。
+ * <p>
+ * 用于保证每个目标只注册一次、在销毁或停止时注销一次，并提供计数用于泄漏检查：
+ * 正常情况下 registered = unregistered + active + collected，停止后 active 应为 0；
+ * collected 表示目标未经注销就被回收（漏掉了销毁通知）。
+ * <p>
+ * 目标数量很少（同时存活的 Activity 通常只有一两个），线性查找即可；方法均加锁，可在任意线程调用。
+ */
+final class WeakRegistrationTracker<T> {
+    private final ArrayList<WeakReference<T>> entries = new ArrayList<>();
+    private long registered;
+    private long unregistered;
+    private long collected;
+
+    /**
+     * 记录目标
+     *
+     * @return true：目标此前未被记录，调用方应执行注册
+     */
+    synchronized boolean track(T target) {
+        if (target == null) return false;
+        expunge();
+        if (indexOf(target) >= 0) return false;
+        entries.add(new WeakReference<>(target));
+        registered++;
+        return true;
+    }
+
+    /**
+     * 移除目标
+     *
+     * @return true：目标此前已被记录，调用方应执行注销
+     */
+    synchronized boolean untrack(T target) {
+        if (target == null) return false;
+        int index = indexOf(target);
+        if (index < 0) return false;
+        entries.remove(index);
+        unregistered++;
+        return true;
+    }
+
+    synchronized boolean isTracked(T target) {
+        return target != null && indexOf(target) >= 0;
+    }
+
+    /**
+     * 移除全部目标，返回仍存活的目标（调用方逐个注销）
+     */
+    synchronized List<T> drain() {
+        List<T> live = new ArrayList<>(entries.size());
+        for (WeakReference<T> ref : entries) {
+            T target = ref.get();
+            if (target != null) {
+                live.add(target);
+                unregistered++;
+            } else {
+                collected++;
+            }
+        }
+        entries.clear();
+        return live;
+    }
+
+    /**
+     * 当前持有注册的存活目标数量
+     */
+    synchronized int activeCount() {
+        expunge();
+        return entries.size();
+    }
+
+    synchronized long registeredCount() {
+        return registered;
+    }
+
+    synchronized long unregisteredCount() {
+        return unregistered;
+    }
+
+    /**
+     * 未经注销就被回收的目标数量
+     */
+    synchronized long collectedCount() {
+        expunge();
+        return collected;
+    }
+
+    /**
+     * 计数快照（JSON）
+     */
+    synchronized String toJson() {
+        expunge();
+        return "{\"active\":" + entries.size()
+                + ",\"registered\":" + registered
+                + ",\"unregistered\":" + unregistered
+                + ",\"collected\":" + collected + '}';
+    }
+
+    private int indexOf(T target) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).get() == target) return i;
+        }
+        return -1;
+    }
+
+    private void expunge() {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).get() == null) {
+                entries.remove(i);
+                collected++;
+            }
+        }
+    }
+}
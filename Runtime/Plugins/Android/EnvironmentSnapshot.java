@@ -0,0 +1,74 @@
+package com.unicorn.tools;
+
+/**
+ * 开始监听所需的环境信息快照（不可变）：权限声明与授予状态、屏幕真实尺寸。
+ * <p>
+ * 权限声明需要 PackageManager.getPackageInfo，开销较大，进程内只读取一次；
+ * 授予状态在快照显示"未授予"时按需复查（运行时授予不会重启进程，撤销则会重启进程）；
+ * 屏幕尺寸在配置变化时失效，下次使用时重新获取。
+ */
+final class EnvironmentSnapshot {
+    /**
+     * 权限不满足，不能开始监听
+     */
+    static final int STRATEGY_NONE = 0;
+
+    final int sdkInt;
+    final boolean mediaDeclared;
+    final boolean mediaGranted;
+    final boolean detectCaptureDeclared;
+    final boolean detectCaptureGranted;
+
+    /**
+     * 屏幕真实尺寸，-1 表示已失效需要重新获取
+     */
+    final int screenWidth;
+    final int screenHeight;
+
+    EnvironmentSnapshot(int sdkInt, boolean mediaDeclared, boolean mediaGranted,
+                        boolean detectCaptureDeclared, boolean detectCaptureGranted,
+                        int screenWidth, int screenHeight) {
+        this.sdkInt = sdkInt;
+        this.mediaDeclared = mediaDeclared;
+        this.mediaGranted = mediaGranted;
+        this.detectCaptureDeclared = detectCaptureDeclared;
+        this.detectCaptureGranted = detectCaptureGranted;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+    }
+
+    /**
+     * 选择策略：
+     * - Android 14+ 且 useDetectScreenCapture=true：需声明且实际授予 DETECT_SCREEN_CAPTURE
+     * - 其他情况：legacy 策略，需声明媒体权限且实际授予
+     *
+     * @return {@link ListenerSession#STRATEGY_ANDROID14}、{@link ListenerSession#STRATEGY_LEGACY} 或 {@link #STRATEGY_NONE}
+     */
+    int strategyFor(boolean useDetectScreenCapture) {
+        if (sdkInt >= 34 && useDetectScreenCapture) {
+            return (detectCaptureDeclared && detectCaptureGranted) ? ListenerSession.STRATEGY_ANDROID14 : STRATEGY_NONE;
+        }
+        return (mediaDeclared && mediaGranted) ? ListenerSession.STRATEGY_LEGACY : STRATEGY_NONE;
+    }
+
+    /**
+     * 是否存在"已声明但未授予"的权限，需要在使用前复查授予状态
+     */
+    boolean hasPendingGrants() {
+        return (mediaDeclared && !mediaGranted) || (detectCaptureDeclared && !detectCaptureGranted);
+    }
+
+    boolean hasScreenSize() {
+        return screenWidth >= 0 && screenHeight >= 0;
+    }
+
+    EnvironmentSnapshot withGrants(boolean mediaGranted, boolean detectCaptureGranted) {
+        return new EnvironmentSnapshot(sdkInt, mediaDeclared, mediaGranted,
+                detectCaptureDeclared, detectCaptureGranted, screenWidth, screenHeight);
+    }
+
+    EnvironmentSnapshot withScreenSize(int screenWidth, int screenHeight) {
+        return new EnvironmentSnapshot(sdkInt, mediaDeclared, mediaGranted,
+                detectCaptureDeclared, detectCaptureGranted, screenWidth, screenHeight);
+    }
+}
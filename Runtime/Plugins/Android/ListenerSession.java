@@ -0,0 +1,92 @@
+package com.unicorn.tools;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * 一次 startListening 到 stopListening 之间的监听会话（不可变）。
+ * <p>
+ * 会话在发布前构建完成，通过 AtomicReference 整体替换；每个会话带递增的 generation，
+ * 延迟任务与回调在执行时比对 generation，属于旧会话的任务直接丢弃。
+ * 会话内可变的处理状态（去重缓存、高水位等）放在 {@link LegacyDetectionPipeline} 中，只由该会话的处理线程访问。
+ */
+final class ListenerSession {
+    static final int STRATEGY_ANDROID14 = 1;
+    static final int STRATEGY_LEGACY = 2;
+
+    final long generation;
+    final int strategy;
+
+    // Unity 通信
+    final String unityGoName;
+    final String unityMethodName;
+
+    /**
+     * Application Context，避免持有 Activity
+     */
+    final Context context;
+
+    // Android 14+ 策略
+    final Application application;
+    final Application.ActivityLifecycleCallbacks lifecycleCallbacks;
+    /**
+     * 已注册 ScreenCaptureCallback 的 Activity（弱引用），停止时逐个注销
+     */
+    final WeakRegistrationTracker<Activity> captureRegistrations;
+
+    // legacy 策略
+    final HandlerThread workerThread;
+    final Handler handler;
+    final ContentObserver contentObserver;
+    /**
+     * 存储卷挂载/卸载广播（Android 10+），为 null 表示只处理单一外部卷
+     */
+    final BroadcastReceiver volumeReceiver;
+    final MediaStoreSource mediaSource;
+    final LegacyDetectionPipeline pipeline;
+
+    private ListenerSession(long generation, int strategy, String unityGoName, String unityMethodName,
+                            Context context, Application application,
+                            Application.ActivityLifecycleCallbacks lifecycleCallbacks,
+                            WeakRegistrationTracker<Activity> captureRegistrations,
+                            HandlerThread workerThread, Handler handler, ContentObserver contentObserver,
+                            BroadcastReceiver volumeReceiver, MediaStoreSource mediaSource,
+                            LegacyDetectionPipeline pipeline) {
+        this.generation = generation;
+        this.strategy = strategy;
+        this.unityGoName = unityGoName;
+        this.unityMethodName = unityMethodName;
+        this.context = context;
+        this.application = application;
+        this.lifecycleCallbacks = lifecycleCallbacks;
+        this.captureRegistrations = captureRegistrations;
+        this.workerThread = workerThread;
+        this.handler = handler;
+        this.contentObserver = contentObserver;
+        this.volumeReceiver = volumeReceiver;
+        this.mediaSource = mediaSource;
+        this.pipeline = pipeline;
+    }
+
+    static ListenerSession android14(long generation, String unityGoName, String unityMethodName,
+                                     Application application,
+                                     Application.ActivityLifecycleCallbacks lifecycleCallbacks,
+                                     WeakRegistrationTracker<Activity> captureRegistrations) {
+        return new ListenerSession(generation, STRATEGY_ANDROID14, unityGoName, unityMethodName,
+                application, application, lifecycleCallbacks, captureRegistrations, null, null, null, null, null, null);
+    }
+
+    static ListenerSession legacy(long generation, String unityGoName, String unityMethodName, Context context,
+                                  HandlerThread workerThread, Handler handler, ContentObserver contentObserver,
+                                  BroadcastReceiver volumeReceiver, MediaStoreSource mediaSource,
+                                  LegacyDetectionPipeline pipeline) {
+        return new ListenerSession(generation, STRATEGY_LEGACY, unityGoName, unityMethodName,
+                context, null, null, null, workerThread, handler, contentObserver, volumeReceiver, mediaSource,
+                pipeline);
+    }
+}
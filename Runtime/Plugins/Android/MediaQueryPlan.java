@@ -0,0 +1,161 @@
+package com.unicorn.tools;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.MediaStore.Images;
+
+/**
+ * legacy 策略使用的媒体库查询计划：投影、排序、分页参数按 SDK 版本预先构建一次，
+ * 每次查询直接复用，不再逐次创建 String[] / Bundle / 排序字符串。
+ * <p>
+ * 线程约束：只在处理线程（工作线程或主线程）使用。
+ */
+final class MediaQueryPlan {
+    private static final String[] MAX_ID_PROJECTION = {Images.Media._ID};
+    private static final String SCAN_SELECTION = Images.Media._ID + " > ?";
+
+    final String[] projection;
+    private final int scanBatchSize;
+    private final boolean useBundle;
+
+    // Android 10+：Bundle 查询参数
+    private final Bundle latestArgs;
+    private final Bundle maxIdArgs;
+    private final Bundle scanArgs;
+    private final Bundle newestArgs;
+
+    // Android 9 及以下：排序字符串
+    private final String latestSortOrder;
+    private final String maxIdSortOrder;
+    private final String scanSortOrder;
+    private final String newestSortOrder;
+
+    // 增量扫描的选择参数：afterId 变化时整体替换（不原地修改已交给查询的数组），两个 Bundle 随之更新
+    private String[] scanSelectionArgs;
+    private long scanSelectionId = Long.MIN_VALUE;
+
+    /**
+     * @param projection    规则引擎需要的投影（由调用方缓存，查询计划不会复制）
+     * @param scanBatchSize 增量扫描每批最多行数
+     */
+    MediaQueryPlan(String[] projection, int scanBatchSize) {
+        this.projection = projection;
+        this.scanBatchSize = scanBatchSize;
+        this.useBundle = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+        if (useBundle) {
+            latestArgs = new Bundle();
+            latestArgs.putStringArray(ContentResolver.QUERY_ARG_SORT_COLUMNS,
+                    new String[]{Images.Media.DATE_MODIFIED});
+            latestArgs.putInt(ContentResolver.QUERY_ARG_SORT_DIRECTION,
+                    ContentResolver.QUERY_SORT_DIRECTION_DESCENDING);
+            latestArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, 1);
+
+            maxIdArgs = new Bundle();
+            maxIdArgs.putStringArray(ContentResolver.QUERY_ARG_SORT_COLUMNS, new String[]{Images.Media._ID});
+            maxIdArgs.putInt(ContentResolver.QUERY_ARG_SORT_DIRECTION,
+                    ContentResolver.QUERY_SORT_DIRECTION_DESCENDING);
+            maxIdArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, 1);
+
+            scanArgs = new Bundle();
+            scanArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, SCAN_SELECTION);
+            scanArgs.putStringArray(ContentResolver.QUERY_ARG_SORT_COLUMNS, new String[]{Images.Media._ID});
+            scanArgs.putInt(ContentResolver.QUERY_ARG_SORT_DIRECTION,
+                    ContentResolver.QUERY_SORT_DIRECTION_ASCENDING);
+            scanArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, scanBatchSize);
+
+            newestArgs = new Bundle();
+            newestArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, SCAN_SELECTION);
+            newestArgs.putStringArray(ContentResolver.QUERY_ARG_SORT_COLUMNS, new String[]{Images.Media._ID});
+            newestArgs.putInt(ContentResolver.QUERY_ARG_SORT_DIRECTION,
+                    ContentResolver.QUERY_SORT_DIRECTION_DESCENDING);
+            newestArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, scanBatchSize);
+
+            latestSortOrder = null;
+            maxIdSortOrder = null;
+            scanSortOrder = null;
+            newestSortOrder = null;
+        } else {
+            latestArgs = null;
+            maxIdArgs = null;
+            scanArgs = null;
+            newestArgs = null;
+
+            latestSortOrder = Images.Media.DATE_MODIFIED + " desc limit 1";
+            maxIdSortOrder = Images.Media._ID + " desc limit 1";
+            scanSortOrder = Images.Media._ID + " asc limit " + scanBatchSize;
+            newestSortOrder = Images.Media._ID + " desc limit " + scanBatchSize;
+        }
+    }
+
+    int scanBatchSize() {
+        return scanBatchSize;
+    }
+
+    /**
+     * 查询具体的 URI
+     */
+    Cursor queryUri(ContentResolver resolver, Uri uri) {
+        return resolver.query(uri, projection, null, null, null);
+    }
+
+    /**
+     * 查询最新修改的一行
+     */
+    Cursor queryLatest(ContentResolver resolver, Uri contentUri) {
+        if (useBundle) {
+            return resolver.query(contentUri, projection, latestArgs, null);
+        }
+        return resolver.query(contentUri, projection, null, null, latestSortOrder);
+    }
+
+    /**
+     * 查询当前最大的 _ID（只投影 _ID 一列）
+     */
+    Cursor queryMaxId(ContentResolver resolver, Uri contentUri) {
+        if (useBundle) {
+            return resolver.query(contentUri, MAX_ID_PROJECTION, maxIdArgs, null);
+        }
+        return resolver.query(contentUri, MAX_ID_PROJECTION, null, null, maxIdSortOrder);
+    }
+
+    /**
+     * 按 _ID 升序查询大于 afterId 的行，最多 scanBatchSize 行；
+     * 选择参数只在 afterId 变化时重建
+     */
+    Cursor queryRowsAfterId(ContentResolver resolver, Uri contentUri, long afterId) {
+        updateScanSelection(afterId);
+        if (useBundle) {
+            return resolver.query(contentUri, projection, scanArgs, null);
+        }
+        return resolver.query(contentUri, projection, SCAN_SELECTION, scanSelectionArgs, scanSortOrder);
+    }
+
+    /**
+     * 按 _ID 降序查询大于 afterId 的最新行，最多 scanBatchSize 行（风暴模式的区间扫描，跳过中间的大批导入）
+     */
+    Cursor queryNewestRowsAfterId(ContentResolver resolver, Uri contentUri, long afterId) {
+        updateScanSelection(afterId);
+        if (useBundle) {
+            return resolver.query(contentUri, projection, newestArgs, null);
+        }
+        return resolver.query(contentUri, projection, SCAN_SELECTION, scanSelectionArgs, newestSortOrder);
+    }
+
+    /**
+     * afterId 变化时新建选择参数数组并放入 Bundle，而不是改写 Bundle 中已有的数组：
+     * 查询方（同进程的 ContentProvider 或包装层）可能保留了上一次的参数
+     */
+    private void updateScanSelection(long afterId) {
+        if (afterId == scanSelectionId) return;
+        scanSelectionArgs = new String[]{Long.toString(afterId)};
+        scanSelectionId = afterId;
+        if (useBundle) {
+            scanArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, scanSelectionArgs);
+            newestArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, scanSelectionArgs);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.unicorn.tools;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * legacy 策略单个会话的媒体库访问：把 {@link LegacyDetectionPipeline} 的查询映射到 ContentResolver，
+ * 按卷缓存内容 URI、打开检查点文件，并记录已注册过 ContentObserver 的卷。
+ * <p>
+ * 查询计划按投影缓存（各卷投影相同，共用一个查询计划），规则变化导致投影变化时重建；
+ * 查询结果包装在同一个 {@link CursorRows} 中复用，流程读完一次查询的结果后才会发起下一次查询。
+ * <p>
+ * 线程约束：只由所属会话的处理线程（工作线程或主线程）访问，因此不需要同步。
+ */
+final class MediaStoreSource implements LegacyDetectionPipeline.MediaSource {
+    private static final String TAG = ScreenshotLifecycleObserver.TAG;
+    private static final String CHECKPOINT_FILE_NAME = "screenshot_observer.checkpoint";
+
+    private final Context context;
+    private final boolean checkpointEnabled;
+    private final ContentResolver resolver;
+    private final CursorRows rows = new CursorRows();
+    private final HashMap<String, Uri> contentUris = new HashMap<>();
+    /**
+     * 已注册过 ContentObserver 的卷（卸载后不注销，重新挂载时不重复注册）
+     */
+    private final HashSet<String> observedVolumes = new HashSet<>();
+    private MediaQueryPlan queryPlan;
+
+    /**
+     * @param checkpointEnabled 是否为各卷打开持久化检查点
+     */
+    MediaStoreSource(Context context, boolean checkpointEnabled) {
+        this.context = context;
+        this.checkpointEnabled = checkpointEnabled;
+        this.resolver = context.getContentResolver();
+    }
+
+    /**
+     * 卷的图片内容 URI（content://media/&lt;卷名&gt;/images/media）
+     */
+    Uri contentUri(String volumeName) {
+        Uri uri = contentUris.get(volumeName);
+        if (uri == null) {
+            uri = MediaStore.Images.Media.getContentUri(volumeName);
+            contentUris.put(volumeName, uri);
+        }
+        return uri;
+    }
+
+    /**
+     * 记录卷已注册 ContentObserver
+     *
+     * @return true：此前未注册，调用方应执行注册
+     */
+    boolean markObserved(String name) {
+        return observedVolumes.add(name);
+    }
+
+    /**
+     * 打开卷的检查点文件
+     *
+     * @return 未开启检查点或打开失败时返回 null
+     */
+    DetectionCheckpoint openCheckpoint(String volumeName) {
+        if (!checkpointEnabled) return null;
+        try {
+            File dir = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+                    ? context.getNoBackupFilesDir() : context.getFilesDir();
+            return DetectionCheckpoint.open(new File(dir, checkpointFileName(volumeName)),
+                    LegacyDetectionPipeline.DEDUP_CAPACITY, getMediaStoreVersionHash(volumeName));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open detection checkpoint", e);
+            return null;
+        }
+    }
+
+    /**
+     * 检查点文件名：主存储卷沿用原文件名，其他卷各自一个文件
+     */
+    private static String checkpointFileName(String volumeName) {
+        if (MediaStore.VOLUME_EXTERNAL_PRIMARY.equals(volumeName) || MediaStore.VOLUME_EXTERNAL.equals(volumeName)) {
+            return CHECKPOINT_FILE_NAME;
+        }
+        return "screenshot_observer." + volumeName + ".checkpoint";
+    }
+
+    /**
+     * 媒体库版本的哈希；版本变化（如媒体库被重建）后检查点中的 _ID 不再可用
+     */
+    private long getMediaStoreVersionHash(String volumeName) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return 0;
+        try {
+            String version = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R)
+                    ? MediaStore.getVersion(context, volumeName) : MediaStore.getVersion(context);
+            return (version != null) ? ScreenshotDedupCache.hashPath(version) : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public LegacyDetectionPipeline.Rows queryItem(Object uri, String[] projection) {
+        return wrap(plan(projection).queryUri(resolver, (Uri) uri));
+    }
+
+    @Override
+    public LegacyDetectionPipeline.Rows queryLatest(MediaVolumeState volume, String[] projection) {
+        return wrap(plan(projection).queryLatest(resolver, contentUri(volume.name)));
+    }
+
+    @Override
+    public LegacyDetectionPipeline.Rows queryMaxId(MediaVolumeState volume, String[] projection) {
+        return wrap(plan(projection).queryMaxId(resolver, contentUri(volume.name)));
+    }
+
+    @Override
+    public LegacyDetectionPipeline.Rows queryRowsAfterId(MediaVolumeState volume, String[] projection, long afterId) {
+        return wrap(plan(projection).queryRowsAfterId(resolver, contentUri(volume.name), afterId));
+    }
+
+    @Override
+    public LegacyDetectionPipeline.Rows queryNewestRowsAfterId(MediaVolumeState volume, String[] projection,
+                                                               long afterId) {
+        return wrap(plan(projection).queryNewestRowsAfterId(resolver, contentUri(volume.name), afterId));
+    }
+
+    @Override
+    public long generation(MediaVolumeState volume) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return -1;
+        return MediaStore.getGeneration(context, volume.name);
+    }
+
+    private MediaQueryPlan plan(String[] projection) {
+        MediaQueryPlan plan = queryPlan;
+        if (plan == null || plan.projection != projection) {
+            plan = new MediaQueryPlan(projection, LegacyDetectionPipeline.SCAN_BATCH_SIZE);
+            queryPlan = plan;
+        }
+        return plan;
+    }
+
+    private LegacyDetectionPipeline.Rows wrap(Cursor cursor) {
+        if (cursor == null) return null;
+        rows.cursor = cursor;
+        return rows;
+    }
+
+    /**
+     * Cursor 到查询结果的适配，单实例复用
+     */
+    static final class CursorRows implements LegacyDetectionPipeline.Rows {
+        Cursor cursor;
+
+        @Override
+        public boolean moveToFirst() {
+            return cursor.moveToFirst();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            return cursor.moveToNext();
+        }
+
+        @Override
+        public void close() {
+            Cursor c = cursor;
+            cursor = null;
+            if (c != null && !c.isClosed()) {
+                c.close();
+            }
+        }
+
+        @Override
+        public int getColumnIndex(String column) {
+            return cursor.getColumnIndex(column);
+        }
+
+        @Override
+        public long getLong(int index) {
+            return cursor.getLong(index);
+        }
+
+        @Override
+        public int getInt(int index) {
+            return cursor.getInt(index);
+        }
+
+        @Override
+        public String getString(int index) {
+            return cursor.getString(index);
+        }
+    }
+}
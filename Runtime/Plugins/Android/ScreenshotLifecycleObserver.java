@@ -3,18 +3,24 @@ package com.unicorn.tools;
 import android.Manifest;
 import android.app.Activity;
 import android.app.Application;
-import android.content.ContentResolver;
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
+import android.content.ContentUris;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.database.ContentObserver;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.provider.MediaStore;
-import android.provider.MediaStore.Images;
 import android.graphics.Point;
 import android.text.TextUtils;
 import android.util.Log;
@@ -23,96 +29,592 @@ import android.view.WindowManager;
 
 import com.unity3d.player.UnityPlayer;
 
-import java.util.HashSet;
-import java.util.Locale;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 
 public class ScreenshotLifecycleObserver {
-    private static final String TAG = "@ScreenshotObserver";
+    static final String TAG = "@ScreenshotObserver";
     private static final String SCREENSHOT_DETECTED = "screenshot_detected";
     private static final String PERM_DETECT_SCREEN_CAPTURE = "android.permission.DETECT_SCREEN_CAPTURE";
 
-    // 监听状态
-    private static boolean isListening = false;
-
-    // Unity 通信相关
-    private static String unityGoName;
-    private static String unityMethodName;
+    // 监听状态：当前会话（不可变，整体替换），null 表示未在监听；generation 每次 startListening 递增
+    private static final AtomicReference<ListenerSession> session = new AtomicReference<>();
+    private static final AtomicLong sessionGeneration = new AtomicLong();
+
+    // 线程相关：legacy 策略的观察/查询/判定默认运行在独立工作线程，仅最终回调 Unity 时切回主线程
+    private static volatile boolean useWorkerThread = true;
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // onChange 合并相关：窗口期内同一 URI 的多次通知只触发一次查询
+    private static volatile long coalesceWindowMs = 300; // 文件可能还在写入中，默认等待 300ms
+    private static volatile long coalesceMaxLatencyMs = 1000;
+
+    // 自适应就绪（Android 10+）：首次查询前的等待按设备学习，行未就绪时有界指数退避重试，超时后回退为增量扫描
+    private static volatile boolean useAdaptiveReadiness = true;
+    private static final ReadinessPolicy readinessPolicy = LegacyDetectionPipeline.newReadinessPolicy();
+
+    // 风暴保护：每秒 onChange 数超过阈值（如相册恢复、云同步）时停止逐条处理，改为按间隔做一次有界区间扫描
+    private static volatile int stormThreshold = 30;
+    private static volatile long stormScanIntervalMs = 1000;
+
+    // 持久化检查点：保存扫描进度与最近的去重 key，重启后从上次的高水位继续增量扫描
+    private static volatile boolean useCheckpoint = false;
+
+    // 内容去重（可选）：按感知哈希抑制时间窗口内几乎相同的截图副本，null 表示未启用
+    private static volatile ContentHashDeduper contentDeduper;
+    private static final int CONTENT_HASH_MAX_PIXELS = 4096; // RGB_565 解码后约 8KB
+
+    // 批量投递相关：eventRing 为 null 时逐条 UnitySendMessage
+    private static volatile ScreenshotEventRing eventRing;
+    private static volatile String batchMethodName;
+    private static volatile long batchFlushIntervalMs;
+    private static final AtomicBoolean batchFlushScheduled = new AtomicBoolean(false);
+    private static final Runnable batchFlushTask = ScreenshotLifecycleObserver::flushEventBatch;
+    private static final StringBuilder batchPayloadBuilder = new StringBuilder(256);
+    private static String[] batchDrainBuffer = new String[0];
+    private static long[] batchDrainTimes = new long[0];
+
+    // 环境快照：权限声明/授予状态与屏幕尺寸，跨会话复用，权限或配置变化时局部失效
+    private static volatile EnvironmentSnapshot environmentSnapshot;
+    private static final AtomicBoolean configurationCallbacksRegistered = new AtomicBoolean(false);
+    private static final String START_RESULT_STARTED = "started";
+    private static final String START_RESULT_ALREADY_LISTENING = "already_listening";
+    private static final String START_RESULT_PERMISSION_DENIED = "permission_denied";
+    private static final String START_RESULT_NO_ACTIVITY = "no_activity";
+    private static final String START_RESULT_STOPPED = "stopped";
+    // stopListening 调用次数：异步启动期间被停止时不再注册监听
+    private static final AtomicLong stopRequests = new AtomicLong();
+
+    // Android 14+ 专用变量：回调本身与会话无关，触发时按当前会话投递
+    private static volatile Activity.ScreenCaptureCallback screenCaptureCallback;
+    // 最近一个 Android 14+ 会话的注册记录（停止后保留，用于泄漏检查）
+    private static volatile WeakRegistrationTracker<Activity> captureRegistrations;
+
+    // 增量扫描相关：记录已扫描的最大 _ID（高水位）与媒体库 generation，仅查询新增行（状态见 MediaVolumeState）
+    private static final AtomicBoolean useIncrementalScan = new AtomicBoolean(true);
+
+    // 存储卷挂载广播之后再次同步卷列表的延迟（毫秒）
+    private static final long VOLUME_RESYNC_DELAY_MS = 2000;
+
+    // 共享判定规则：路径关键字规则与自定义规则跨会话共享；去重、时间、尺寸规则依赖会话参数，由 LegacyDetectionPipeline 持有
+    private static final ScreenshotRules.PathKeywordRule pathRule =
+            new ScreenshotRules.PathKeywordRule(ScreenshotPathMatcher.build(LegacyDetectionPipeline.KEYWORDS));
+
+    // 共享规则引擎：不可变，新增规则时整体替换；会话在此基础上追加自己的规则并生成查询投影
+    private static final AtomicReference<ScreenshotRuleEngine> ruleEngine =
+            new AtomicReference<>(ScreenshotRuleEngine.of(pathRule));
+
+    // 运行指标：计数器、拒绝原因与延迟直方图，进程内累计，可通过 resetMetrics() 清零
+    private static final ScreenshotMetrics metrics = new ScreenshotMetrics();
+    // 检测轨迹记录（用于 JVM 重放），值为 null 表示未在记录
+    private static final AtomicReference<DetectionTraceRecorder> traceRecorder = new AtomicReference<>();
+    // 检测决策的飞行记录器：常驻开启，预分配固定容量，排查漏检时导出最近的记录
+    private static final int FLIGHT_RECORDER_CAPACITY = 256;
+    private static final DetectionFlightRecorder flightRecorder = new DetectionFlightRecorder(FLIGHT_RECORDER_CAPACITY);
+    // legacy 策略各会话共用的组件（规则、增量扫描开关、就绪策略、指标与记录器）
+    private static final LegacyDetectionPipeline.Shared pipelineShared = new LegacyDetectionPipeline.Shared(
+            ruleEngine, useIncrementalScan, readinessPolicy, metrics, flightRecorder, traceRecorder);
+
+    // 附加订阅者：写时复制数组，无论多少订阅者都共用同一个底层监听；订阅与会话无关，stop/start 后仍然保留
+    private static final ScreenshotSubscribers subscribers = new ScreenshotSubscribers();
+    // 结构化事件的直接回调通道（通常由 Unity 的 AndroidJavaProxy 实现），null 表示未启用
+    private static volatile ScreenshotEventListener eventListener;
 
-    // Android 14+ 专用变量
-    private static Application.ActivityLifecycleCallbacks lifecycleCallbacks;
-    private static Activity.ScreenCaptureCallback screenCaptureCallback;
+    /**
+     * 开启监听（可选择 Android 14+ 是否使用 DETECT_SCREEN_CAPTURE 相关的新策略）
+     *
+     * @param goName                 Unity 接收消息的 GameObject 名字
+     * @param methodName             Unity 接收消息的方法名；为 null 时只投递给订阅者与直接回调通道
+     * @param useDetectScreenCapture true：Android 14+ 使用 registerScreenCaptureCallback()；false：Android 14+ 也走 legacy 策略
+     */
+    public static void startListening(String goName, String methodName, boolean useDetectScreenCapture) {
+        startListeningInternal(goName, methodName, useDetectScreenCapture);
+    }
 
-    // Android < 14 专用变量
-    private static ContentObserver contentObserver;
-    private static long startListenTime = 0; // 开始监听的时间戳（秒）
-    private static Point screenRealSize = null; // 屏幕真实尺寸
+    /**
+     * 开启监听，不指定 Unity 目标：事件只投递给直接回调通道（{@link #setEventListener}）与订阅者
+     */
+    public static void startListeningDirect(boolean useDetectScreenCapture) {
+        startListeningInternal(null, null, useDetectScreenCapture);
+    }
 
-    // 已处理的文件路径集合，避免重复处理
-    private static final Set<String> processedPaths = new HashSet<>();
+    /**
+     * 异步开启监听：在后台线程准备环境快照（权限声明、授予状态、屏幕尺寸），再回到主线程注册监听，
+     * 完成后通过 UnitySendMessage(goName, readyMethodName, 结果) 通知 Unity。
+     * <p>
+     * 结果取值：started / already_listening / permission_denied / no_activity / stopped
+     * （启动完成前 stopListening 被调用，监听未启动或已被释放）
+     *
+     * @param readyMethodName Unity 接收启动结果的方法名，为空时不回调
+     */
+    public static void startListeningAsync(String goName, String methodName, boolean useDetectScreenCapture,
+                                           String readyMethodName) {
+        final Activity currentActivity = UnityPlayer.currentActivity;
+        if (currentActivity == null) {
+            notifyStartResult(goName, readyMethodName, START_RESULT_NO_ACTIVITY);
+            return;
+        }
+        final Context appContext = currentActivity.getApplicationContext();
+        final long stops = stopRequests.get();
+        InitExecutor.INSTANCE.execute(() -> {
+            obtainEnvironment(appContext);
+            mainHandler.post(() -> notifyStartResult(goName, readyMethodName, (stopRequests.get() != stops)
+                    ? START_RESULT_STOPPED : startListeningInternal(goName, methodName, useDetectScreenCapture)));
+        });
+    }
 
     /**
-     * 最大时间差（毫秒），文件创建时间与当前时间相差超过此值则忽略
+     * 在后台线程预热环境快照，之后的 startListening / startListeningAsync 直接复用
      */
-    private static final long MAX_COST_TIME = 10000; // 10秒
+    public static void warmUpEnvironment() {
+        Activity currentActivity = UnityPlayer.currentActivity;
+        if (currentActivity == null) return;
+        final Context appContext = currentActivity.getApplicationContext();
+        InitExecutor.INSTANCE.execute(() -> obtainEnvironment(appContext));
+    }
 
     /**
-     * 截屏依据中的路径判断关键字
+     * 启动准备（环境快照）的后台线程：首次使用时创建，单线程按提交顺序执行，空闲时退出
      */
-    private static final String[] KEYWORDS = {
-            "screenshot", "screen_shot", "screen-shot", "screen shot",
-            "screencapture", "screen_capture", "screen-capture", "screen capture",
-            "screencap", "screen_cap", "screen-cap", "screen cap"
-    };
+    private static final class InitExecutor {
+        static final ThreadPoolExecutor INSTANCE = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), r -> new Thread(r, "ScreenshotObserver-Init"));
 
+        static {
+            INSTANCE.allowCoreThreadTimeOut(true);
+        }
+    }
 
     /**
-     * 开启监听（可选择 Android 14+ 是否使用 DETECT_SCREEN_CAPTURE 相关的新策略）
-     *
-     * @param goName                 Unity 接收消息的 GameObject 名字
-     * @param methodName             Unity 接收消息的方法名
-     * @param useDetectScreenCapture true：Android 14+ 使用 registerScreenCaptureCallback()；false：Android 14+ 也走 legacy 策略
+     * @return 启动结果，取值见 {@link #startListeningAsync}
      */
-    public static void startListening(String goName, String methodName, boolean useDetectScreenCapture) {
-        if (isListening) {
+    private static String startListeningInternal(String goName, String methodName, boolean useDetectScreenCapture) {
+        if (session.get() != null) {
             Log.w(TAG, "startListening ignored: already listening. You must call stopListening() before calling startListening() again.");
-            return;
+            return START_RESULT_ALREADY_LISTENING;
         }
 
-        unityGoName = (goName != null) ? goName : "NativeMsgRx";
-        unityMethodName = methodName;
+        String unityGoName = (goName != null) ? goName : "NativeMsgRx";
 
         Activity currentActivity = UnityPlayer.currentActivity;
-        if (currentActivity == null) return;
+        if (currentActivity == null) return START_RESULT_NO_ACTIVITY;
 
-        // 选择策略：
+        // 选择策略（权限声明与授予状态来自缓存的环境快照）：
         // - Android 14+ 且 useDetectScreenCapture=true：优先尝试新策略（准确，但无路径）
         // - 其他情况：使用 legacy 策略（可能拿到路径，但判定不 100%）
-        boolean shouldUseAndroid14Callback = Build.VERSION.SDK_INT >= 34 && useDetectScreenCapture;
-
-        // 权限声明（Manifest）只读取一次，避免重复 PackageInfo 查询
-        final String[] declaredPerms = getDeclaredPermissions(currentActivity);
+        // 任何权限不满足都静默返回
+        EnvironmentSnapshot env = obtainEnvironment(currentActivity.getApplicationContext());
+        int strategy = env.strategyFor(useDetectScreenCapture);
+        if (strategy == EnvironmentSnapshot.STRATEGY_NONE) return START_RESULT_PERMISSION_DENIED;
+        boolean shouldUseAndroid14Callback = strategy == ListenerSession.STRATEGY_ANDROID14;
+
+        long generation = sessionGeneration.incrementAndGet();
+        ListenerSession s = shouldUseAndroid14Callback
+                ? createAndroid14Session(generation, unityGoName, methodName, currentActivity.getApplication())
+                : createLegacySession(generation, unityGoName, methodName, currentActivity, env);
+
+        // 会话构建完成后再发布；并发 startListening 只有一个能成功
+        if (!session.compareAndSet(null, s)) {
+            Log.w(TAG, "startListening ignored: already listening. You must call stopListening() before calling startListening() again.");
+            releaseSession(s);
+            return START_RESULT_ALREADY_LISTENING;
+        }
 
         if (shouldUseAndroid14Callback) {
-            // DETECT_SCREEN_CAPTURE：需声明且“实际授予”。任何不满足都静默返回。
-            if (!isDeclared(declaredPerms, PERM_DETECT_SCREEN_CAPTURE)) return;
-            if (!hasPermissionGranted(currentActivity, PERM_DETECT_SCREEN_CAPTURE)) return;
+            startAndroid14Strategy(s, currentActivity);
         } else {
-            // legacy：需声明媒体权限且实际授予。任何不满足都静默返回。
-            if (!isAnyDeclared(declaredPerms, Manifest.permission.READ_MEDIA_IMAGES, Manifest.permission.READ_EXTERNAL_STORAGE)) return;
-            if (!hasMediaPermission(currentActivity)) return;
+            startLegacyStrategy(s);
         }
 
-        isListening = true;
+        // 注册期间被并发 stopListening：补做一次清理，避免残留监听
+        if (session.get() != s) {
+            releaseSession(s);
+            return START_RESULT_STOPPED;
+        }
+        return START_RESULT_STARTED;
+    }
 
-        if (shouldUseAndroid14Callback) {
-            startAndroid14Strategy(currentActivity.getApplication());
-            registerCallbackForActivity(currentActivity);
+    private static void notifyStartResult(String goName, String readyMethodName, String result) {
+        if (TextUtils.isEmpty(readyMethodName)) return;
+        UnityPlayer.UnitySendMessage((goName != null) ? goName : "NativeMsgRx", readyMethodName, result);
+    }
+
+    /**
+     * 获取环境快照：首次调用时构建（含 getPackageInfo），之后复用；
+     * 存在未授予的权限时复查授予状态，配置变化后重新获取屏幕尺寸。可在任意线程调用。
+     */
+    private static EnvironmentSnapshot obtainEnvironment(Context context) {
+        EnvironmentSnapshot env = environmentSnapshot;
+        if (env == null) {
+            final String[] declaredPerms = getDeclaredPermissions(context);
+            Point screenSize = getRealScreenSize(context);
+            env = new EnvironmentSnapshot(Build.VERSION.SDK_INT,
+                    isAnyDeclared(declaredPerms, Manifest.permission.READ_MEDIA_IMAGES, Manifest.permission.READ_EXTERNAL_STORAGE),
+                    hasMediaPermission(context),
+                    isDeclared(declaredPerms, PERM_DETECT_SCREEN_CAPTURE),
+                    hasPermissionGranted(context, PERM_DETECT_SCREEN_CAPTURE),
+                    screenSize.x, screenSize.y);
+            registerConfigurationCallbacks(context);
         } else {
-            startLegacyStrategy(currentActivity);
+            if (env.hasPendingGrants()) {
+                boolean mediaGranted = hasMediaPermission(context);
+                boolean detectGranted = hasPermissionGranted(context, PERM_DETECT_SCREEN_CAPTURE);
+                if (mediaGranted != env.mediaGranted || detectGranted != env.detectCaptureGranted) {
+                    env = env.withGrants(mediaGranted, detectGranted);
+                }
+            }
+            if (!env.hasScreenSize()) {
+                Point screenSize = getRealScreenSize(context);
+                env = env.withScreenSize(screenSize.x, screenSize.y);
+            }
+            if (env == environmentSnapshot) return env;
+        }
+        environmentSnapshot = env;
+        return env;
+    }
+
+    /**
+     * 配置变化（旋转、折叠屏展开、分辨率切换）时使快照中的屏幕尺寸失效；进程内只注册一次
+     */
+    private static void registerConfigurationCallbacks(Context context) {
+        if (!configurationCallbacksRegistered.compareAndSet(false, true)) return;
+        try {
+            context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks() {
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                    EnvironmentSnapshot env = environmentSnapshot;
+                    if (env != null && env.hasScreenSize()) {
+                        environmentSnapshot = env.withScreenSize(-1, -1);
+                    }
+                }
+
+                @Override
+                public void onLowMemory() {
+                }
+            });
+        } catch (Exception e) {
+            configurationCallbacksRegistered.set(false);
         }
     }
 
+    /**
+     * 是否正在监听
+     */
+    public static boolean isListening() {
+        return session.get() != null;
+    }
+
+    /**
+     * legacy 策略当前处理中的外部存储卷名称（如 external_primary 及 SD 卡卷），未监听或 Android 14+ 策略时为空数组
+     */
+    public static String[] getObservedVolumes() {
+        ListenerSession s = session.get();
+        return (s != null && s.pipeline != null) ? s.pipeline.volumeNames().clone() : new String[0];
+    }
+
+    /**
+     * 当前持有 ScreenCaptureCallback 注册的 Activity 数量（Android 14+ 策略；停止监听后应为 0）
+     */
+    public static int getCaptureRegistrationCount() {
+        WeakRegistrationTracker<Activity> registrations = captureRegistrations;
+        return registrations != null ? registrations.activeCount() : 0;
+    }
+
+    /**
+     * 最近一个 Android 14+ 会话的注册计数（JSON）：{"active":N,"registered":N,"unregistered":N,"collected":N}。
+     * 正常情况下 registered = unregistered + active + collected；collected 表示 Activity 未经注销就被回收。
+     */
+    public static String getCaptureRegistrationStats() {
+        WeakRegistrationTracker<Activity> registrations = captureRegistrations;
+        return registrations != null ? registrations.toJson()
+                : "{\"active\":0,\"registered\":0,\"unregistered\":0,\"collected\":0}";
+    }
+
+    /**
+     * 设置 legacy 策略是否使用独立工作线程（默认 true）。
+     * 仅对之后的 startListening 生效；false 时回退为在主线程执行查询与判定。
+     */
+    public static void setWorkerThreadEnabled(boolean enabled) {
+        useWorkerThread = enabled;
+    }
+
+    /**
+     * 设置 legacy 策略的 onChange 合并参数，仅对之后的 startListening 生效
+     *
+     * @param windowMs     最后一次通知后等待的静默时长（毫秒），默认 300
+     * @param maxLatencyMs 从首次通知起的最大等待时长（毫秒），默认 1000
+     */
+    public static void setCoalescingWindow(long windowMs, long maxLatencyMs) {
+        coalesceWindowMs = Math.max(0, windowMs);
+        coalesceMaxLatencyMs = Math.max(coalesceWindowMs, maxLatencyMs);
+    }
+
+    /**
+     * 设置 legacy 策略是否使用自适应就绪等待（默认 true，仅 Android 10+ 生效），仅对之后的 startListening 生效。
+     * <p>
+     * 开启时：首次查询前的等待时长按设备学习（初始 300ms，替代固定的合并窗口）；
+     * 行仍为 IS_PENDING 或宽高不可用时按指数退避重新查询，直到就绪或超过截止时间（3 秒）。
+     */
+    public static void setAdaptiveReadinessEnabled(boolean enabled) {
+        useAdaptiveReadiness = enabled;
+    }
+
+    /**
+     * 设置 legacy 策略的风暴保护参数，仅对之后的 startListening 生效。
+     * <p>
+     * 每秒 onChange 数达到 changesPerSecond 时进入风暴模式：不再逐条查询，
+     * 改为每 scanIntervalMs 查询一次高水位之后最新的一批记录；频率回落到阈值的 1/4 以下时恢复正常模式。
+     *
+     * @param changesPerSecond 进入风暴模式的阈值（默认 30），0 表示关闭风暴保护
+     * @param scanIntervalMs   风暴模式下区间扫描的间隔（毫秒，默认 1000）
+     */
+    public static void setStormGuard(int changesPerSecond, long scanIntervalMs) {
+        stormThreshold = Math.max(0, changesPerSecond);
+        stormScanIntervalMs = Math.max(100, scanIntervalMs);
+    }
+
+    /**
+     * 设置 legacy 策略是否使用持久化检查点（默认 false），仅对之后的 startListening 生效。
+     * <p>
+     * 开启后扫描进度（最大 _ID、generation）与最近处理过的去重 key 写入应用私有目录下的内存映射文件，
+     * 进程重启或 stop/start 后从上次的高水位继续增量扫描，已回调过的截图不会重复回调。
+     * 补扫的行仍受时效判断约束：间隔期间加入、但距今已超过 MAX_COST_TIME（10 秒）的截图会被拒绝，不会回调。
+     */
+    public static void setCheckpointEnabled(boolean enabled) {
+        useCheckpoint = enabled;
+    }
+
+    /**
+     * 设置 legacy 策略的内容去重（默认关闭）。
+     * <p>
+     * 开启后，通过判定的截图先在后台线程以大采样率解码（不超过 4096 像素）并计算 64 位感知哈希，
+     * 与时间窗口内已回调的截图汉明距离不超过 maxDistance 的副本（相册、云同步工具复制、改名或重新插入）不再回调。
+     * 回调因此会晚几十毫秒；解码失败或图片细节太少（如纯色）时照常回调。
+     * 注意：窗口内对同一画面连续截屏也会被视为重复。重新设置或关闭时，已在排队检查的截图仍会检查完并照常回调。
+     *
+     * @param windowMs    相似截图视为重复的时间窗口（毫秒）
+     * @param maxDistance 视为同一张截图的最大汉明距离（0~64，建议 4~8）
+     */
+    public static synchronized void setContentDedup(boolean enabled, long windowMs, int maxDistance) {
+        ContentHashDeduper previous = contentDeduper;
+        contentDeduper = enabled
+                ? new ContentHashDeduper(CONTENT_HASH_MAX_PIXELS, Math.max(0, windowMs), maxDistance) : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * 自适应就绪模式学习到的典型就绪延迟（毫秒）
+     */
+    public static long getTypicalReadyDelayMs() {
+        return readinessPolicy.initialDelayMs();
+    }
+
+    /**
+     * 被合并的 onChange 数量（自上次 resetMetrics 起累计）
+     */
+    public static long getCollapsedChangeCount() {
+        return metrics.changesCollapsed.get();
+    }
+
+    /**
+     * 收到的 onChange 总数（自上次 resetMetrics 起累计）
+     */
+    public static long getReceivedChangeCount() {
+        return metrics.changesReceived.get();
+    }
+
+    /**
+     * 运行指标快照（JSON）：onChange/查询/判定/回调计数、按规则统计的拒绝次数，
+     * 以及查询耗时、判定耗时、DATE_ADDED 到回调的延迟直方图（单位微秒）
+     */
+    public static String getMetricsSnapshot() {
+        return metrics.toJson();
+    }
+
+    /**
+     * 清零运行指标
+     */
+    public static void resetMetrics() {
+        metrics.reset();
+    }
+
+    /**
+     * 开始记录 legacy 策略的检测轨迹：收到的 onChange URI 与处理时读取到的媒体库行（含时间），
+     * 导出后可在 JVM 上重放以复现现场问题（见 Tests/Android~）。重复调用会丢弃之前的记录重新开始。
+     *
+     * @param maxEvents 最多记录的事件数，超过后不再追加
+     */
+    public static void startTraceRecording(int maxEvents) {
+        EnvironmentSnapshot env = environmentSnapshot;
+        traceRecorder.set(new DetectionTraceRecorder(System.currentTimeMillis(), SystemClock.uptimeMillis(),
+                (env != null) ? env.screenWidth : -1, (env != null) ? env.screenHeight : -1, maxEvents));
+    }
+
+    /**
+     * 停止记录并返回轨迹文本，未在记录时返回 null
+     */
+    public static String stopTraceRecording() {
+        DetectionTraceRecorder recorder = traceRecorder.getAndSet(null);
+        return (recorder != null) ? recorder.export() : null;
+    }
+
+    /**
+     * 导出最近的检测决策（JSON 数组，从旧到新）：每条包含 _ID、时间、结果（accepted/rejected/not_ready/not_found）、
+     * 拒绝的规则、测得的延迟与检测策略。记录器常驻开启，最多保留最近 256 条。
+     *
+     * @param maxEntries 最多导出的条数
+     */
+    public static String dumpRecentDecisions(int maxEntries) {
+        return flightRecorder.dump(maxEntries);
+    }
+
+    /**
+     * 设置 legacy 策略在具体 URI 查询失败时是否使用 _ID 增量扫描（默认 true）。
+     * false 时回退为只查询最新的 1 条记录。
+     */
+    public static void setIncrementalScanEnabled(boolean enabled) {
+        useIncrementalScan.set(enabled);
+    }
+
+    /**
+     * 追加截图路径关键字（大小写不敏感），例如厂商自定义目录名或 "截屏"、"截图" 等本地化名称。
+     * 可在任意时刻调用，立即对之后的判定生效。
+     */
+    public static synchronized void addScreenshotKeywords(String[] keywords) {
+        pathRule.setMatcher(pathRule.getMatcher().withKeywords(keywords));
+    }
+
+    /**
+     * 追加自定义截图判定规则。规则按开销与内置规则一起排序执行，所需列会自动加入查询投影。
+     * 仅对 legacy 策略生效，可在任意时刻调用。
+     */
+    public static synchronized void addScreenshotRule(ScreenshotRule rule) {
+        ruleEngine.set(ruleEngine.get().withRule(rule));
+    }
+
+    /**
+     * 最近一次被拒绝的候选记录对应的规则名称（无则为 null），用于排查"截屏未检测到"
+     */
+    public static String getLastRejectReason() {
+        ListenerSession s = session.get();
+        return (s != null && s.pipeline != null) ? s.pipeline.lastRejectReason() : null;
+    }
+
+    /**
+     * 添加 Unity 订阅者：除 startListening 指定的目标外，再向该 GameObject 回传截屏事件。
+     * 订阅不会开始监听，也不会创建新的底层监听；监听仍由 startListening / stopListening 控制。
+     *
+     * @param goName     Unity 接收消息的 GameObject 名字
+     * @param methodName Unity 接收消息的方法名
+     * @param sourceMask 接收的事件来源（{@link ScreenshotListener} 的 SOURCE_* 按位或），0 表示全部
+     * @return 订阅 id（用于 {@link #unsubscribe(int)}），参数无效时返回 0
+     */
+    public static int subscribe(String goName, String methodName, int sourceMask) {
+        if (goName == null || methodName == null) return 0;
+        return subscribers.add(new UnitySubscriber(goName, methodName), sourceMask);
+    }
+
+    /**
+     * 添加 Java 订阅者。回调在产生事件的线程执行，见 {@link ScreenshotListener}。
+     *
+     * @param sourceMask 接收的事件来源（{@link ScreenshotListener} 的 SOURCE_* 按位或），0 表示全部
+     * @return 订阅 id（用于 {@link #unsubscribe(int)}），listener 为 null 时返回 0
+     */
+    public static int addListener(ScreenshotListener listener, int sourceMask) {
+        return subscribers.add(listener, sourceMask);
+    }
+
+    /**
+     * 取消订阅
+     *
+     * @return true：找到并移除了该订阅
+     */
+    public static boolean unsubscribe(int subscriptionId) {
+        return subscribers.remove(subscriptionId);
+    }
+
+    /**
+     * 设置结构化事件的直接回调通道（替换之前设置的通道），见 {@link ScreenshotEventListener}
+     */
+    public static void setEventListener(ScreenshotEventListener listener) {
+        eventListener = listener;
+    }
+
+    /**
+     * 关闭直接回调通道
+     */
+    public static void clearEventListener() {
+        eventListener = null;
+    }
+
+    /**
+     * 当前附加订阅者数量（不含 startListening 指定的目标）
+     */
+    public static int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 开启批量投递：截屏事件先写入有界无锁环形队列，再合并为一条消息回传 Unity。
+     * <p>
+     * - flushIntervalMs > 0 且 methodName 非空：每个间隔最多向 Unity 发送一次批量消息（推送模式）
+     * - 否则：由 Unity 每帧调用 {@link #pollEventBatch()} 拉取（拉取模式）
+     * <p>
+     * 批量消息格式：{"events":["path1","path2"],"dropped":N}，dropped 为累计丢弃数量。
+     *
+     * @param capacity        队列容量（向上取整为 2 的幂）
+     * @param overflowPolicy  0：丢弃最早的事件；1：丢弃新事件
+     * @param flushIntervalMs 推送间隔（毫秒），0 表示拉取模式
+     * @param methodName      推送模式下 Unity 接收批量消息的方法名（GameObject 与 startListening 相同）
+     */
+    public static synchronized void enableBatchDelivery(int capacity, int overflowPolicy, long flushIntervalMs, String methodName) {
+        ScreenshotEventRing ring = new ScreenshotEventRing(capacity, overflowPolicy);
+        batchDrainBuffer = new String[ring.capacity()];
+        batchDrainTimes = new long[ring.capacity()];
+        batchMethodName = methodName;
+        batchFlushIntervalMs = Math.max(0, flushIntervalMs);
+        eventRing = ring;
+    }
+
+    /**
+     * 关闭批量投递，恢复逐条回调；队列中尚未取走的事件会被丢弃
+     */
+    public static synchronized void disableBatchDelivery() {
+        eventRing = null;
+        batchMethodName = null;
+        mainHandler.removeCallbacks(batchFlushTask);
+        batchFlushScheduled.set(false);
+    }
+
+    /**
+     * 取出队列中的全部事件并格式化为一条批量消息
+     *
+     * @return 批量消息 JSON；未开启批量投递或没有新事件时返回 null
+     */
+    public static synchronized String pollEventBatch() {
+        ScreenshotEventRing ring = eventRing;
+        if (ring == null || ring.isEmpty()) return null;
+        int count = ring.drainTo(batchDrainBuffer, batchDrainTimes);
+        if (count == 0) return null;
+        String payload = ScreenshotEventFormatter.formatBatch(batchPayloadBuilder, batchDrainBuffer, count,
+                ring.getDroppedCount());
+        for (int i = 0; i < count; i++) {
+            batchDrainBuffer[i] = null;
+            // 批量投递：事件随批次交给 Unity 时才算投递
+            recordDeliveryLatency(batchDrainTimes[i]);
+        }
+        return payload;
+    }
+
     /**
      * 检查是否有媒体权限
      */
@@ -132,68 +634,107 @@ public class ScreenshotLifecycleObserver {
     }
 
     /**
-     * 停止监听
+     * 停止监听：摘下当前会话并清理；旧会话尚未执行的延迟任务会被丢弃
      */
     public static void stopListening() {
-        isListening = false;
-        Activity currentActivity = UnityPlayer.currentActivity;
+        stopRequests.incrementAndGet();
+        ListenerSession s = session.getAndSet(null);
+        if (s != null) {
+            releaseSession(s);
+        }
+    }
 
-        // 为了同时兼容 Android 14+ 新策略 / Android 14+ 强制 legacy / Android < 14 legacy，
-        // 这里统一做一次“尽力清理”，避免策略切换后残留监听
-        if (currentActivity != null) {
-            // Android 14+ 新策略清理
-            if (lifecycleCallbacks != null) {
-                try {
-                    currentActivity.getApplication().unregisterActivityLifecycleCallbacks(lifecycleCallbacks);
-                } catch (Exception ignored) {
-                }
-                lifecycleCallbacks = null;
+    /**
+     * 释放会话持有的监听与线程（可重复调用）
+     */
+    private static void releaseSession(ListenerSession s) {
+        // Android 14+ 新策略清理：注销会话注册过的所有仍存活的 Activity
+        if (s.lifecycleCallbacks != null) {
+            try {
+                s.application.unregisterActivityLifecycleCallbacks(s.lifecycleCallbacks);
+            } catch (Exception ignored) {
+            }
+            for (Activity activity : s.captureRegistrations.drain()) {
+                unregisterCallbackForActivity(activity);
             }
-            unregisterCallbackForActivity(currentActivity);
+        }
 
-            // legacy 策略清理
-            if (contentObserver != null) {
-                try {
-                    currentActivity.getContentResolver().unregisterContentObserver(contentObserver);
-                } catch (Exception ignored) {
-                }
-                contentObserver = null;
+        // legacy 策略清理
+        if (s.volumeReceiver != null) {
+            try {
+                s.context.unregisterReceiver(s.volumeReceiver);
+            } catch (Exception ignored) {
             }
-        } else {
-            lifecycleCallbacks = null;
-            contentObserver = null;
         }
+        if (s.contentObserver != null) {
+            unregisterContentObserver(s);
+        }
+        if (s.pipeline != null) {
+            s.pipeline.release();
+        }
+        if (s.handler != null) {
+            s.handler.removeCallbacksAndMessages(null);
+            if (s.pipeline != null) {
+                // 卷的监听注册与检查点只在处理线程进行：在工作线程退出前再注销一次并关闭检查点
+                s.handler.post(() -> {
+                    unregisterContentObserver(s);
+                    s.pipeline.closeCheckpoints();
+                });
+            }
+        }
+        if (s.workerThread != null) {
+            s.workerThread.quitSafely();
+        }
+    }
 
-        startListenTime = 0;
-        screenRealSize = null;
-        synchronized (processedPaths) {
-            processedPaths.clear();
+    private static void unregisterContentObserver(ListenerSession s) {
+        try {
+            s.context.getContentResolver().unregisterContentObserver(s.contentObserver);
+        } catch (Exception ignored) {
         }
     }
 
+    /**
+     * 若 generation 对应的会话仍是当前会话则返回它，否则返回 null（旧会话的任务应直接丢弃）
+     */
+    private static ListenerSession currentSession(long generation) {
+        ListenerSession s = session.get();
+        return (s != null && s.generation == generation) ? s : null;
+    }
+
     // ==========================================
     // 策略 A: Android 14+ (API 34) 官方 API + 生命周期注入
     // ==========================================
 
-    private static void startAndroid14Strategy(Application app) {
-        if (lifecycleCallbacks != null) return;
-
+    private static ListenerSession createAndroid14Session(long generation, String goName, String methodName,
+                                                          Application app) {
         // 定义截图回调逻辑
         if (screenCaptureCallback == null) {
             // Android 14+ 仅能监听到截屏事件，无法获取文件路径；按约定向 Unity 回传标记字符串
-            screenCaptureCallback = () -> notifyUnity(SCREENSHOT_DETECTED);
+            screenCaptureCallback = () -> {
+                ListenerSession current = session.get();
+                if (current == null || current.strategy != ListenerSession.STRATEGY_ANDROID14) return;
+                metrics.screenCaptureCallbacks.incrementAndGet();
+                flightRecorder.record(-1, System.currentTimeMillis(), DetectionFlightRecorder.OUTCOME_ACCEPTED,
+                        null, -1, ScreenshotListener.SOURCE_SCREEN_CAPTURE);
+                notifyUnity(current, SCREENSHOT_DETECTED, ScreenshotListener.SOURCE_SCREEN_CAPTURE, null);
+            };
         }
 
-        // 定义生命周期回调
-        lifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+        // 定义生命周期回调：每个 Activity 实例只注册一次（首次 resume 时），销毁时注销；
+        // 不再在每次 pause/resume 时注销、重新注册（广告、支付弹窗、权限弹窗都会触发），省去两次 binder 调用
+        final WeakRegistrationTracker<Activity> registrations = new WeakRegistrationTracker<>();
+        Application.ActivityLifecycleCallbacks lifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
             @Override
             public void onActivityResumed(Activity activity) {
-                registerCallbackForActivity(activity);
+                registerCallbackForActivity(registrations, activity);
             }
 
             @Override
-            public void onActivityPaused(Activity activity) {
-                unregisterCallbackForActivity(activity);
+            public void onActivityDestroyed(Activity activity) {
+                if (registrations.untrack(activity)) {
+                    unregisterCallbackForActivity(activity);
+                }
             }
 
             // 其他生命周期无需处理
@@ -203,36 +744,42 @@ public class ScreenshotLifecycleObserver {
             public void onActivityStarted(Activity a) {
             }
 
-            public void onActivityStopped(Activity a) {
+            public void onActivityPaused(Activity a) {
             }
 
-            public void onActivitySaveInstanceState(Activity a, Bundle b) {
+            public void onActivityStopped(Activity a) {
             }
 
-            public void onActivityDestroyed(Activity a) {
+            public void onActivitySaveInstanceState(Activity a, Bundle b) {
             }
         };
 
-        app.registerActivityLifecycleCallbacks(lifecycleCallbacks);
+        return ListenerSession.android14(generation, goName, methodName, app, lifecycleCallbacks, registrations);
     }
 
-    private static void registerCallbackForActivity(Activity activity) {
+    private static void startAndroid14Strategy(ListenerSession s, Activity currentActivity) {
+        captureRegistrations = s.captureRegistrations;
+        s.application.registerActivityLifecycleCallbacks(s.lifecycleCallbacks);
+        registerCallbackForActivity(s.captureRegistrations, currentActivity);
+    }
+
+    /**
+     * 为 Activity 注册 ScreenCaptureCallback；已注册过的实例直接跳过
+     */
+    private static void registerCallbackForActivity(WeakRegistrationTracker<Activity> registrations, Activity activity) {
         if (Build.VERSION.SDK_INT >= 34 && activity != null && !activity.isFinishing()
-                && screenCaptureCallback != null) {
+                && screenCaptureCallback != null && registrations.track(activity)) {
             try {
                 activity.registerScreenCaptureCallback(activity.getMainExecutor(), screenCaptureCallback);
             } catch (SecurityException se) {
+                registrations.untrack(activity);
                 // 权限问题：静默退出，不执行任何逻辑（不降级、不报错日志）
-                try {
-                    unregisterCallbackForActivity(activity);
-                    if (lifecycleCallbacks != null) {
-                        activity.getApplication().unregisterActivityLifecycleCallbacks(lifecycleCallbacks);
-                        lifecycleCallbacks = null;
-                    }
-                } catch (Exception ignored) {
+                ListenerSession s = session.get();
+                if (s != null && s.strategy == ListenerSession.STRATEGY_ANDROID14 && session.compareAndSet(s, null)) {
+                    releaseSession(s);
                 }
-                isListening = false;
             } catch (Exception e) {
+                registrations.untrack(activity);
                 Log.e(TAG, "Failed to register callback for " + activity.getClass().getSimpleName(), e);
             }
         }
@@ -252,238 +799,177 @@ public class ScreenshotLifecycleObserver {
     // 策略 B: Android < 14 旧版 ContentObserver
     // ==========================================
 
-    private static void startLegacyStrategy(Context context) {
-        if (contentObserver == null) {
-            // 记录开始监听的时间（秒）
-            startListenTime = System.currentTimeMillis() / 1000;
+    private static ListenerSession createLegacySession(long generation, String goName, String methodName,
+                                                       Context context, EnvironmentSnapshot env) {
+        // 工作线程模式下 onChange、查询与判定均在该线程执行
+        HandlerThread workerThread = null;
+        Handler handler;
+        if (useWorkerThread) {
+            workerThread = new HandlerThread("ScreenshotObserver-Worker", Process.THREAD_PRIORITY_BACKGROUND);
+            workerThread.start();
+            handler = new Handler(workerThread.getLooper());
+        } else {
+            handler = new Handler(Looper.getMainLooper());
+        }
 
-            // 获取屏幕尺寸
-            if (screenRealSize == null) {
-                screenRealSize = getRealScreenSize(context);
+        // 会话参数：开始监听的时间（秒）与屏幕尺寸（来自环境快照）
+        LegacyDetectionPipeline.Config config = new LegacyDetectionPipeline.Config();
+        config.startListenTimeMs = System.currentTimeMillis() / 1000 * 1000;
+        config.screenWidth = env.screenWidth;
+        config.screenHeight = env.screenHeight;
+        config.screenSizeRule = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        config.adaptiveReadiness = useAdaptiveReadiness && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        config.coalesceWindowMs = coalesceWindowMs;
+        config.coalesceMaxLatencyMs = coalesceMaxLatencyMs;
+        config.stormThreshold = stormThreshold;
+        config.stormScanIntervalMs = stormScanIntervalMs;
+
+        MediaStoreSource mediaSource = new MediaStoreSource(context.getApplicationContext(), useCheckpoint);
+        LegacyDetectionPipeline pipeline = new LegacyDetectionPipeline(config, pipelineShared,
+                new HandlerScheduler(handler), mediaSource, new LegacyDelivery(generation));
+
+        ContentObserver contentObserver = new ContentObserver(handler) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                super.onChange(selfChange, uri);
+                ListenerSession current = currentSession(generation);
+                if (current != null) {
+                    current.pipeline.onChange(uri);
+                }
             }
+        };
 
-            final Context finalContext = context;
-            final Handler handler = new Handler(Looper.getMainLooper());
-            contentObserver = new ContentObserver(handler) {
+        // Android 10+：存储卷（SD 卡等）挂载、卸载时重新同步处理的卷
+        BroadcastReceiver volumeReceiver = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            volumeReceiver = new BroadcastReceiver() {
                 @Override
-                public void onChange(boolean selfChange, Uri uri) {
-                    super.onChange(selfChange, uri);
-                    // 延迟处理，因为文件可能还在写入中
-                    handler.postDelayed(() -> handleMediaContentChange(uri, finalContext), 300);
+                public void onReceive(Context c, Intent intent) {
+                    ListenerSession current = currentSession(generation);
+                    if (current == null) return;
+                    syncVolumes(current);
+                    // 媒体库可能在广播之后才完成卷的挂接，稍后再同步一次
+                    current.handler.postDelayed(() -> {
+                        ListenerSession latest = currentSession(generation);
+                        if (latest != null) {
+                            syncVolumes(latest);
+                        }
+                    }, VOLUME_RESYNC_DELAY_MS);
                 }
             };
-
-            try {
-                context.getContentResolver().registerContentObserver(
-                        MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                        Build.VERSION.SDK_INT > Build.VERSION_CODES.P,
-                        contentObserver);
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to register ContentObserver", e);
-            }
         }
-    }
-
-    /**
-     * 处理媒体内容变化
-     */
-    private static void handleMediaContentChange(Uri contentUri, Context context) {
-        if (context == null) return;
-
-        // 确保屏幕尺寸已获取
-        if (screenRealSize == null) {
-            screenRealSize = getRealScreenSize(context);
-        }
-
-        Cursor cursor = null;
-        try {
-            // 先尝试直接查询收到的具体 URI
-            cursor = querySpecificUri(contentUri, context);
-
-            // 如果查询失败或为空，尝试查询整个 MediaStore 并获取最新文件
-            if (cursor == null || !cursor.moveToFirst()) {
-                if (cursor != null) {
-                    cursor.close();
-                    cursor = null;
-                }
-                cursor = getContentResolverCursor(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, context, 1);
-                if (cursor == null || !cursor.moveToFirst()) {
-                    return;
-                }
-            }
-
-            // 获取列索引
-            int dataIndex = cursor.getColumnIndex(Images.Media.DATA);
-            int dateAddedIndex = cursor.getColumnIndex(Images.Media.DATE_ADDED);
-
-            // 获取文件路径
-            String filePath = null;
-            if (dataIndex >= 0) {
-                filePath = cursor.getString(dataIndex);
-            }
-
-            // 路径维度判断
-            if (!isFilePathLegal(filePath)) {
-                return;
-            }
 
-            // 检查是否已处理过
-            synchronized (processedPaths) {
-                if (processedPaths.contains(filePath)) {
-                    return;
-                }
-            }
-
-            // 时间维度判断
-            Long dateAdded = null;
-            if (dateAddedIndex >= 0) {
-                dateAdded = cursor.getLong(dateAddedIndex) * 1000; // 转换为毫秒
-            }
-            if (!isFileCreationTimeLegal(dateAdded, startListenTime)) {
-                return;
-            }
-
-            // 尺寸维度判断（仅在 Android 10+ 可用）
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                int widthIndex = cursor.getColumnIndex(Images.Media.WIDTH);
-                int heightIndex = cursor.getColumnIndex(Images.Media.HEIGHT);
-
-                Integer width = null;
-                Integer height = null;
-                if (widthIndex >= 0) {
-                    width = cursor.getInt(widthIndex);
-                }
-                if (heightIndex >= 0) {
-                    height = cursor.getInt(heightIndex);
-                }
-                if (!isFileSizeLegal(width, height)) {
-                    return;
-                }
-            }
+        return ListenerSession.legacy(generation, goName, methodName, context.getApplicationContext(),
+                workerThread, handler, contentObserver, volumeReceiver, mediaSource, pipeline);
+    }
 
-            // 路径判断通过，处理截图
-            synchronized (processedPaths) {
-                processedPaths.add(filePath);
+    private static void startLegacyStrategy(ListenerSession s) {
+        s.handler.post(() -> {
+            if (currentSession(s.generation) != null) {
+                initSession(s);
             }
-            notifyUnity(filePath);
+        });
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error handling media content change", e);
-        } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
+        if (s.volumeReceiver != null) {
+            try {
+                IntentFilter filter = new IntentFilter();
+                filter.addAction(Intent.ACTION_MEDIA_MOUNTED);
+                filter.addAction(Intent.ACTION_MEDIA_UNMOUNTED);
+                filter.addAction(Intent.ACTION_MEDIA_EJECT);
+                filter.addAction(Intent.ACTION_MEDIA_REMOVED);
+                filter.addAction(Intent.ACTION_MEDIA_BAD_REMOVAL);
+                filter.addDataScheme("file");
+                s.context.registerReceiver(s.volumeReceiver, filter, null, s.handler);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to register volume receiver", e);
             }
         }
     }
 
     /**
-     * 查询具体的 URI
+     * 会话在处理线程上的初始化：为每个外部存储卷注册监听并初始化高水位
      */
-    private static Cursor querySpecificUri(Uri uri, Context context) {
-        try {
-            String[] projection;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                projection = new String[]{
-                        Images.Media.DATA,
-                        Images.Media.DATE_ADDED,
-                        Images.Media.WIDTH,
-                        Images.Media.HEIGHT
-                };
-            } else {
-                projection = new String[]{
-                        Images.Media.DATA,
-                        Images.Media.DATE_ADDED
-                };
-            }
-            return context.getContentResolver().query(uri, projection, null, null, null);
-        } catch (Exception e) {
-            return null;
-        }
+    private static void initSession(ListenerSession s) {
+        syncVolumes(s);
     }
 
     /**
-     * 获取 ContentResolver 查询游标
+     * 按当前挂载的外部存储卷同步：新出现的卷注册监听并初始化高水位，已卸载的卷丢弃其状态
      */
-    private static Cursor getContentResolverCursor(Uri contentUri, Context context, int maxCount) {
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                // Android 10+ 使用 Bundle 查询
-                Bundle bundle = new Bundle();
-                bundle.putStringArray(ContentResolver.QUERY_ARG_SORT_COLUMNS,
-                        new String[]{Images.Media.DATE_MODIFIED});
-                bundle.putInt(ContentResolver.QUERY_ARG_SORT_DIRECTION,
-                        ContentResolver.QUERY_SORT_DIRECTION_DESCENDING);
-                bundle.putInt(ContentResolver.QUERY_ARG_LIMIT, maxCount);
-
-                String[] projection = {
-                        Images.Media.DATA,
-                        Images.Media.DATE_ADDED,
-                        Images.Media.WIDTH,
-                        Images.Media.HEIGHT
-                };
-
-                return context.getContentResolver().query(contentUri, projection, bundle, null);
-            } else {
-                // Android 9 及以下使用传统查询
-                String[] projection = {
-                        Images.Media.DATA,
-                        Images.Media.DATE_ADDED
-                };
-
-                String sortOrder = Images.Media.DATE_MODIFIED + " desc limit " + maxCount;
-                return context.getContentResolver().query(contentUri, projection, null, null, sortOrder);
+    private static void syncVolumes(ListenerSession s) {
+        LegacyDetectionPipeline pipeline = s.pipeline;
+        Set<String> names = getExternalVolumeNames(s.context);
+        for (int i = pipeline.volumeCount() - 1; i >= 0; i--) {
+            MediaVolumeState v = pipeline.volumeAt(i);
+            if (!names.contains(v.name)) {
+                Log.i(TAG, "Volume detached: " + v.name);
+                pipeline.removeVolume(v);
+            }
+        }
+        for (String name : names) {
+            if (pipeline.volume(name) == null) {
+                addVolume(s, name);
             }
-        } catch (Exception e) {
-            return null;
         }
     }
 
     /**
-     * 路径维度判断：检查路径是否包含截图关键字
+     * Android 10+ 返回每个外部存储卷（external_primary、SD 卡等）；更早的版本只有一个聚合的 external 卷
      */
-    private static boolean isFilePathLegal(String filePath) {
-        if (TextUtils.isEmpty(filePath)) {
-            return false;
-        }
-
-        // 过滤临时文件（.pending- 开头的文件）
-        if (filePath.contains("/.pending-")) {
-            return false;
-        }
-
-        String lowerPath = filePath.toLowerCase(Locale.getDefault());
-        for (String keyword : KEYWORDS) {
-            if (lowerPath.contains(keyword)) {
-                return true;
+    private static Set<String> getExternalVolumeNames(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            try {
+                Set<String> names = MediaStore.getExternalVolumeNames(context);
+                if (names != null && !names.isEmpty()) return names;
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to enumerate external volumes", e);
             }
+            return Collections.singleton(MediaStore.VOLUME_EXTERNAL_PRIMARY);
         }
-        return false;
+        return Collections.singleton(MediaStore.VOLUME_EXTERNAL);
     }
 
     /**
-     * 时间维度判断：文件创建时间晚于开始监听时间，且与当前时间相差小于10秒
+     * 开始处理一个卷：注册监听，打开检查点（已开启时），再由检测流程恢复或初始化该卷的高水位
      */
-    private static boolean isFileCreationTimeLegal(Long dateAdded, Long startListenTime) {
-        if (dateAdded == null || startListenTime == null) {
-            return false;
-        }
-        long startTimeMs = startListenTime * 1000;
-        if (dateAdded < startTimeMs) {
-            return false;
+    private static void addVolume(ListenerSession s, String name) {
+        MediaStoreSource source = s.mediaSource;
+        if (source.markObserved(name)) {
+            try {
+                s.context.getContentResolver().registerContentObserver(source.contentUri(name),
+                        Build.VERSION.SDK_INT > Build.VERSION_CODES.P, s.contentObserver);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to register ContentObserver for volume " + name, e);
+            }
         }
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - dateAdded) <= MAX_COST_TIME;
+        s.pipeline.addVolume(name, source.openCheckpoint(name));
     }
 
     /**
-     * 尺寸维度判断：图片尺寸与屏幕尺寸匹配
+     * 内容去重：在后台线程计算感知哈希，非重复时再回调 Unity；得出结果后计入检测流程的接受数或拒绝原因
+     *
+     * @return false：后台队列已满，调用方直接回调
      */
-    private static boolean isFileSizeLegal(Integer width, Integer height) {
-        if (screenRealSize == null || width == null || height == null) {
-            return false;
-        }
-        return (width <= screenRealSize.x && height <= screenRealSize.y) ||
-                (height <= screenRealSize.x && width <= screenRealSize.y);
+    private static boolean submitContentCheck(ListenerSession s, MediaVolumeState v, ScreenshotCandidate row,
+                                              ContentHashDeduper deduper) {
+        // 候选记录会被下一行复用，回调所需的字段先复制一份
+        final ScreenshotCandidate snapshot = new ScreenshotCandidate();
+        snapshot.id = row.id;
+        snapshot.setPath(row.path);
+        snapshot.dateAddedMs = row.dateAddedMs;
+        snapshot.width = row.width;
+        snapshot.height = row.height;
+        snapshot.observedAtMs = row.observedAtMs;
+        Uri itemUri = ContentUris.withAppendedId(s.mediaSource.contentUri(v.name), row.id);
+        return deduper.submit(s.context.getContentResolver(), itemUri, row.width, row.height, row.observedAtMs,
+                duplicate -> {
+                    if (duplicate) {
+                        s.pipeline.completeDeferred(snapshot, ScreenshotRules.RULE_CONTENT);
+                        return;
+                    }
+                    notifyUnity(s, snapshot.path, ScreenshotListener.SOURCE_MEDIA_STORE, snapshot);
+                    s.pipeline.completeDeferred(snapshot, null);
+                });
     }
 
     /**
@@ -551,13 +1037,180 @@ public class ScreenshotLifecycleObserver {
     }
 
     /**
-     * Unity 回调
+     * 事件投递：直接回调通道与附加订阅者在当前线程分发，startListening 指定的目标按批量或逐条方式回传 Unity
+     *
+     * @param row 通过判定的候选记录（legacy 策略），Android 14+ 回调为 null
+     */
+    private static void notifyUnity(ListenerSession s, String filePath, int source, ScreenshotCandidate row) {
+        if (filePath == null || session.get() != s) return;
+        long dateAddedMs = (row != null) ? row.dateAddedMs : ScreenshotCandidate.UNKNOWN;
+        ScreenshotEventListener direct = eventListener;
+        if (direct != null) {
+            deliverEvent(direct, filePath, source, row);
+        }
+        subscribers.dispatch(filePath, source);
+        ScreenshotEventRing ring = eventRing;
+        if (ring != null) {
+            // 批量投递：无锁入队，不切线程、不逐条打日志
+            metrics.notified.incrementAndGet();
+            ring.offer(filePath, dateAddedMs);
+            scheduleBatchFlush();
+            return;
+        }
+        if (s.unityGoName == null) {
+            // 只有直接回调通道（startListeningDirect）：上面已完成投递
+            recordDeliveryLatency(dateAddedMs);
+            return;
+        }
+        sendToUnity(s, filePath, dateAddedMs);
+    }
+
+    /**
+     * 直接回调通道：候选记录中已有的元数据随事件一起传递
      */
-    private static void notifyUnity(String filePath) {
+    private static void deliverEvent(ScreenshotEventListener listener, String filePath, int source,
+                                     ScreenshotCandidate row) {
+        long now = System.currentTimeMillis();
+        try {
+            if (row != null) {
+                long latencyMs = (row.dateAddedMs != ScreenshotCandidate.UNKNOWN) ? Math.max(0, now - row.dateAddedMs) : -1;
+                listener.onScreenshotEvent(row.id, filePath, row.width, row.height, row.dateAddedMs, source, latencyMs);
+            } else {
+                listener.onScreenshotEvent(ScreenshotCandidate.UNKNOWN, filePath, (int) ScreenshotCandidate.UNKNOWN,
+                        (int) ScreenshotCandidate.UNKNOWN, now, source, 0);
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Screenshot event listener failed", e);
+        }
+    }
+
+    /**
+     * Unity 回调（工作线程中调用时切回主线程发送）
+     */
+    private static void sendToUnity(ListenerSession s, String filePath, long dateAddedMs) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(() -> sendToUnity(s, filePath, dateAddedMs));
+            return;
+        }
         Log.d(TAG, "notifyUnity: " + filePath);
-        if (filePath == null) return;
-        if (unityGoName != null && unityMethodName != null) {
-            UnityPlayer.UnitySendMessage(unityGoName, unityMethodName, filePath);
+        if (session.get() != s) return;
+        if (s.unityGoName != null && s.unityMethodName != null) {
+            metrics.notified.incrementAndGet();
+            UnityPlayer.UnitySendMessage(s.unityGoName, s.unityMethodName, filePath);
+            recordDeliveryLatency(dateAddedMs);
+        }
+    }
+
+    /**
+     * 记录端到端延迟：文件 DATE_ADDED 到事件交给 Unity 的间隔；DATE_ADDED 未知时不记录
+     */
+    private static void recordDeliveryLatency(long dateAddedMs) {
+        if (dateAddedMs == ScreenshotCandidate.UNKNOWN) return;
+        metrics.endToEndLatency.recordMicros((System.currentTimeMillis() - dateAddedMs) * 1000);
+    }
+
+    /**
+     * 推送模式下，确保一个间隔内最多安排一次批量发送
+     */
+    private static void scheduleBatchFlush() {
+        long interval = batchFlushIntervalMs;
+        if (interval <= 0 || batchMethodName == null) return;
+        if (batchFlushScheduled.compareAndSet(false, true)) {
+            mainHandler.postDelayed(batchFlushTask, interval);
+        }
+    }
+
+    /**
+     * 主线程：取出队列中的事件，合并为一条消息发送给 Unity
+     */
+    private static void flushEventBatch() {
+        batchFlushScheduled.set(false);
+        String payload = pollEventBatch();
+        String method = batchMethodName;
+        ListenerSession s = session.get();
+        if (payload == null || method == null || s == null || s.unityGoName == null) return;
+        UnityPlayer.UnitySendMessage(s.unityGoName, method, payload);
+    }
+
+    /**
+     * legacy 检测流程的调度器：会话处理线程的 Handler
+     */
+    private static final class HandlerScheduler implements LegacyDetectionPipeline.Scheduler {
+        private final Handler handler;
+
+        HandlerScheduler(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void postAtTime(Runnable task, long uptimeMs) {
+            handler.postAtTime(task, uptimeMs);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    }
+
+    /**
+     * legacy 检测流程的输出：通过判定的截图按会话投递（开启内容去重时先做内容检查），日志写入 logcat
+     */
+    private static final class LegacyDelivery implements LegacyDetectionPipeline.Callback {
+        private final long generation;
+
+        LegacyDelivery(long generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean onScreenshot(MediaVolumeState volume, ScreenshotCandidate row) {
+            ListenerSession s = currentSession(generation);
+            if (s == null) return true;
+            ContentHashDeduper deduper = contentDeduper;
+            if (deduper != null && row.id != ScreenshotCandidate.UNKNOWN && submitContentCheck(s, volume, row, deduper)) {
+                return false;
+            }
+            notifyUnity(s, row.path, ScreenshotListener.SOURCE_MEDIA_STORE, row);
+            return true;
+        }
+
+        @Override
+        public void onInfo(String message) {
+            Log.i(TAG, message);
+        }
+
+        @Override
+        public void onError(String message, Exception e) {
+            Log.e(TAG, message, e);
+        }
+    }
+
+    /**
+     * Unity 订阅者：UnitySendMessage 可在任意线程调用（消息由 Unity 排队到主线程），因此不切线程
+     */
+    private static final class UnitySubscriber implements ScreenshotListener {
+        private final String goName;
+        private final String methodName;
+
+        UnitySubscriber(String goName, String methodName) {
+            this.goName = goName;
+            this.methodName = methodName;
+        }
+
+        @Override
+        public void onScreenshot(String event, int source) {
+            UnityPlayer.UnitySendMessage(goName, methodName, event);
         }
     }
 }
@@ -1,5 +1,6 @@
 using System;
 using System.Runtime.InteropServices;
+using System.Threading;
 using UnityEngine;
 #if UNITY_ANDROID && !UNITY_EDITOR
 using UnityEngine.Android;
@@ -59,8 +60,9 @@ public class ScreenShotObserver
         }
 #elif UNITY_ANDROID
         try {
-            AndroidJavaClass screenshotLifecycleObserver = new AndroidJavaClass("com.unicorn.tools.ScreenshotLifecycleObserver");
-            screenshotLifecycleObserver.CallStatic("startListening", gameObjectName, methodName, useDetectScreenCapture);
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("startListening", gameObjectName, methodName, useDetectScreenCapture);
+            }
             Debug.Log($"[ScreenShotObserver] Android screenshot listening started - GameObject: {gameObjectName}, Method: {methodName}");
         }
         catch (Exception e) {
@@ -71,6 +73,58 @@ public class ScreenShotObserver
 #endif
     }
 
+    /// <summary>
+    /// 异步启动截屏行为监听：Android 上在后台线程准备权限与屏幕信息（结果会被缓存复用），
+    /// 再回到主线程注册监听，完成后向 gameObjectName 的 readyMethodName 发送启动结果（见 <see cref="ScreenshotStartResult"/>）。
+    /// 结果送达前调用 <see cref="StopListenScreenShot"/> 时不会开始监听，结果为 <see cref="ScreenshotStartResult.Stopped"/>。
+    /// 其他平台同步启动后立即回调 <see cref="ScreenshotStartResult.Started"/>。
+    /// </summary>
+    /// <param name="gameObjectName">接收截屏回调与启动结果的 GameObject 名称</param>
+    /// <param name="methodName">接收截屏回调的方法名称</param>
+    /// <param name="readyMethodName">接收启动结果的方法名称</param>
+    /// <param name="useDetectScreenCapture">同 <see cref="StartListenScreenShot"/></param>
+    public void StartListenScreenShotAsync(string gameObjectName, string methodName, string readyMethodName, bool useDetectScreenCapture = true) {
+        if (string.IsNullOrEmpty(gameObjectName) || string.IsNullOrEmpty(methodName)) {
+            Debug.LogError($"[ScreenShotObserver] StartListenScreenShotAsync failed - IsNullOrEmpty: gameObjectName = {gameObjectName}, methodName = {methodName}");
+            return;
+        }
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("startListeningAsync", gameObjectName, methodName, useDetectScreenCapture, readyMethodName);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] StartListenScreenShotAsync Android exception: {e.Message}");
+        }
+#else
+        StartListenScreenShot(gameObjectName, methodName, useDetectScreenCapture);
+        if (!string.IsNullOrEmpty(readyMethodName)) {
+            GameObject target = GameObject.Find(gameObjectName);
+            if (target != null) {
+                target.SendMessage(readyMethodName, ScreenshotStartResult.Started, SendMessageOptions.DontRequireReceiver);
+            }
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 在后台线程预热启动所需的权限与屏幕信息（仅 Android 有效），可在场景加载前调用，
+    /// 之后的 <see cref="StartListenScreenShot"/> / <see cref="StartListenScreenShotAsync"/> 直接复用
+    /// </summary>
+    public void WarmUpEnvironment() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("warmUpEnvironment");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] WarmUpEnvironment Android exception: {e.Message}");
+        }
+#endif
+    }
+
     /// <summary>
     /// 停止截屏行为监听
     /// </summary>
@@ -87,8 +141,9 @@ public class ScreenShotObserver
         }
 #elif UNITY_ANDROID
         try {
-            AndroidJavaClass screenshotLifecycleObserver = new AndroidJavaClass("com.unicorn.tools.ScreenshotLifecycleObserver");
-            screenshotLifecycleObserver.CallStatic("stopListening");
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("stopListening");
+            }
             Debug.Log("[ScreenShotObserver] Android screenshot listening stopped");
         }
         catch (Exception e) {
@@ -139,7 +194,544 @@ public class ScreenShotObserver
 #endif
     }
 
+    /// <summary>
+    /// 设置 legacy 策略是否在独立工作线程中执行媒体库查询与判定（仅 Android 有效，默认 true）。
+    /// 需在 <see cref="StartListenScreenShot"/> 之前调用，对之后的启动生效。
+    /// </summary>
+    public void SetWorkerThreadEnabled(bool enabled) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setWorkerThreadEnabled", enabled);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetWorkerThreadEnabled Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 设置 legacy 策略的 onChange 合并参数（仅 Android 有效）。
+    /// 同一 URI 在静默窗口内的多次通知只触发一次媒体库查询，且从首次通知起最多等待 maxLatencyMs。
+    /// 需在 <see cref="StartListenScreenShot"/> 之前调用，对之后的启动生效。
+    /// </summary>
+    /// <param name="windowMs">静默窗口（毫秒），默认 300</param>
+    /// <param name="maxLatencyMs">最大等待时长（毫秒），默认 1000</param>
+    public void SetCoalescingWindow(long windowMs, long maxLatencyMs) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setCoalescingWindow", windowMs, maxLatencyMs);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetCoalescingWindow Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 获取被合并的 onChange 通知数量（仅 Android legacy 策略有效，自上次 <see cref="ResetMetrics"/> 起累计），用于调优合并窗口。
+    /// </summary>
+    public long GetCollapsedChangeCount() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<long>("getCollapsedChangeCount");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] GetCollapsedChangeCount Android exception: {e.Message}");
+        }
+#endif
+        return 0;
+    }
+
+    /// <summary>
+    /// 设置 legacy 策略在具体 URI 查询失败时是否按 _ID 增量扫描新增记录（仅 Android 有效，默认 true）。
+    /// false 时回退为只查询最新的 1 条记录（连续截屏时可能漏检）。需在 <see cref="StartListenScreenShot"/> 之前调用。
+    /// </summary>
+    public void SetIncrementalScanEnabled(bool enabled) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setIncrementalScanEnabled", enabled);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetIncrementalScanEnabled Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 设置 legacy 策略是否使用自适应就绪等待（仅 Android 10+ 有效，默认 true）。
+    /// 开启时首次查询前的等待时长按设备学习，截图行仍在写入（IS_PENDING）时按指数退避重试，
+    /// 不再固定等待 300ms。需在 <see cref="StartListenScreenShot"/> 之前调用。
+    /// </summary>
+    public void SetAdaptiveReadinessEnabled(bool enabled) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setAdaptiveReadinessEnabled", enabled);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetAdaptiveReadinessEnabled Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 设置 legacy 策略的风暴保护（仅 Android 有效）。相册恢复、云同步等导致每秒 onChange 数达到
+    /// changesPerSecond 时，不再逐条查询，改为每 scanIntervalMs 查询一次最新的一批记录；频率回落后自动恢复。
+    /// changesPerSecond 为 0 时关闭。需在 <see cref="StartListenScreenShot"/> 之前调用。
+    /// </summary>
+    public void SetStormGuard(int changesPerSecond = 30, long scanIntervalMs = 1000) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setStormGuard", changesPerSecond, scanIntervalMs);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetStormGuard Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 设置 legacy 策略是否使用持久化检查点（仅 Android 有效，默认 false）。开启后扫描进度与最近的去重记录
+    /// 保存在应用私有目录的小文件中，进程重启或重新开始监听后从上次进度继续，已回调过的截图不会重复回调。
+    /// 补扫时仍按时效判断：停止监听期间产生、距今已超过 10 秒的截图不会回调。
+    /// 需在 <see cref="StartListenScreenShot"/> 之前调用。
+    /// </summary>
+    public void SetCheckpointEnabled(bool enabled) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setCheckpointEnabled", enabled);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetCheckpointEnabled Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 设置 legacy 策略的内容去重（仅 Android 有效，默认关闭）。开启后通过判定的截图先在后台以极小的尺寸解码并计算感知哈希，
+    /// 时间窗口内与已回调截图几乎相同的副本（相册、云同步工具复制、改名或重新插入）不再回调；回调会因此晚几十毫秒。
+    /// 注意：窗口内对同一画面连续截屏也会被视为重复。
+    /// </summary>
+    /// <param name="enabled">是否开启</param>
+    /// <param name="windowMs">相似截图视为重复的时间窗口（毫秒）</param>
+    /// <param name="maxDistance">视为同一张截图的最大哈希汉明距离（0~64，建议 4~8）</param>
+    public void SetContentDedup(bool enabled, long windowMs = 60000, int maxDistance = 6) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("setContentDedup", enabled, windowMs, maxDistance);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetContentDedup Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 自适应就绪模式学习到的典型就绪延迟（毫秒，仅 Android 有效，其他平台返回 0）
+    /// </summary>
+    public long GetTypicalReadyDelayMs() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<long>("getTypicalReadyDelayMs");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] GetTypicalReadyDelayMs Android exception: {e.Message}");
+        }
+#endif
+        return 0;
+    }
+
+    /// <summary>
+    /// 当前持有 ScreenCaptureCallback 注册的 Activity 数量（仅 Android 14+ 新策略有效，其他情况返回 0）。
+    /// 每个 Activity 实例只在首次 resume 时注册一次，销毁或停止监听时注销，停止监听后应为 0，可用于泄漏检查。
+    /// </summary>
+    public int GetCaptureRegistrationCount() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<int>("getCaptureRegistrationCount");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] GetCaptureRegistrationCount Android exception: {e.Message}");
+        }
+#endif
+        return 0;
+    }
+
+    /// <summary>
+    /// 最近一个 Android 14+ 会话的 ScreenCaptureCallback 注册计数（JSON，仅 Android 有效，其他平台返回 null）：
+    /// {"active":N,"registered":N,"unregistered":N,"collected":N}，collected 表示 Activity 未经注销就被回收
+    /// </summary>
+    public string GetCaptureRegistrationStatsJson() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<string>("getCaptureRegistrationStats");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] GetCaptureRegistrationStatsJson Android exception: {e.Message}");
+        }
+#endif
+        return null;
+    }
+
+    /// <summary>
+    /// legacy 策略当前处理中的外部存储卷名称（仅 Android 有效）。Android 10+ 每个卷（主存储、SD 卡等）
+    /// 单独监听与查询，卷挂载或卸载时自动增减；Android 9 及以下只有一个聚合的 external 卷。未监听时返回空数组。
+    /// </summary>
+    public string[] GetObservedVolumes() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<string[]>("getObservedVolumes") ?? new string[0];
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] GetObservedVolumes Android exception: {e.Message}");
+        }
+#endif
+        return new string[0];
+    }
+
+    /// <summary>
+    /// 追加 legacy 策略的截图路径关键字（仅 Android 有效，大小写不敏感）。
+    /// 适用于厂商自定义截图目录名，或 "截屏"、"截图" 等本地化名称，调用后立即生效。
+    /// </summary>
+    public void AddScreenshotKeywords(params string[] keywords) {
+        if (keywords == null || keywords.Length == 0) {
+            return;
+        }
 #if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("addScreenshotKeywords", (object)keywords);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] AddScreenshotKeywords Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 添加截屏事件订阅者（仅 Android 有效）：除 <see cref="StartListenScreenShot"/> 指定的目标外，
+    /// 再向 gameObjectName 的 methodName 回传截屏事件。多个订阅者共用同一个底层监听，
+    /// 订阅本身不会开始监听；订阅在停止监听后仍然保留，需调用 <see cref="Unsubscribe"/> 移除。
+    /// </summary>
+    /// <param name="gameObjectName">接收截屏回调的 GameObject 名称</param>
+    /// <param name="methodName">接收截屏回调的方法名称</param>
+    /// <param name="sources">接收的事件来源，例如只接收带路径的事件可传 <see cref="ScreenshotEventSource.MediaStore"/></param>
+    /// <returns>订阅 id，失败或非 Android 平台返回 0</returns>
+    public int Subscribe(string gameObjectName, string methodName, ScreenshotEventSource sources = ScreenshotEventSource.All) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<int>("subscribe", gameObjectName, methodName, (int)sources);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] Subscribe Android exception: {e.Message}");
+        }
+#endif
+        return 0;
+    }
+
+    /// <summary>
+    /// 移除 <see cref="Subscribe"/> 添加的订阅者（仅 Android 有效）
+    /// </summary>
+    /// <returns>true：找到并移除了该订阅</returns>
+    public bool Unsubscribe(int subscriptionId) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<bool>("unsubscribe", subscriptionId);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] Unsubscribe Android exception: {e.Message}");
+        }
+#endif
+        return false;
+    }
+
+    /// <summary>
+    /// 设置结构化截屏事件的直接回调通道（仅 Android 有效）：原生侧通过 AndroidJavaProxy 直接调用，
+    /// 不按名字查找 GameObject，事件携带 MediaStore _ID、路径、宽高、加入时间、检测来源与延迟，无需再次查询。
+    /// 与 <see cref="StartListenScreenShot"/> 指定的目标、<see cref="Subscribe"/> 的订阅者同时生效；传 null 关闭。
+    /// 需在 Unity 主线程调用。
+    /// </summary>
+    /// <param name="callback">事件回调，null 表示关闭直接回调通道</param>
+    /// <param name="invokeOnMainThread">
+    /// true：切回 Unity 主线程后回调（可直接使用 Unity API）；
+    /// false：在原生检测线程上立即回调（延迟最低，回调中不能使用 Unity API）
+    /// </param>
+    public void SetScreenshotEventCallback(Action<ScreenshotEvent> callback, bool invokeOnMainThread = true) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                if (callback == null) {
+                    observer.CallStatic("clearEventListener");
+                    _eventProxy = null;
+                    return;
+                }
+                var proxy = new ScreenshotEventProxy(callback, invokeOnMainThread ? SynchronizationContext.Current : null);
+                observer.CallStatic("setEventListener", proxy);
+                _eventProxy = proxy;
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] SetScreenshotEventCallback Android exception: {e.Message}");
+        }
+#else
+        if (callback != null) {
+            Debug.LogWarning("[ScreenShotObserver] SetScreenshotEventCallback is only supported on Android");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 只通过直接回调通道启动截屏监听（仅 Android 有效）：不需要接收消息的 GameObject，
+    /// 等同于先调用 <see cref="SetScreenshotEventCallback"/>，再以无 Unity 目标的方式启动监听。
+    /// 注意：必须先调用 <see cref="StopListenScreenShot"/> 停止监听后，才能再次启动监听。
+    /// </summary>
+    /// <param name="callback">事件回调</param>
+    /// <param name="useDetectScreenCapture">同 <see cref="StartListenScreenShot"/></param>
+    /// <param name="invokeOnMainThread">同 <see cref="SetScreenshotEventCallback"/></param>
+    public void StartListenScreenShotDirect(Action<ScreenshotEvent> callback, bool useDetectScreenCapture = true,
+                                            bool invokeOnMainThread = true) {
+        if (callback == null) {
+            Debug.LogError("[ScreenShotObserver] StartListenScreenShotDirect failed - callback is null");
+            return;
+        }
+#if UNITY_ANDROID && !UNITY_EDITOR
+        SetScreenshotEventCallback(callback, invokeOnMainThread);
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("startListeningDirect", useDetectScreenCapture);
+            }
+            Debug.Log("[ScreenShotObserver] Android screenshot listening started - direct callback");
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] StartListenScreenShotDirect Android exception: {e.Message}");
+        }
+#else
+        Debug.LogWarning("[ScreenShotObserver] StartListenScreenShotDirect is only supported on Android");
+#endif
+    }
+
+    /// <summary>
+    /// 开启批量投递（仅 Android 有效）：截屏事件先写入原生侧有界环形队列，再合并为一条消息回传，适用于连续截屏等突发场景。
+    /// - flushIntervalMs &gt; 0 且 batchMethodName 非空：推送模式，每个间隔最多向 StartListenScreenShot 指定的 GameObject
+    ///   的 batchMethodName 方法发送一次批量消息，可用 <see cref="ScreenshotEventBatch.FromJson"/> 解析
+    /// - 否则：拉取模式，需每帧（或按需）调用 <see cref="PollScreenshotBatch"/>
+    /// 开启后不再逐条回调 StartListenScreenShot 指定的方法。
+    /// </summary>
+    /// <param name="capacity">队列容量（向上取整为 2 的幂）</param>
+    /// <param name="overflowPolicy">队列已满时的处理方式</param>
+    /// <param name="flushIntervalMs">推送间隔（毫秒），0 表示拉取模式</param>
+    /// <param name="batchMethodName">推送模式下接收批量消息的方法名</param>
+    public void EnableBatchDelivery(int capacity = 64, BatchOverflowPolicy overflowPolicy = BatchOverflowPolicy.DropOldest,
+                                    long flushIntervalMs = 0, string batchMethodName = null) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("enableBatchDelivery", capacity, (int)overflowPolicy, flushIntervalMs, batchMethodName);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] EnableBatchDelivery Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 关闭批量投递，恢复逐条回调（仅 Android 有效）。队列中尚未取走的事件会被丢弃。
+    /// </summary>
+    public void DisableBatchDelivery() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("disableBatchDelivery");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] DisableBatchDelivery Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 拉取模式下取出原生侧队列中的全部截屏事件（仅 Android 有效）。
+    /// </summary>
+    /// <returns>没有新事件（或未开启批量投递）时返回 null</returns>
+    public ScreenshotEventBatch PollScreenshotBatch() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return ScreenshotEventBatch.FromJson(observer.CallStatic<string>("pollEventBatch"));
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] PollScreenshotBatch Android exception: {e.Message}");
+        }
+#endif
+        return null;
+    }
+
+    /// <summary>
+    /// 获取运行指标快照（仅 Android 有效），JSON 格式，可直接上报到遥测系统：
+    /// - 计数：changesReceived、changesCollapsed、queries、queryFailures、scansSkipped、candidates、accepted、notified、screenCaptureCallbacks
+    /// - rejects：按判定规则统计的拒绝次数（如 path、dedup、creation_time、size）
+    /// - queryLatency、classifyLatency、endToEndLatency：延迟直方图（count、sumUs、maxUs、p50Us、p90Us、p99Us，单位微秒）
+    /// </summary>
+    /// <returns>非 Android 平台或调用失败时返回 null</returns>
+    public string GetMetricsSnapshotJson() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<string>("getMetricsSnapshot");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] GetMetricsSnapshotJson Android exception: {e.Message}");
+        }
+#endif
+        return null;
+    }
+
+    /// <summary>
+    /// 清零运行指标（仅 Android 有效）
+    /// </summary>
+    public void ResetMetrics() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("resetMetrics");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] ResetMetrics Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 导出最近的检测决策（仅 Android 有效），用于排查"截屏未检测到"：JSON 数组，从旧到新，每条包含
+    /// seq、id（MediaStore _ID，未知为 -1）、timeMs、outcome（accepted/rejected/not_ready/not_found）、
+    /// rule（拒绝的规则名，如 path、dedup、creation_time、size）、delayMs 与 strategy（legacy/android14）。
+    /// 原生侧常驻记录最近 256 条，记录无锁且不分配。
+    /// </summary>
+    /// <param name="maxEntries">最多导出的条数</param>
+    /// <returns>非 Android 平台或调用失败时返回 null</returns>
+    public string DumpRecentDecisions(int maxEntries = 50) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<string>("dumpRecentDecisions", maxEntries);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] DumpRecentDecisions Android exception: {e.Message}");
+        }
+#endif
+        return null;
+    }
+
+    /// <summary>
+    /// 开始记录检测轨迹（仅 Android legacy 策略有效）：收到的 onChange URI 与读取到的媒体库行，
+    /// 用于在 JVM 上重放复现现场问题（见 Tests/Android~）。重复调用会丢弃之前的记录重新开始。
+    /// </summary>
+    /// <param name="maxEvents">最多记录的事件数，超过后不再追加</param>
+    public void StartTraceRecording(int maxEvents = 10000) {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                observer.CallStatic("startTraceRecording", maxEvents);
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] StartTraceRecording Android exception: {e.Message}");
+        }
+#endif
+    }
+
+    /// <summary>
+    /// 停止记录检测轨迹并返回轨迹文本
+    /// </summary>
+    /// <returns>未在记录、非 Android 平台或调用失败时返回 null</returns>
+    public string StopTraceRecording() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+        try {
+            using (var observer = new AndroidJavaClass(AndroidObserverClassName)) {
+                return observer.CallStatic<string>("stopTraceRecording");
+            }
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] StopTraceRecording Android exception: {e.Message}");
+        }
+#endif
+        return null;
+    }
+
+#if UNITY_ANDROID && !UNITY_EDITOR
+    private const string AndroidObserverClassName = "com.unicorn.tools.ScreenshotLifecycleObserver";
+
+    // 持有当前直接回调通道的代理，避免被回收
+    private ScreenshotEventProxy _eventProxy;
+
+    /// <summary>
+    /// com.unicorn.tools.ScreenshotEventListener 的 C# 实现：原生侧在检测线程上直接调用
+    /// </summary>
+    private sealed class ScreenshotEventProxy : AndroidJavaProxy
+    {
+        private readonly Action<ScreenshotEvent> _callback;
+        private readonly SynchronizationContext _mainThreadContext;
+
+        public ScreenshotEventProxy(Action<ScreenshotEvent> callback, SynchronizationContext mainThreadContext)
+            : base("com.unicorn.tools.ScreenshotEventListener") {
+            _callback = callback;
+            _mainThreadContext = mainThreadContext;
+        }
+
+        // 方法名与参数需与 Java 接口一致，AndroidJavaProxy 按名字反射调用
+        public void onScreenshotEvent(long id, string path, int width, int height, long dateAddedMs, int source, long latencyMs) {
+            var evt = new ScreenshotEvent(id, path, width, height, dateAddedMs, (ScreenshotEventSource)source, latencyMs);
+            if (_mainThreadContext != null) {
+                _mainThreadContext.Post(state => Deliver((ScreenshotEvent)state), evt);
+            } else {
+                Deliver(evt);
+            }
+        }
+
+        private void Deliver(ScreenshotEvent evt) {
+            try {
+                _callback(evt);
+            }
+            catch (Exception e) {
+                Debug.LogError($"[ScreenShotObserver] ScreenshotEvent callback exception: {e.Message}");
+            }
+        }
+    }
+
     private int GetAndroidSdkInt() {
         try {
             using (var version = new AndroidJavaClass("android.os.Build$VERSION")) {
@@ -0,0 +1,50 @@
+namespace Unicorn.Herman.ScreenShotObserver
+{
+/// <summary>
+/// 直接回调通道（<see cref="ScreenShotObserver.SetScreenshotEventCallback"/>）收到的结构化截屏事件
+/// </summary>
+public sealed class ScreenshotEvent
+{
+    /// <summary>Android 14+ 回调（无路径）时 <see cref="Path"/> 的取值</summary>
+    public const string ScreenshotDetected = "screenshot_detected";
+
+    /// <summary>MediaStore _ID，未知时为 -1</summary>
+    public long Id { get; }
+
+    /// <summary>截图路径；Android 14+ 回调为 <see cref="ScreenshotDetected"/></summary>
+    public string Path { get; }
+
+    /// <summary>图片宽度，未知时为 -1</summary>
+    public int Width { get; }
+
+    /// <summary>图片高度，未知时为 -1</summary>
+    public int Height { get; }
+
+    /// <summary>图片加入媒体库的时间（Unix 毫秒，未知时为 -1）；Android 14+ 回调为收到回调的时间</summary>
+    public long DateAddedMs { get; }
+
+    /// <summary>检测来源（检测策略）</summary>
+    public ScreenshotEventSource Source { get; }
+
+    /// <summary>从 <see cref="DateAddedMs"/> 到投递的间隔（毫秒，未知时为 -1）；Android 14+ 回调为 0</summary>
+    public long LatencyMs { get; }
+
+    /// <summary>是否带有截图路径（legacy 策略）</summary>
+    public bool HasPath => Source == ScreenshotEventSource.MediaStore && !string.IsNullOrEmpty(Path);
+
+    public ScreenshotEvent(long id, string path, int width, int height, long dateAddedMs,
+                           ScreenshotEventSource source, long latencyMs) {
+        Id = id;
+        Path = path;
+        Width = width;
+        Height = height;
+        DateAddedMs = dateAddedMs;
+        Source = source;
+        LatencyMs = latencyMs;
+    }
+
+    public override string ToString() {
+        return $"ScreenshotEvent(id={Id}, path={Path}, size={Width}x{Height}, dateAddedMs={DateAddedMs}, source={Source}, latencyMs={LatencyMs})";
+    }
+}
+}
@@ -0,0 +1,55 @@
+using System;
+using UnityEngine;
+
+namespace Unicorn.Herman.ScreenShotObserver
+{
+/// <summary>
+/// 批量投递的溢出策略（队列已满时的处理方式）
+/// </summary>
+public enum BatchOverflowPolicy
+{
+    /// <summary>丢弃最早的事件，保留最新事件</summary>
+    DropOldest = 0,
+
+    /// <summary>丢弃新到达的事件</summary>
+    DropNewest = 1,
+}
+
+/// <summary>
+/// 批量投递模式下一次收到的截屏事件集合
+/// 对应 Android 侧消息格式：{"events":["path1","path2"],"dropped":N}
+/// </summary>
+[Serializable]
+public class ScreenshotEventBatch
+{
+    /// <summary>
+    /// 截屏事件（截图路径，或 "screenshot_detected" 事件标记），按发生顺序排列
+    /// </summary>
+    public string[] events;
+
+    /// <summary>
+    /// 开启批量投递以来因队列溢出被丢弃的事件累计数量
+    /// </summary>
+    public long dropped;
+
+    /// <summary>
+    /// 解析批量消息，格式错误时返回 null
+    /// </summary>
+    public static ScreenshotEventBatch FromJson(string json) {
+        if (string.IsNullOrEmpty(json)) {
+            return null;
+        }
+        try {
+            var batch = JsonUtility.FromJson<ScreenshotEventBatch>(json);
+            if (batch != null && batch.events == null) {
+                batch.events = new string[0];
+            }
+            return batch;
+        }
+        catch (Exception e) {
+            Debug.LogError($"[ScreenShotObserver] ScreenshotEventBatch parse failed: {e.Message}");
+            return null;
+        }
+    }
+}
+}
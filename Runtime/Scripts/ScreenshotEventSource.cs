@@ -0,0 +1,20 @@
+using System;
+
+namespace Unicorn.Herman.ScreenShotObserver
+{
+/// <summary>
+/// 截屏事件来源，用于 <see cref="ScreenShotObserver.Subscribe"/> 过滤订阅者接收的事件（可按位组合）
+/// </summary>
+[Flags]
+public enum ScreenshotEventSource
+{
+    /// <summary>legacy 策略（MediaStore）检测到的截图，事件为文件路径</summary>
+    MediaStore = 1,
+
+    /// <summary>Android 14+ ScreenCaptureCallback，事件为 "screenshot_detected" 标记</summary>
+    ScreenCapture = 2,
+
+    /// <summary>全部来源</summary>
+    All = MediaStore | ScreenCapture,
+}
+}
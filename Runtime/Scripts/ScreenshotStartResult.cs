@@ -0,0 +1,23 @@
+namespace Unicorn.Herman.ScreenShotObserver
+{
+/// <summary>
+/// 异步启动监听（<see cref="ScreenShotObserver.StartListenScreenShotAsync"/>）回调给 Unity 的结果字符串
+/// </summary>
+public static class ScreenshotStartResult
+{
+    /// <summary>已开始监听</summary>
+    public const string Started = "started";
+
+    /// <summary>已在监听中，需先停止监听</summary>
+    public const string AlreadyListening = "already_listening";
+
+    /// <summary>所需权限未声明或未授予</summary>
+    public const string PermissionDenied = "permission_denied";
+
+    /// <summary>当前没有可用的 Activity</summary>
+    public const string NoActivity = "no_activity";
+
+    /// <summary>启动完成前调用了 <see cref="ScreenShotObserver.StopListenScreenShot"/>，监听未启动或已被释放</summary>
+    public const string Stopped = "stopped";
+}
+}
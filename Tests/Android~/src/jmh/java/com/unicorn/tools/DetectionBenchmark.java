@@ -0,0 +1,164 @@
+package com.unicorn.tools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * legacy 策略检测热路径基准：每次调用处理一个 burst（连续收到的候选记录数）。
+ * 使用 -prof gc 查看每次调用的分配量（gc.alloc.rate.norm）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DetectionBenchmark {
+    private static final String[] KEYWORDS = LegacyDetectionPipeline.KEYWORDS;
+
+    // 真实设备上常见的媒体库路径模板
+    private static final String[] PATH_TEMPLATES = {
+            "/storage/emulated/0/DCIM/Camera/IMG_20240101_1010%d.jpg",
+            "/storage/emulated/0/Pictures/Screenshots/Screenshot_20240101-1010%d.png",
+            "/storage/emulated/0/DCIM/Screenshots/Screenshot_20240101-101010_com.example.game%d.jpg",
+            "/storage/emulated/0/Android/media/com.whatsapp/WhatsApp/Media/WhatsApp Images/IMG-20240101-WA%d.jpg",
+            "/storage/emulated/0/Download/wallpaper_%d.png",
+            "/storage/emulated/0/Pictures/Instagram/IMG_%d.jpg",
+            "/storage/emulated/0/DCIM/截屏/截屏_%d.png",
+            "/storage/emulated/0/Pictures/.thumbnails/%d.jpg",
+            "/storage/emulated/0/Pictures/Screenshots/.pending-1704100000-Screenshot_%d.png",
+            "/storage/1234-ABCD/DCIM/Screen Capture/ScreenCapture_%d.jpg",
+    };
+
+    private static final int CORPUS_SIZE = 1024;
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Param({"1", "6", "64"})
+    public int burstSize;
+
+    private String[] paths;
+    private long[] datesAdded;
+    private int[] widths;
+    private int[] heights;
+
+    private ScreenshotPathMatcher matcher;
+    private ScreenshotDedupCache dedupCache;
+    private ScreenshotRuleEngine engine;
+    private final DetectionFlightRecorder flightRecorder = new DetectionFlightRecorder(256);
+    private final ScreenshotCandidate candidate = new ScreenshotCandidate();
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        paths = new String[CORPUS_SIZE];
+        datesAdded = new long[CORPUS_SIZE];
+        widths = new int[CORPUS_SIZE];
+        heights = new int[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            paths[i] = String.format(PATH_TEMPLATES[random.nextInt(PATH_TEMPLATES.length)], i);
+            datesAdded[i] = START_MS + random.nextInt(20_000) - 5_000;
+            boolean screenSized = random.nextInt(3) != 0;
+            widths[i] = screenSized ? 1080 : 4000;
+            heights[i] = screenSized ? 2400 : 3000;
+        }
+
+        matcher = ScreenshotPathMatcher.build(KEYWORDS);
+        dedupCache = new ScreenshotDedupCache(64, 10000);
+        for (int i = 0; i < 32; i++) {
+            dedupCache.add(ScreenshotDedupCache.hashPath(paths[i]), START_MS);
+        }
+        ScreenshotRules.CreationTimeRule timeRule = new ScreenshotRules.CreationTimeRule(10000);
+        timeRule.setStartListenTimeMs(START_MS);
+        ScreenshotRules.ScreenSizeRule sizeRule = new ScreenshotRules.ScreenSizeRule();
+        sizeRule.setScreenSize(1080, 2400);
+        engine = ScreenshotRuleEngine.of(
+                new ScreenshotRules.PathKeywordRule(matcher),
+                new ScreenshotRules.DedupRule(dedupCache),
+                timeRule,
+                sizeRule);
+    }
+
+    /**
+     * 完整判定：填充可复用候选记录 + 规则引擎
+     */
+    @Benchmark
+    public void classifyBurst(Blackhole bh) {
+        for (int i = 0; i < burstSize; i++) {
+            int row = next();
+            ScreenshotCandidate c = candidate;
+            c.reset();
+            c.id = row;
+            c.setPath(paths[row]);
+            c.dateAddedMs = datesAdded[row];
+            c.width = widths[row];
+            c.height = heights[row];
+            c.observedAtMs = START_MS + 1000;
+            bh.consume(engine.evaluate(c));
+        }
+    }
+
+    /**
+     * 完整判定并写入飞行记录器（与 classifyBurst 对比即为记录开销）
+     */
+    @Benchmark
+    public void classifyAndRecordBurst(Blackhole bh) {
+        for (int i = 0; i < burstSize; i++) {
+            int row = next();
+            ScreenshotCandidate c = candidate;
+            c.reset();
+            c.id = row;
+            c.setPath(paths[row]);
+            c.dateAddedMs = datesAdded[row];
+            c.width = widths[row];
+            c.height = heights[row];
+            c.observedAtMs = START_MS + 1000;
+            ScreenshotRule rejectedBy = engine.evaluate(c);
+            flightRecorder.record(c.id, c.observedAtMs,
+                    (rejectedBy == null) ? DetectionFlightRecorder.OUTCOME_ACCEPTED : DetectionFlightRecorder.OUTCOME_REJECTED,
+                    (rejectedBy != null) ? rejectedBy.name() : null, c.observedAtMs - c.dateAddedMs,
+                    ScreenshotListener.SOURCE_MEDIA_STORE);
+            bh.consume(rejectedBy);
+        }
+    }
+
+    /**
+     * 仅路径关键字匹配
+     */
+    @Benchmark
+    public void pathMatchBurst(Blackhole bh) {
+        for (int i = 0; i < burstSize; i++) {
+            bh.consume(matcher.matches(paths[next()]));
+        }
+    }
+
+    /**
+     * 仅去重缓存查询（含路径哈希计算）
+     */
+    @Benchmark
+    public void dedupLookupBurst(Blackhole bh) {
+        for (int i = 0; i < burstSize; i++) {
+            bh.consume(dedupCache.contains(ScreenshotDedupCache.hashPath(paths[next()]), START_MS + 1000));
+        }
+    }
+
+    private int next() {
+        int row = cursor;
+        cursor = (row + 1) & (CORPUS_SIZE - 1);
+        return row;
+    }
+}
@@ -0,0 +1,64 @@
+package com.unicorn.tools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容去重的哈希开销：按解码预算采样后的像素上计算 dHash，并在相似图片缓存中查找
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PerceptualHashBenchmark {
+    /**
+     * 解码后的图片尺寸：1080×2400 截图按 inSampleSize=32 / 16 解码
+     */
+    @Param({"34x75", "68x150"})
+    public String size;
+
+    private int[] pixels;
+    private int width;
+    private int height;
+    private final SimilarImageCache cache = new SimilarImageCache(16, 60_000, 6);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = size.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        Random random = new Random(42);
+        pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        for (int i = 0; i < 16; i++) {
+            cache.add(random.nextLong(), 0);
+        }
+    }
+
+    @Benchmark
+    public long dHash() {
+        return PerceptualHash.dHash(pixels, width, height);
+    }
+
+    @Benchmark
+    public boolean dHashAndLookup() {
+        return cache.containsSimilar(PerceptualHash.dHash(pixels, width, height), 1000);
+    }
+}
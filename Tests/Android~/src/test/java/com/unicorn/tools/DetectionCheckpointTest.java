@@ -0,0 +1,125 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionCheckpointTest {
+    private static final long NOW_MS = 1_700_000_000_000L;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void newFileStartsEmpty() throws IOException {
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(new File(dir, "cp"), 8, 42)) {
+            assertFalse(checkpoint.isRestored());
+            assertEquals(-1, checkpoint.lastId());
+            assertEquals(-1, checkpoint.generation());
+            assertEquals(0, checkpoint.savedAtMs());
+        }
+    }
+
+    @Test
+    void reopenRestoresWatermarkAndDedupKeys() throws IOException {
+        File file = new File(dir, "cp");
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 42)) {
+            checkpoint.saveWatermark(1234, 56, NOW_MS);
+            checkpoint.addDedupKey(111, NOW_MS + 1);
+            checkpoint.addDedupKey(222, NOW_MS + 2);
+        }
+
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 42)) {
+            assertTrue(checkpoint.isRestored());
+            assertEquals(1234, checkpoint.lastId());
+            assertEquals(56, checkpoint.generation());
+            assertEquals(NOW_MS + 2, checkpoint.savedAtMs());
+
+            ScreenshotDedupCache cache = new ScreenshotDedupCache(8, 10000);
+            assertEquals(2, checkpoint.restoreDedupKeys(cache));
+            assertTrue(cache.contains(111, NOW_MS + 100));
+            assertTrue(cache.contains(222, NOW_MS + 100));
+        }
+    }
+
+    @Test
+    void dedupRingKeepsNewestKeysInOrder() throws IOException {
+        File file = new File(dir, "cp");
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 4, 0)) {
+            for (int i = 1; i <= 6; i++) {
+                checkpoint.addDedupKey(i, NOW_MS + i);
+            }
+        }
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 4, 0)) {
+            ScreenshotDedupCache cache = new ScreenshotDedupCache(4, 10000);
+            assertEquals(4, checkpoint.restoreDedupKeys(cache));
+            assertFalse(cache.contains(2, NOW_MS + 10));
+            for (int i = 3; i <= 6; i++) {
+                assertTrue(cache.contains(i, NOW_MS + 10));
+            }
+        }
+    }
+
+    @Test
+    void mediaStoreVersionChangeDiscardsCheckpoint() throws IOException {
+        File file = new File(dir, "cp");
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 42)) {
+            checkpoint.saveWatermark(1234, 56, NOW_MS);
+            checkpoint.addDedupKey(111, NOW_MS);
+        }
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 43)) {
+            assertFalse(checkpoint.isRestored());
+            assertEquals(-1, checkpoint.lastId());
+            assertEquals(0, checkpoint.restoreDedupKeys(new ScreenshotDedupCache(8, 10000)));
+        }
+    }
+
+    @Test
+    void capacityChangeDiscardsCheckpoint() throws IOException {
+        File file = new File(dir, "cp");
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 0)) {
+            checkpoint.saveWatermark(1234, 56, NOW_MS);
+        }
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 16, 0)) {
+            assertFalse(checkpoint.isRestored());
+            assertEquals(-1, checkpoint.lastId());
+        }
+    }
+
+    @Test
+    void corruptedRingHeaderDiscardsCheckpoint() throws IOException {
+        File file = new File(dir, "cp");
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 0)) {
+            checkpoint.saveWatermark(1234, 56, NOW_MS);
+            checkpoint.addDedupKey(111, NOW_MS);
+        }
+        // 环写入位置（偏移 44）越界：不能按该位置读写，应整体重新初始化
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(44);
+            raf.writeInt(-5);
+        }
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 0)) {
+            assertFalse(checkpoint.isRestored());
+            assertEquals(-1, checkpoint.lastId());
+            assertEquals(0, checkpoint.restoreDedupKeys(new ScreenshotDedupCache(8, 10000)));
+            checkpoint.addDedupKey(222, NOW_MS);
+        }
+
+        // 环记录数（偏移 48）超过容量
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(48);
+            raf.writeInt(9);
+        }
+        try (DetectionCheckpoint checkpoint = DetectionCheckpoint.open(file, 8, 0)) {
+            assertFalse(checkpoint.isRestored());
+            assertEquals(0, checkpoint.restoreDedupKeys(new ScreenshotDedupCache(8, 10000)));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionFlightRecorderTest {
+    private static final long NOW_MS = 1_760_000_000_000L;
+    private static final Pattern ENTRY = Pattern.compile("\"id\":(-?\\d+),\"timeMs\":(-?\\d+)");
+
+    @Test
+    void emptyRecorderDumpsEmptyArray() {
+        assertEquals("[]", new DetectionFlightRecorder(8).dump(10));
+    }
+
+    @Test
+    void dumpsDecisionFields() {
+        DetectionFlightRecorder recorder = new DetectionFlightRecorder(8);
+        recorder.record(42, NOW_MS, DetectionFlightRecorder.OUTCOME_REJECTED,
+                ScreenshotRules.RULE_CREATION_TIME, 15_000, ScreenshotListener.SOURCE_MEDIA_STORE);
+        recorder.record(-1, NOW_MS + 1, DetectionFlightRecorder.OUTCOME_ACCEPTED,
+                null, -1, ScreenshotListener.SOURCE_SCREEN_CAPTURE);
+
+        assertEquals("[{\"seq\":0,\"id\":42,\"timeMs\":1760000000000,\"outcome\":\"rejected\",\"rule\":\"creation_time\","
+                        + "\"delayMs\":15000,\"strategy\":\"legacy\"},"
+                        + "{\"seq\":1,\"id\":-1,\"timeMs\":1760000000001,\"outcome\":\"accepted\",\"rule\":null,"
+                        + "\"delayMs\":-1,\"strategy\":\"android14\"}]",
+                recorder.dump(10));
+    }
+
+    @Test
+    void keepsOnlyMostRecentEntries() {
+        DetectionFlightRecorder recorder = new DetectionFlightRecorder(5); // 取整为 8
+        assertEquals(8, recorder.capacity());
+        for (int i = 0; i < 20; i++) {
+            recorder.record(i, NOW_MS + i, DetectionFlightRecorder.OUTCOME_NOT_FOUND, null, 0,
+                    ScreenshotListener.SOURCE_MEDIA_STORE);
+        }
+        assertEquals(20, recorder.recordedCount());
+        assertEquals(ids(12, 20), parseIds(recorder.dump(100)));
+        assertEquals(ids(17, 20), parseIds(recorder.dump(3)));
+    }
+
+    @Test
+    void customRuleNamesAreRecorded() {
+        DetectionFlightRecorder recorder = new DetectionFlightRecorder(8);
+        recorder.record(1, NOW_MS, DetectionFlightRecorder.OUTCOME_REJECTED, "mime_type", 0,
+                ScreenshotListener.SOURCE_MEDIA_STORE);
+        recorder.record(2, NOW_MS, DetectionFlightRecorder.OUTCOME_REJECTED, new String("mime_type"), 0,
+                ScreenshotListener.SOURCE_MEDIA_STORE);
+        String dump = recorder.dump(2);
+        assertEquals(2, dump.split("\"rule\":\"mime_type\"", -1).length - 1, dump);
+    }
+
+    @Test
+    void concurrentWritersNeverProduceTornEntries() throws InterruptedException {
+        DetectionFlightRecorder recorder = new DetectionFlightRecorder(64);
+        int threads = 4;
+        int perThread = 50_000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long base = (long) t * perThread;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // 同一条记录的 id 与时间保持固定关系，用于检测读到的字段是否来自同一次写入
+                    recorder.record(base + i, NOW_MS + base + i, DetectionFlightRecorder.OUTCOME_ACCEPTED, null, 0,
+                            ScreenshotListener.SOURCE_MEDIA_STORE);
+                }
+            }));
+        }
+        for (Thread writer : writers) writer.start();
+        int dumps = 0;
+        while (writers.get(0).isAlive() || dumps < 10) {
+            assertConsistent(recorder.dump(64));
+            dumps++;
+        }
+        for (Thread writer : writers) writer.join();
+
+        assertEquals((long) threads * perThread, recorder.recordedCount());
+        assertEquals(64, parseIds(recorder.dump(64)).size());
+        assertConsistent(recorder.dump(64));
+    }
+
+    private static void assertConsistent(String dump) {
+        Matcher m = ENTRY.matcher(dump);
+        while (m.find()) {
+            assertEquals(Long.parseLong(m.group(1)) + NOW_MS, Long.parseLong(m.group(2)), dump);
+        }
+        assertTrue(dump.startsWith("[") && dump.endsWith("]"));
+    }
+
+    private static List<Long> parseIds(String dump) {
+        List<Long> ids = new ArrayList<>();
+        Matcher m = ENTRY.matcher(dump);
+        while (m.find()) {
+            ids.add(Long.parseLong(m.group(1)));
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,179 @@
+package com.unicorn.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 解析后的检测轨迹（格式见 {@link DetectionTraceRecorder}）：onChange 通知、媒体库行的各个版本与期望结果。
+ */
+final class DetectionTrace {
+    static final class Change {
+        final long timeMs;
+        final String uri;
+
+        Change(long timeMs, String uri) {
+            this.timeMs = timeMs;
+            this.uri = uri;
+        }
+    }
+
+    /**
+     * 某一时刻媒体库中一行的内容；同一 id 的后续版本覆盖之前的版本
+     */
+    static final class Row {
+        final long timeMs;
+        long id = ScreenshotCandidate.UNKNOWN;
+        String path;
+        long dateAddedSec = ScreenshotCandidate.UNKNOWN;
+        int width = (int) ScreenshotCandidate.UNKNOWN;
+        int height = (int) ScreenshotCandidate.UNKNOWN;
+        long size = ScreenshotCandidate.UNKNOWN;
+        int pending = (int) ScreenshotCandidate.UNKNOWN;
+        String mime;
+
+        Row(long timeMs) {
+            this.timeMs = timeMs;
+        }
+    }
+
+    String name = "trace";
+    long startEpochMs;
+    int screenWidth = -1;
+    int screenHeight = -1;
+    boolean truncated;
+    final List<Change> changes = new ArrayList<>();
+    final List<Row> rows = new ArrayList<>();
+    final Set<String> expected = new LinkedHashSet<>();
+
+    static DetectionTrace parse(String text) throws IOException {
+        return parse(new StringReader(text));
+    }
+
+    static DetectionTrace load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            DetectionTrace trace = parse(reader);
+            trace.name = path.getFileName().toString();
+            return trace;
+        }
+    }
+
+    /**
+     * 从测试资源 traces/ 目录加载预置轨迹
+     */
+    static DetectionTrace resource(String fileName) throws IOException {
+        InputStream in = DetectionTrace.class.getResourceAsStream("/traces/" + fileName);
+        if (in == null) throw new IOException("Trace not found: " + fileName);
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            DetectionTrace trace = parse(reader);
+            trace.name = fileName;
+            return trace;
+        }
+    }
+
+    static DetectionTrace parse(Reader source) throws IOException {
+        DetectionTrace trace = new DetectionTrace();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        boolean headerSeen = false;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (line.startsWith("#")) {
+                if (line.equals(DetectionTraceRecorder.HEADER)) headerSeen = true;
+                if (line.equals(DetectionTraceRecorder.TRUNCATED)) trace.truncated = true;
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            try {
+                switch (fields[0]) {
+                    case "start":
+                        trace.startEpochMs = Long.parseLong(fields[1]);
+                        trace.screenWidth = Integer.parseInt(fields[2]);
+                        trace.screenHeight = Integer.parseInt(fields[3]);
+                        break;
+                    case "change":
+                        trace.changes.add(new Change(Long.parseLong(fields[1]),
+                                fields[2].equals("-") ? null : DetectionTraceRecorder.unescape(fields[2])));
+                        break;
+                    case "row":
+                        trace.rows.add(parseRow(fields));
+                        break;
+                    case "expect":
+                        trace.expected.add(DetectionTraceRecorder.unescape(fields[1]));
+                        break;
+                    default:
+                        throw new IOException("Unknown record '" + fields[0] + "'");
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed trace line " + lineNumber + ": " + line, e);
+            }
+        }
+        if (!headerSeen) throw new IOException("Missing trace header " + DetectionTraceRecorder.HEADER);
+        // 按时间稳定排序，手写轨迹可以不按顺序书写
+        trace.changes.sort((a, b) -> Long.compare(a.timeMs, b.timeMs));
+        trace.rows.sort((a, b) -> Long.compare(a.timeMs, b.timeMs));
+        return trace;
+    }
+
+    private static Row parseRow(String[] fields) {
+        Row row = new Row(Long.parseLong(fields[1]));
+        for (int i = 2; i < fields.length; i++) {
+            int eq = fields[i].indexOf('=');
+            String key = fields[i].substring(0, eq);
+            String value = DetectionTraceRecorder.unescape(fields[i].substring(eq + 1));
+            switch (key) {
+                case "id":
+                    row.id = Long.parseLong(value);
+                    break;
+                case "path":
+                    row.path = value;
+                    break;
+                case "date_added":
+                    row.dateAddedSec = Long.parseLong(value);
+                    break;
+                case "width":
+                    row.width = Integer.parseInt(value);
+                    break;
+                case "height":
+                    row.height = Integer.parseInt(value);
+                    break;
+                case "size":
+                    row.size = Long.parseLong(value);
+                    break;
+                case "pending":
+                    row.pending = Integer.parseInt(value);
+                    break;
+                case "mime":
+                    row.mime = value;
+                    break;
+                default:
+                    // 未知字段忽略，便于格式向后兼容
+                    break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 最后一个事件的时间
+     */
+    long durationMs() {
+        long end = 0;
+        if (!changes.isEmpty()) end = Math.max(end, changes.get(changes.size() - 1).timeMs);
+        if (!rows.isEmpty()) end = Math.max(end, rows.get(rows.size() - 1).timeMs);
+        return end;
+    }
+}
@@ -0,0 +1,100 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionTraceRecorderTest {
+    private static final long START_MS = 1_760_000_000_000L;
+    private static final long BASE_UPTIME_MS = 50_000;
+
+    @Test
+    void exportParsesBackToSameEvents() throws IOException {
+        DetectionTraceRecorder recorder = new DetectionTraceRecorder(START_MS, BASE_UPTIME_MS, 1080, 2400, 100);
+        recorder.recordChange(BASE_UPTIME_MS + 120, "content://media/external_primary/images/media/42");
+        recorder.recordChange(BASE_UPTIME_MS + 130, null);
+        recorder.recordRow(BASE_UPTIME_MS + 450, candidate(42, "/sdcard/Pictures/Screen shot 100%.png"));
+
+        DetectionTrace trace = DetectionTrace.parse(recorder.export());
+        assertEquals(START_MS, trace.startEpochMs);
+        assertEquals(1080, trace.screenWidth);
+        assertEquals(2400, trace.screenHeight);
+        assertFalse(trace.truncated);
+
+        assertEquals(2, trace.changes.size());
+        assertEquals(120, trace.changes.get(0).timeMs);
+        assertEquals("content://media/external_primary/images/media/42", trace.changes.get(0).uri);
+        assertNull(trace.changes.get(1).uri);
+
+        assertEquals(1, trace.rows.size());
+        DetectionTrace.Row row = trace.rows.get(0);
+        assertEquals(450, row.timeMs);
+        assertEquals(42, row.id);
+        assertEquals("/sdcard/Pictures/Screen shot 100%.png", row.path);
+        assertEquals(START_MS / 1000, row.dateAddedSec);
+        assertEquals(1080, row.width);
+        assertEquals(2400, row.height);
+        assertEquals(0, row.pending);
+        assertEquals("image/png", row.mime);
+    }
+
+    @Test
+    void stopsRecordingAtMaxEvents() throws IOException {
+        DetectionTraceRecorder recorder = new DetectionTraceRecorder(START_MS, BASE_UPTIME_MS, 1080, 2400, 2);
+        for (int i = 0; i < 5; i++) {
+            recorder.recordChange(BASE_UPTIME_MS + i, null);
+        }
+        assertEquals(2, recorder.eventCount());
+        DetectionTrace trace = DetectionTrace.parse(recorder.export());
+        assertEquals(2, trace.changes.size());
+        assertTrue(trace.truncated);
+    }
+
+    @Test
+    void escapesSeparatorsInValues() {
+        StringBuilder sb = new StringBuilder();
+        DetectionTraceRecorder.appendEscaped(sb, "a b\tc\nd%e");
+        assertEquals("a%20b%09c%0Ad%25e", sb.toString());
+        assertEquals("a b\tc\nd%e", DetectionTraceRecorder.unescape(sb.toString()));
+    }
+
+    @Test
+    void missingHeaderIsRejected() {
+        assertThrows(IOException.class, () -> DetectionTrace.parse("start 0 1080 2400\n"));
+    }
+
+    @Test
+    void recordedTraceReplaysToDetection() throws IOException {
+        String path = "/storage/emulated/0/Pictures/Screenshots/Screenshot_1.png";
+        DetectionTraceRecorder recorder = new DetectionTraceRecorder(START_MS, BASE_UPTIME_MS, 1080, 2400, 100);
+        recorder.recordChange(BASE_UPTIME_MS + 1000, "content://media/external_primary/images/media/42");
+        ScreenshotCandidate row = candidate(42, path);
+        row.dateAddedMs = START_MS + 1000;
+        recorder.recordRow(BASE_UPTIME_MS + 1300, row);
+
+        DetectionTrace trace = DetectionTrace.parse(recorder.export() + "expect " + path + "\n");
+        TraceReplayer.Report report = new TraceReplayer().replay(trace);
+        assertEquals(1, report.detections.size());
+        assertTrue(report.misses.isEmpty());
+        assertTrue(report.falsePositives.isEmpty());
+    }
+
+    private static ScreenshotCandidate candidate(long id, String path) {
+        ScreenshotCandidate row = new ScreenshotCandidate();
+        row.id = id;
+        row.setPath(path);
+        row.dateAddedMs = START_MS;
+        row.width = 1080;
+        row.height = 2400;
+        row.sizeBytes = 123_456;
+        row.isPending = 0;
+        row.mimeType = "image/png";
+        return row;
+    }
+}
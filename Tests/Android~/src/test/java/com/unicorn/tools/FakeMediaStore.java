@@ -0,0 +1,233 @@
+package com.unicorn.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 重放用的假媒体库：按轨迹中的行版本随虚拟时间变化，提供与 MediaQueryPlan 相同形状的查询（只模拟单个卷）。
+ * <p>
+ * 与 Android 10+ 的 MediaStore 一致：IS_PENDING=1 的行对查询不可见；generation 随每个行版本递增。
+ */
+final class FakeMediaStore {
+    private final TreeMap<Long, List<DetectionTrace.Row>> versions = new TreeMap<>();
+    private final boolean hidePending;
+    private long queries;
+
+    /**
+     * @param hidePending true：模拟 Android 10+，pending 行对查询不可见
+     */
+    FakeMediaStore(List<DetectionTrace.Row> rows, boolean hidePending) {
+        this.hidePending = hidePending;
+        for (DetectionTrace.Row row : rows) {
+            if (row.id == ScreenshotCandidate.UNKNOWN) continue;
+            versions.computeIfAbsent(row.id, id -> new ArrayList<>()).add(row);
+        }
+    }
+
+    long queryCount() {
+        return queries;
+    }
+
+    /**
+     * 查询整个集合（不带排序与条件）：与 Android 一致，结果的第一行是 _ID 最小的可见行
+     */
+    Cursor queryCollection(long nowMs) {
+        queries++;
+        Cursor cursor = new Cursor();
+        for (Long id : versions.keySet()) {
+            DetectionTrace.Row row = visible(id, nowMs);
+            if (row != null) cursor.rows.add(row);
+        }
+        return cursor;
+    }
+
+    /**
+     * 查询具体条目
+     */
+    Cursor queryItem(long id, long nowMs) {
+        queries++;
+        Cursor cursor = new Cursor();
+        DetectionTrace.Row row = visible(id, nowMs);
+        if (row != null) cursor.rows.add(row);
+        return cursor;
+    }
+
+    /**
+     * 按 _ID 升序查询大于 afterId 的行，最多 limit 行
+     */
+    Cursor queryRowsAfterId(long afterId, int limit, long nowMs) {
+        queries++;
+        Cursor cursor = new Cursor();
+        for (Long id : versions.tailMap(afterId, false).keySet()) {
+            DetectionTrace.Row row = visible(id, nowMs);
+            if (row == null) continue;
+            cursor.rows.add(row);
+            if (cursor.rows.size() >= limit) break;
+        }
+        return cursor;
+    }
+
+    /**
+     * 按 _ID 降序查询大于 afterId 的最新一批行，最多 limit 行（风暴模式）
+     */
+    Cursor queryNewestRowsAfterId(long afterId, int limit, long nowMs) {
+        queries++;
+        Cursor cursor = new Cursor();
+        for (Long id : versions.tailMap(afterId, false).descendingKeySet()) {
+            DetectionTrace.Row row = visible(id, nowMs);
+            if (row == null) continue;
+            cursor.rows.add(row);
+            if (cursor.rows.size() >= limit) break;
+        }
+        return cursor;
+    }
+
+    /**
+     * 最新的一行（以 _ID 最大近似 DATE_MODIFIED 最新）
+     */
+    Cursor queryLatest(long nowMs) {
+        queries++;
+        Cursor cursor = new Cursor();
+        for (Long id : versions.descendingKeySet()) {
+            DetectionTrace.Row row = visible(id, nowMs);
+            if (row != null) {
+                cursor.rows.add(row);
+                break;
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * 当前最大 _ID 所在的一行（游标第 0 列为 _ID），没有可见行时游标为空
+     */
+    Cursor queryMaxId(long nowMs) {
+        queries++;
+        Cursor cursor = new Cursor();
+        for (Long id : versions.descendingKeySet()) {
+            DetectionTrace.Row row = visible(id, nowMs);
+            if (row != null) {
+                cursor.rows.add(row);
+                break;
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * 媒体库 generation：截至 nowMs 的行版本数
+     */
+    long generation(long nowMs) {
+        long generation = 0;
+        for (List<DetectionTrace.Row> list : versions.values()) {
+            for (DetectionTrace.Row row : list) {
+                if (row.timeMs <= nowMs) generation++;
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * 行首次出现在媒体库中的时间，未知 id 返回 -1
+     */
+    long firstSeenMs(long id) {
+        List<DetectionTrace.Row> list = versions.get(id);
+        return (list != null && !list.isEmpty()) ? list.get(0).timeMs : -1;
+    }
+
+    private DetectionTrace.Row visible(long id, long nowMs) {
+        List<DetectionTrace.Row> list = versions.get(id);
+        if (list == null) return null;
+        DetectionTrace.Row current = null;
+        for (DetectionTrace.Row row : list) {
+            if (row.timeMs > nowMs) break;
+            current = row;
+        }
+        if (current == null) return null;
+        if (hidePending && current.pending == 1) return null;
+        return current;
+    }
+
+    /**
+     * 查询结果游标，按列名提供行数据
+     */
+    static final class Cursor implements LegacyDetectionPipeline.Rows {
+        private static final String[] COLUMNS = {
+                ScreenshotCandidate.COLUMN_ID, ScreenshotCandidate.COLUMN_DATA, ScreenshotCandidate.COLUMN_DATE_ADDED,
+                ScreenshotCandidate.COLUMN_WIDTH, ScreenshotCandidate.COLUMN_HEIGHT, ScreenshotCandidate.COLUMN_SIZE,
+                ScreenshotCandidate.COLUMN_IS_PENDING, ScreenshotCandidate.COLUMN_MIME_TYPE
+        };
+
+        final List<DetectionTrace.Row> rows = new ArrayList<>();
+        private int position = -1;
+
+        @Override
+        public boolean moveToNext() {
+            if (position + 1 >= rows.size()) return false;
+            position++;
+            return true;
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            position = 0;
+            return !rows.isEmpty();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int getColumnIndex(String column) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (COLUMNS[i].equals(column)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public long getLong(int index) {
+            DetectionTrace.Row row = rows.get(position);
+            switch (index) {
+                case 0:
+                    return row.id;
+                case 2:
+                    return row.dateAddedSec;
+                case 5:
+                    return row.size;
+                default:
+                    return getInt(index);
+            }
+        }
+
+        @Override
+        public int getInt(int index) {
+            DetectionTrace.Row row = rows.get(position);
+            switch (index) {
+                case 3:
+                    return row.width;
+                case 4:
+                    return row.height;
+                case 6:
+                    return row.pending;
+                default:
+                    return (int) getLong(index);
+            }
+        }
+
+        @Override
+        public String getString(int index) {
+            DetectionTrace.Row row = rows.get(position);
+            switch (index) {
+                case 1:
+                    return row.path;
+                case 7:
+                    return row.mime;
+                default:
+                    return String.valueOf(getLong(index));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.percentileMicros(99));
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.recordMicros(i);
+        }
+        assertEquals(1000, h.count());
+        assertEquals(1000, h.maxMicros());
+        long p50 = h.percentileMicros(50);
+        long p99 = h.percentileMicros(99);
+        assertTrue(p50 >= 500 && p50 < 1000, "p50=" + p50);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99=" + p99);
+    }
+
+    @Test
+    void nanosAndNegativeValuesAreNormalized() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordNanos(2_500_000);
+        h.recordMicros(-5);
+        assertEquals(2, h.count());
+        assertEquals(2500, h.maxMicros());
+        assertEquals(0, h.percentileMicros(50));
+    }
+
+    @Test
+    void resetClearsEverything() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordMicros(10);
+        h.reset();
+        StringBuilder sb = new StringBuilder();
+        h.appendJson(sb);
+        assertEquals("{\"count\":0,\"sumUs\":0,\"maxUs\":0,\"p50Us\":0,\"p90Us\":0,\"p99Us\":0}", sb.toString());
+    }
+}
@@ -0,0 +1,160 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LegacyDetectionPipelineTest {
+    private static final long START_MS = 1_760_000_000_000L;
+    private static final String VOLUME = "external_primary";
+    private static final String URI = "content://media/external_primary/images/media/";
+
+    @Test
+    void deferredDeliveryIsCountedOnceWhenCompleted() throws IOException {
+        DetectionTrace trace = DetectionTrace.parse("#screenshot-trace v1\n"
+                + "start " + START_MS + " 1080 2400\n"
+                + "row 0 id=10 path=/sdcard/DCIM/Camera/a.jpg date_added=1759999000 width=4000 height=3000 pending=0\n"
+                + "row 100 id=11 path=/sdcard/Pictures/Screenshots/Screenshot_1.png date_added=1760000000"
+                + " width=1080 height=2400 pending=0\n"
+                + "row 2000 id=12 path=/sdcard/Pictures/Screenshots/Screenshot_2.png date_added=1760000002"
+                + " width=1080 height=2400 pending=0\n"
+                + "row 4000 id=13 path=/sdcard/DCIM/Camera/b.jpg date_added=1760000004 width=4000 height=3000 pending=0\n");
+        FakeMediaStore store = new FakeMediaStore(trace.rows, true);
+        Harness h = new Harness(store);
+        h.scheduler.postAtTime(() -> h.pipeline.addVolume(VOLUME, null), 0);
+        h.scheduler.postAtTime(() -> h.pipeline.onChange(URI + 11), 100);
+        h.scheduler.postAtTime(() -> h.pipeline.onChange(URI + 12), 2000);
+        h.scheduler.postAtTime(() -> h.pipeline.onChange(URI + 13), 4000);
+        h.scheduler.runAll();
+
+        // 两张截图都在等待内容检查：尚未计入接受数
+        ScreenshotMetrics metrics = h.shared.metrics;
+        assertEquals(2, h.deferred.size());
+        assertEquals(3, metrics.candidates.get());
+        assertEquals(0, metrics.accepted.get());
+        assertEquals(1, rejectTotal(metrics));
+
+        // 一张是重复内容，一张投递
+        h.pipeline.completeDeferred(h.deferred.get(0), ScreenshotRules.RULE_CONTENT);
+        h.pipeline.completeDeferred(h.deferred.get(1), null);
+        assertEquals(1, metrics.accepted.get());
+        assertEquals(1, metrics.rejectCount(ScreenshotRules.RULE_CONTENT));
+        assertEquals(metrics.candidates.get(), metrics.accepted.get() + rejectTotal(metrics));
+        assertEquals(ScreenshotRules.RULE_CONTENT, h.pipeline.lastRejectReason());
+    }
+
+    @Test
+    void burstLargerThanOneScanIsScannedToTheEnd() throws IOException {
+        // 一次集合级通知之后新增 130 行，超过单次扫描上限（5 批 × 20 行）
+        StringBuilder text = new StringBuilder("#screenshot-trace v1\n")
+                .append("start ").append(START_MS).append(" 1080 2400\n")
+                .append("row 0 id=10 path=/sdcard/DCIM/Camera/a.jpg date_added=1759999000 width=4000 height=3000 pending=0\n");
+        int burst = 130;
+        for (int i = 1; i <= burst; i++) {
+            text.append("row 1000 id=").append(10 + i)
+                    .append(" path=/sdcard/Pictures/Screenshots/Screenshot_").append(i)
+                    .append(".png date_added=1760000001 width=1080 height=2400 pending=0\n");
+        }
+        FakeMediaStore store = new FakeMediaStore(DetectionTrace.parse(text.toString()).rows, true);
+        Harness h = new Harness(store);
+        h.scheduler.postAtTime(() -> h.pipeline.addVolume(VOLUME, null), 0);
+        h.scheduler.postAtTime(() -> h.pipeline.onChange("content://media/" + VOLUME + "/images/media"), 1000);
+        h.scheduler.runAll();
+
+        assertEquals(burst, h.deferred.size());
+        MediaVolumeState v = h.pipeline.volume(VOLUME);
+        assertEquals(10 + burst, v.scanWatermarkId);
+        assertEquals(store.generation(h.scheduler.nowMs), v.lastScannedGeneration);
+    }
+
+    private static long rejectTotal(ScreenshotMetrics metrics) {
+        long total = 0;
+        for (String rule : new String[]{ScreenshotRules.RULE_PATH, ScreenshotRules.RULE_DEDUP,
+                ScreenshotRules.RULE_CREATION_TIME, ScreenshotRules.RULE_SIZE, ScreenshotRules.RULE_CONTENT}) {
+            total += metrics.rejectCount(rule);
+        }
+        return total;
+    }
+
+    /**
+     * 虚拟时间上的单卷流程；Callback 把通过判定的截图全部延后投递（模拟内容去重的后台检查）
+     */
+    private static final class Harness implements LegacyDetectionPipeline.MediaSource, LegacyDetectionPipeline.Callback {
+        final ManualScheduler scheduler = new ManualScheduler(START_MS);
+        final FakeMediaStore store;
+        final LegacyDetectionPipeline.Shared shared = new LegacyDetectionPipeline.Shared(
+                new AtomicReference<>(ScreenshotRuleEngine.of(new ScreenshotRules.PathKeywordRule(
+                        ScreenshotPathMatcher.build(LegacyDetectionPipeline.KEYWORDS)))),
+                new AtomicBoolean(true), LegacyDetectionPipeline.newReadinessPolicy(), new ScreenshotMetrics(),
+                new DetectionFlightRecorder(16), new AtomicReference<>());
+        final LegacyDetectionPipeline pipeline;
+        final List<ScreenshotCandidate> deferred = new ArrayList<>();
+
+        Harness(FakeMediaStore store) {
+            this.store = store;
+            LegacyDetectionPipeline.Config config = new LegacyDetectionPipeline.Config();
+            config.startListenTimeMs = START_MS;
+            config.screenWidth = 1080;
+            config.screenHeight = 2400;
+            this.pipeline = new LegacyDetectionPipeline(config, shared, scheduler, this, this);
+        }
+
+        @Override
+        public boolean onScreenshot(MediaVolumeState volume, ScreenshotCandidate row) {
+            ScreenshotCandidate copy = new ScreenshotCandidate();
+            copy.id = row.id;
+            copy.setPath(row.path);
+            copy.dateAddedMs = row.dateAddedMs;
+            copy.observedAtMs = row.observedAtMs;
+            deferred.add(copy);
+            return false;
+        }
+
+        @Override
+        public void onInfo(String message) {
+        }
+
+        @Override
+        public void onError(String message, Exception e) {
+            throw new AssertionError(message, e);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryItem(Object uri, String[] projection) {
+            return store.queryItem(LegacyDetectionPipeline.itemId(uri.toString()), scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryLatest(MediaVolumeState volume, String[] projection) {
+            return store.queryLatest(scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryMaxId(MediaVolumeState volume, String[] projection) {
+            return store.queryMaxId(scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryRowsAfterId(MediaVolumeState volume, String[] projection,
+                                                             long afterId) {
+            return store.queryRowsAfterId(afterId, LegacyDetectionPipeline.SCAN_BATCH_SIZE, scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryNewestRowsAfterId(MediaVolumeState volume, String[] projection,
+                                                                   long afterId) {
+            return store.queryNewestRowsAfterId(afterId, LegacyDetectionPipeline.SCAN_BATCH_SIZE, scheduler.nowMs);
+        }
+
+        @Override
+        public long generation(MediaVolumeState volume) {
+            return store.generation(scheduler.nowMs);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.unicorn.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 测试用的虚拟时间调度器：任务按时间与提交顺序执行，removeCallbacks 取消尚未执行的任务
+ */
+final class ManualScheduler implements LegacyDetectionPipeline.Scheduler {
+    private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) ->
+            a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final long startEpochMs;
+    long nowMs;
+
+    /**
+     * @param startEpochMs 虚拟时间 0 对应的系统时间
+     */
+    ManualScheduler(long startEpochMs) {
+        this.startEpochMs = startEpochMs;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return nowMs;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return startEpochMs + nowMs;
+    }
+
+    @Override
+    public void postAtTime(Runnable task, long uptimeMs) {
+        queue.add(new long[]{Math.max(uptimeMs, nowMs), tasks.size()});
+        tasks.add(task);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable task) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i) == task) tasks.set(i, null);
+        }
+    }
+
+    void runAll() {
+        long[] next;
+        while ((next = queue.poll()) != null) {
+            Runnable task = tasks.get((int) next[1]);
+            if (task == null) continue;
+            nowMs = next[0];
+            task.run();
+        }
+    }
+}
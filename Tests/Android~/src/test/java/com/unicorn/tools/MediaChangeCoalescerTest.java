@@ -0,0 +1,104 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MediaChangeCoalescerTest {
+    private static final String URI = "content://media/external_primary/images/media/";
+
+    private final ManualScheduler scheduler = new ManualScheduler(0);
+    private final ScreenshotMetrics metrics = new ScreenshotMetrics();
+    private final List<String> delivered = new ArrayList<>();
+    private final List<Long> firstTimes = new ArrayList<>();
+    private final MediaChangeCoalescer coalescer = new MediaChangeCoalescer(scheduler, (uri, firstUptimeMs) -> {
+        delivered.add((String) uri);
+        firstTimes.add(firstUptimeMs);
+    }, 300, 1000, metrics);
+
+    private void submitAt(long timeMs, String uri) {
+        scheduler.postAtTime(() -> coalescer.submit(uri), timeMs);
+    }
+
+    @Test
+    void repeatedNotificationsForOneUriAreMerged() {
+        submitAt(0, URI + 1);
+        submitAt(100, URI + 1);
+        submitAt(200, URI + 1);
+        scheduler.runAll();
+
+        assertEquals(1, delivered.size());
+        assertEquals(URI + 1, delivered.get(0));
+        assertEquals(0L, (long) firstTimes.get(0));
+        assertEquals(3, metrics.changesReceived.get());
+        assertEquals(2, metrics.changesCollapsed.get());
+    }
+
+    @Test
+    void uriObjectsArePassedThroughWithoutConversion() {
+        // Android 上通知的是 Uri 对象：按 equals 合并，交给 Sink 的是原对象而不是字符串
+        List<Object> objects = new ArrayList<>();
+        MediaChangeCoalescer objectCoalescer = new MediaChangeCoalescer(scheduler,
+                (uri, firstUptimeMs) -> objects.add(uri), 300, 1000, metrics);
+        java.net.URI first = java.net.URI.create(URI + 1);
+        java.net.URI second = java.net.URI.create(URI + 1);
+        scheduler.postAtTime(() -> objectCoalescer.submit(first), 0);
+        scheduler.postAtTime(() -> objectCoalescer.submit(second), 100);
+        scheduler.runAll();
+
+        assertEquals(1, objects.size());
+        assertSame(second, objects.get(0));
+    }
+
+    @Test
+    void continuousNotificationsAreFlushedAfterMaxLatency() {
+        for (long t = 0; t <= 2000; t += 100) {
+            submitAt(t, URI + 1);
+        }
+        scheduler.runAll();
+
+        // 每次都在窗口内再次收到通知：从首次通知起最多等待 1000ms 即处理一次
+        assertEquals(2, delivered.size());
+        assertEquals(0L, (long) firstTimes.get(0));
+        assertEquals(1100L, (long) firstTimes.get(1));
+    }
+
+    @Test
+    void fullPoolMergesIntoExistingLatestSlot() {
+        for (int i = 1; i <= 7; i++) {
+            submitAt(i, URI + i);
+        }
+        submitAt(8, null);
+        // 槽位已满：新的 URI 应并入已有的 latest 任务，而不是把最早的任务也变成第二个 latest
+        submitAt(9, URI + 100);
+        submitAt(10, URI + 101);
+        scheduler.runAll();
+
+        int latest = 0;
+        for (String uri : delivered) {
+            if (uri == null) latest++;
+        }
+        assertEquals(1, latest, delivered.toString());
+        assertEquals(8, delivered.size());
+        assertEquals(URI + 1, delivered.get(0));
+    }
+
+    @Test
+    void fullPoolWithoutLatestSlotDowngradesOldest() {
+        for (int i = 1; i <= 8; i++) {
+            submitAt(i, URI + i);
+        }
+        submitAt(9, URI + 100);
+        scheduler.runAll();
+
+        assertEquals(8, delivered.size());
+        // 最早的任务降级为按最新一行处理，保留首次通知时间
+        int index = firstTimes.indexOf(1L);
+        assertNull(delivered.get(index));
+    }
+}
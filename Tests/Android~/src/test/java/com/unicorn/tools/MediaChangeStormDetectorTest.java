@@ -0,0 +1,65 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MediaChangeStormDetectorTest {
+
+    @Test
+    void normalScreenshotBurstDoesNotTrigger() {
+        MediaChangeStormDetector detector = new MediaChangeStormDetector(30, 1000);
+        // 一次截屏约 3~6 次通知
+        for (int i = 0; i < 6; i++) {
+            assertFalse(detector.record(10_000 + i * 20));
+        }
+        assertFalse(detector.isStorming());
+    }
+
+    @Test
+    void entersOnceWhenRateExceedsThreshold() {
+        MediaChangeStormDetector detector = new MediaChangeStormDetector(30, 1000);
+        int entered = 0;
+        for (int i = 0; i < 200; i++) {
+            if (detector.record(10_000 + i * 10)) entered++;
+        }
+        assertEquals(1, entered);
+        assertTrue(detector.isStorming());
+    }
+
+    @Test
+    void exitsOnlyAfterRateDropsBelowQuarterThreshold() {
+        MediaChangeStormDetector detector = new MediaChangeStormDetector(40, 1000);
+        for (int i = 0; i < 40; i++) {
+            detector.record(10_000 + i * 10);
+        }
+        assertTrue(detector.isStorming());
+
+        // 频率降到阈值一半：仍处于风暴模式（迟滞）
+        long t = 10_400;
+        for (int i = 0; i < 40; i++) {
+            t += 50;
+            detector.record(t);
+        }
+        assertFalse(detector.checkExit(t));
+
+        // 安静一个窗口后恢复
+        assertTrue(detector.checkExit(t + 1100));
+        assertFalse(detector.isStorming());
+    }
+
+    @Test
+    void slidingWindowForgetsOldChanges() {
+        MediaChangeStormDetector detector = new MediaChangeStormDetector(30, 1000);
+        for (int i = 0; i < 20; i++) {
+            detector.record(10_000 + i);
+        }
+        assertEquals(20, detector.windowCount(10_500));
+        assertEquals(0, detector.windowCount(11_100));
+        for (int i = 0; i < 20; i++) {
+            assertFalse(detector.record(11_100 + i));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerceptualHashTest {
+
+    @Test
+    void identicalImagesHashEqual() {
+        int[] a = image(1, 270, 600);
+        int[] b = a.clone();
+        assertEquals(PerceptualHash.dHash(a, 270, 600), PerceptualHash.dHash(b, 270, 600));
+    }
+
+    @Test
+    void downscaledAndBrightenedCopyIsClose() {
+        int[] original = image(7, 270, 600);
+        long hash = PerceptualHash.dHash(original, 270, 600);
+        assertTrue(PerceptualHash.hasDetail(hash));
+
+        // 重新编码的副本：分辨率减半（不同的采样率）且整体调亮
+        int[] copy = brighten(halve(original, 270, 600), 20);
+        long copyHash = PerceptualHash.dHash(copy, 135, 300);
+        assertTrue(PerceptualHash.distance(hash, copyHash) <= 4,
+                "distance " + PerceptualHash.distance(hash, copyHash));
+    }
+
+    @Test
+    void differentImagesAreFarApart() {
+        long a = PerceptualHash.dHash(image(1, 270, 600), 270, 600);
+        long b = PerceptualHash.dHash(image(2, 270, 600), 270, 600);
+        assertTrue(PerceptualHash.distance(a, b) > 12, "distance " + PerceptualHash.distance(a, b));
+    }
+
+    @Test
+    void flatImageHasNoDetail() {
+        int[] flat = new int[64 * 64];
+        Arrays.fill(flat, 0xff808080);
+        long hash = PerceptualHash.dHash(flat, 64, 64);
+        assertEquals(0, hash);
+        assertFalse(PerceptualHash.hasDetail(hash));
+    }
+
+    @Test
+    void imagesSmallerThanGridAreHashed() {
+        int[] tiny = {0xffffffff, 0xff000000, 0xff000000, 0xffffffff};
+        long hash = PerceptualHash.dHash(tiny, 2, 2);
+        assertEquals(hash, PerceptualHash.dHash(tiny.clone(), 2, 2));
+    }
+
+    @Test
+    void rejectsShortBuffer() {
+        assertThrows(IllegalArgumentException.class, () -> PerceptualHash.dHash(new int[10], 4, 4));
+    }
+
+    @Test
+    void sampleSizeKeepsDecodeWithinBudget() {
+        assertEquals(1, PerceptualHash.sampleSize(64, 64, 4096));
+        assertEquals(32, PerceptualHash.sampleSize(1080, 2400, 4096));
+        assertEquals(64, PerceptualHash.sampleSize(4000, 3000, 4096));
+        int[][] sizes = {{1080, 2400}, {1440, 3200}, {4000, 3000}, {720, 1280}, {1, 100_000}};
+        for (int[] size : sizes) {
+            int sample = PerceptualHash.sampleSize(size[0], size[1], 4096);
+            long pixels = (long) ((size[0] + sample - 1) / sample) * ((size[1] + sample - 1) / sample);
+            assertTrue(pixels <= 4096, size[0] + "x" + size[1]);
+            assertEquals(sample, Integer.highestOneBit(sample));
+        }
+    }
+
+    /**
+     * 随机色块组成的"截图"
+     */
+    static int[] image(long seed, int width, int height) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, 0xff202020);
+        for (int n = 0; n < 24; n++) {
+            int x0 = random.nextInt(width);
+            int y0 = random.nextInt(height);
+            int x1 = Math.min(width, x0 + 20 + random.nextInt(width / 2));
+            int y1 = Math.min(height, y0 + 20 + random.nextInt(height / 3));
+            int color = 0xff000000 | random.nextInt(0x1000000);
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    pixels[y * width + x] = color;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] halve(int[] pixels, int width, int height) {
+        int w = width / 2;
+        int h = height / 2;
+        int[] out = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int r = 0, g = 0, b = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    for (int dx = 0; dx < 2; dx++) {
+                        int p = pixels[(y * 2 + dy) * width + x * 2 + dx];
+                        r += (p >> 16) & 0xff;
+                        g += (p >> 8) & 0xff;
+                        b += p & 0xff;
+                    }
+                }
+                out[y * w + x] = 0xff000000 | (r / 4) << 16 | (g / 4) << 8 | (b / 4);
+            }
+        }
+        return out;
+    }
+
+    private static int[] brighten(int[] pixels, int delta) {
+        int[] out = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            int r = Math.min(255, ((p >> 16) & 0xff) + delta);
+            int g = Math.min(255, ((p >> 8) & 0xff) + delta);
+            int b = Math.min(255, (p & 0xff) + delta);
+            out[i] = 0xff000000 | r << 16 | g << 8 | b;
+        }
+        return out;
+    }
+}
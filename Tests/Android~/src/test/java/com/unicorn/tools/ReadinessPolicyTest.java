@@ -0,0 +1,54 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadinessPolicyTest {
+
+    @Test
+    void learnsShorterDelayWhenReadyOnFirstPoll() {
+        ReadinessPolicy policy = new ReadinessPolicy(300, 50, 800, 3000);
+        assertEquals(300, policy.initialDelayMs());
+        for (int i = 0; i < 100; i++) {
+            policy.recordReady(0, policy.initialDelayMs());
+        }
+        assertEquals(50, policy.initialDelayMs());
+    }
+
+    @Test
+    void movesTowardObservedDelayAfterRetries() {
+        ReadinessPolicy policy = new ReadinessPolicy(300, 50, 800, 3000);
+        for (int i = 0; i < 50; i++) {
+            policy.recordReady(2, 900);
+        }
+        long learned = policy.initialDelayMs();
+        assertTrue(learned > 850 && learned <= 900, String.valueOf(learned));
+    }
+
+    @Test
+    void backoffIsExponentialAndBounded() {
+        ReadinessPolicy policy = new ReadinessPolicy(200, 50, 800, 3000);
+        assertEquals(100, policy.nextDelayMs(1, 200));
+        assertEquals(200, policy.nextDelayMs(2, 300));
+        assertEquals(400, policy.nextDelayMs(3, 500));
+        assertEquals(800, policy.nextDelayMs(4, 900));
+        assertEquals(800, policy.nextDelayMs(30, 1000));
+    }
+
+    @Test
+    void stopsAtDeadline() {
+        ReadinessPolicy policy = new ReadinessPolicy(200, 50, 800, 3000);
+        assertEquals(100, policy.nextDelayMs(5, 2900));
+        assertEquals(-1, policy.nextDelayMs(5, 3000));
+    }
+
+    @Test
+    void resetRestoresInitialDelay() {
+        ReadinessPolicy policy = new ReadinessPolicy(300, 50, 800, 3000);
+        policy.recordReady(0, 10);
+        policy.reset();
+        assertEquals(300, policy.initialDelayMs());
+    }
+}
@@ -0,0 +1,177 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ScreenshotCandidateReaderTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    /**
+     * 模拟游标：列顺序可与投影不同，统计 getColumnIndex 调用次数
+     */
+    private static final class FakeRows implements ScreenshotCandidateReader.RowSource {
+        final String[] columns;
+        final Object[][] rows;
+        int position;
+        int columnLookups;
+
+        FakeRows(String[] columns, Object[]... rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public int getColumnIndex(String column) {
+            columnLookups++;
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(column)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public long getLong(int index) {
+            return ((Number) rows[position][index]).longValue();
+        }
+
+        @Override
+        public int getInt(int index) {
+            return ((Number) rows[position][index]).intValue();
+        }
+
+        @Override
+        public String getString(int index) {
+            Object value = rows[position][index];
+            return (value != null) ? value.toString() : null;
+        }
+    }
+
+    @Test
+    void readsColumnsByResolvedIndex() {
+        ScreenshotCandidateReader reader = new ScreenshotCandidateReader();
+        reader.setProjection(new String[]{"_id", "_data", "date_added", "width", "height", "owner_package_name", "title"});
+        FakeRows rows = new FakeRows(
+                new String[]{"title", "height", "width", "date_added", "_data", "_id", "owner_package_name"},
+                new Object[]{"Screenshot_1", 2400, 1080, 1_700_000_001L, "/sdcard/Pictures/Screenshots/a.png", 42L, "com.android.systemui"});
+        reader.bind(rows);
+
+        ScreenshotCandidate row = new ScreenshotCandidate();
+        reader.read(rows, row, START_MS);
+
+        assertEquals(42, row.id);
+        assertEquals("/sdcard/Pictures/Screenshots/a.png", row.path);
+        assertEquals(1_700_000_001_000L, row.dateAddedMs);
+        assertEquals(1080, row.width);
+        assertEquals(2400, row.height);
+        assertEquals("com.android.systemui", row.ownerPackageName);
+        assertEquals("Screenshot_1", row.getString("title"));
+        assertEquals(START_MS, row.observedAtMs);
+    }
+
+    @Test
+    void missingColumnsStayUnknown() {
+        ScreenshotCandidateReader reader = new ScreenshotCandidateReader();
+        reader.setProjection(new String[]{"_id", "_data", "width", "is_pending"});
+        FakeRows rows = new FakeRows(new String[]{"_id", "_data"}, new Object[]{7L, "/sdcard/a.png"});
+        reader.bind(rows);
+
+        ScreenshotCandidate row = new ScreenshotCandidate();
+        row.width = 100;
+        row.putExtra("title", "stale");
+        reader.read(rows, row, START_MS);
+
+        assertEquals(7, row.id);
+        assertEquals(ScreenshotCandidate.UNKNOWN, row.width);
+        assertEquals(ScreenshotCandidate.UNKNOWN, row.isPending);
+        assertNull(row.getString("title"));
+    }
+
+    @Test
+    void columnIndicesResolvedOncePerCursor() {
+        ScreenshotCandidateReader reader = new ScreenshotCandidateReader();
+        String[] projection = {"_id", "_data", "date_added"};
+        reader.setProjection(projection);
+        FakeRows rows = new FakeRows(projection,
+                new Object[]{1L, "/a.png", 1L},
+                new Object[]{2L, "/b.png", 2L},
+                new Object[]{3L, "/c.png", 3L});
+        reader.bind(rows);
+
+        ScreenshotCandidate row = new ScreenshotCandidate();
+        for (rows.position = 0; rows.position < rows.rows.length; rows.position++) {
+            reader.read(rows, row, START_MS);
+        }
+        assertEquals(3, row.id);
+        assertEquals(projection.length, rows.columnLookups);
+    }
+
+    /**
+     * 稳态下读取 + 判定 + 去重 + 指标记录不应产生任何堆分配
+     */
+    @Test
+    void steadyStateClassifyDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ScreenshotDedupCache dedupCache = new ScreenshotDedupCache(64, 10000);
+        ScreenshotRules.CreationTimeRule timeRule = new ScreenshotRules.CreationTimeRule(10000);
+        timeRule.setStartListenTimeMs(START_MS);
+        ScreenshotRules.ScreenSizeRule sizeRule = new ScreenshotRules.ScreenSizeRule();
+        sizeRule.setScreenSize(1080, 2400);
+        ScreenshotRuleEngine engine = ScreenshotRuleEngine.of(
+                new ScreenshotRules.PathKeywordRule(ScreenshotPathMatcher.build("screenshot", "截屏")),
+                new ScreenshotRules.DedupRule(dedupCache),
+                timeRule,
+                sizeRule);
+        ScreenshotMetrics metrics = new ScreenshotMetrics();
+
+        ScreenshotCandidateReader reader = new ScreenshotCandidateReader();
+        reader.setProjection(engine.projection());
+        FakeRows rows = new FakeRows(engine.projection(),
+                new Object[]{1L, "/storage/emulated/0/Pictures/Screenshots/Screenshot_1.png", START_MS / 1000 + 1, 1080, 2400},
+                new Object[]{2L, "/storage/emulated/0/DCIM/Camera/IMG_2.jpg", START_MS / 1000 + 1, 4000, 3000},
+                new Object[]{3L, "/storage/emulated/0/Pictures/Screenshots/Screenshot_3.png", START_MS / 1000 - 60, 1080, 2400});
+        ScreenshotCandidate row = new ScreenshotCandidate();
+        long nowMs = START_MS + 2000;
+
+        // 预热：让拒绝原因计数器等惰性结构完成初始化
+        for (int i = 0; i < 20_000; i++) {
+            classifyAll(reader, rows, row, engine, dedupCache, metrics, nowMs);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 10_000; i++) {
+            classifyAll(reader, rows, row, engine, dedupCache, metrics, nowMs);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertEquals(0, allocated, "bytes allocated over 30000 classified rows");
+    }
+
+    private static void classifyAll(ScreenshotCandidateReader reader, FakeRows rows, ScreenshotCandidate row,
+                                    ScreenshotRuleEngine engine, ScreenshotDedupCache dedupCache,
+                                    ScreenshotMetrics metrics, long nowMs) {
+        reader.bind(rows);
+        for (rows.position = 0; rows.position < rows.rows.length; rows.position++) {
+            reader.read(rows, row, nowMs);
+            long start = System.nanoTime();
+            ScreenshotRule rejectedBy = engine.evaluate(row);
+            metrics.classifyLatency.recordNanos(System.nanoTime() - start);
+            metrics.candidates.incrementAndGet();
+            if (rejectedBy != null) {
+                metrics.recordReject(rejectedBy.name());
+            } else {
+                metrics.accepted.incrementAndGet();
+                dedupCache.add(row.pathHash(), row.observedAtMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenshotDedupCacheTest {
+    private static final long TTL = 10000;
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1, new ScreenshotDedupCache(1, TTL).capacity());
+        assertEquals(64, new ScreenshotDedupCache(64, TTL).capacity());
+        assertEquals(128, new ScreenshotDedupCache(65, TTL).capacity());
+    }
+
+    @Test
+    void sizeStaysBoundedForLongSessions() {
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(64, TTL);
+        for (int i = 0; i < 100_000; i++) {
+            cache.add(ScreenshotDedupCache.hashPath("/Pictures/Screenshots/Screenshot_" + i + ".png"), i);
+        }
+        assertEquals(64, cache.size());
+    }
+
+    @Test
+    void noDuplicateGetsThroughWithinWindow() {
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(64, TTL);
+        long now = 1_000_000;
+        for (int i = 0; i < 32; i++) {
+            long key = ScreenshotDedupCache.hashPath("/Pictures/Screenshots/Screenshot_" + i + ".png");
+            assertFalse(cache.contains(key, now));
+            cache.add(key, now);
+            now += 100;
+        }
+        // 窗口内再次出现的 32 个路径都应被识别为重复
+        for (int i = 0; i < 32; i++) {
+            long key = ScreenshotDedupCache.hashPath("/Pictures/Screenshots/Screenshot_" + i + ".png");
+            assertTrue(cache.contains(key, now), "duplicate #" + i);
+        }
+    }
+
+    @Test
+    void entriesExpireAfterTtl() {
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(64, TTL);
+        cache.add(42, 0);
+        assertTrue(cache.contains(42, TTL));
+        assertFalse(cache.contains(42, TTL + 1));
+    }
+
+    @Test
+    void olderEntriesAreFoundAfterClockStepsBack() {
+        // 校时回拨后写入的记录时间早于之前的记录：不能因为它"已过期"就停止查找
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(8, TTL);
+        cache.add(42, 100_000);
+        cache.add(7, 60_000);
+        assertTrue(cache.contains(42, 100_500));
+        assertFalse(cache.contains(7, 100_500));
+    }
+
+    @Test
+    void entriesFromBeforeClockStepBackStayValid() {
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(8, TTL);
+        cache.add(42, 100_000);
+        assertTrue(cache.contains(42, 40_000));
+    }
+
+    @Test
+    void oldestEntryIsOverwrittenWhenFull() {
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(4, TTL);
+        for (long key = 1; key <= 5; key++) {
+            cache.add(key, 0);
+        }
+        assertFalse(cache.contains(1, 0));
+        for (long key = 2; key <= 5; key++) {
+            assertTrue(cache.contains(key, 0));
+        }
+    }
+
+    @Test
+    void clearForgetsEverything() {
+        ScreenshotDedupCache cache = new ScreenshotDedupCache(8, TTL);
+        cache.add(7, 0);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(cache.contains(7, 0));
+    }
+
+    @Test
+    void hashPathDistinguishesSimilarPaths() {
+        assertEquals(ScreenshotDedupCache.hashPath("/a/Screenshot_1.png"),
+                ScreenshotDedupCache.hashPath("/a/Screenshot_1.png"));
+        assertNotEquals(ScreenshotDedupCache.hashPath("/a/Screenshot_1.png"),
+                ScreenshotDedupCache.hashPath("/a/Screenshot_2.png"));
+        assertNotEquals(ScreenshotDedupCache.hashPath("/a/截屏_1.png"),
+                ScreenshotDedupCache.hashPath("/a/截图_1.png"));
+    }
+}
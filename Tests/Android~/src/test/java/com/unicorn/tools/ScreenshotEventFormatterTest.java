@@ -0,0 +1,24 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScreenshotEventFormatterTest {
+
+    @Test
+    void formatsBatchPayload() {
+        StringBuilder sb = new StringBuilder();
+        String[] events = {"/sdcard/Pictures/Screenshots/a.png", "screenshot_detected", "unused"};
+        assertEquals("{\"events\":[\"/sdcard/Pictures/Screenshots/a.png\",\"screenshot_detected\"],\"dropped\":3}",
+                ScreenshotEventFormatter.formatBatch(sb, events, 2, 3));
+        assertEquals("{\"events\":[],\"dropped\":0}", ScreenshotEventFormatter.formatBatch(sb, events, 0, 0));
+    }
+
+    @Test
+    void escapesJsonStrings() {
+        StringBuilder sb = new StringBuilder();
+        ScreenshotEventFormatter.appendJsonString(sb, "a\"b\\c\nd\u0001截屏");
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001截屏\"", sb.toString());
+    }
+}
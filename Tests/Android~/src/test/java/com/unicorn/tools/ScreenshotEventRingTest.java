@@ -0,0 +1,114 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenshotEventRingTest {
+
+    @Test
+    void keepsFifoOrder() {
+        ScreenshotEventRing ring = new ScreenshotEventRing(8, ScreenshotEventRing.DROP_OLDEST);
+        assertTrue(ring.isEmpty());
+        ring.offer("a");
+        ring.offer("b");
+        ring.offer("c");
+        assertFalse(ring.isEmpty());
+        assertEquals("a", ring.poll());
+        assertEquals("b", ring.poll());
+        assertEquals("c", ring.poll());
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void dropOldestKeepsNewestEvents() {
+        ScreenshotEventRing ring = new ScreenshotEventRing(4, ScreenshotEventRing.DROP_OLDEST);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(ring.offer("e" + i));
+        }
+        String[] out = new String[8];
+        int n = ring.drainTo(out);
+        assertEquals(4, n);
+        assertArrayEquals(new String[]{"e2", "e3", "e4", "e5"}, java.util.Arrays.copyOf(out, n));
+        assertEquals(2, ring.getDroppedCount());
+    }
+
+    @Test
+    void dropNewestKeepsOldestEvents() {
+        ScreenshotEventRing ring = new ScreenshotEventRing(4, ScreenshotEventRing.DROP_NEWEST);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, ring.offer("e" + i));
+        }
+        String[] out = new String[8];
+        int n = ring.drainTo(out);
+        assertArrayEquals(new String[]{"e0", "e1", "e2", "e3"}, java.util.Arrays.copyOf(out, n));
+        assertEquals(2, ring.getDroppedCount());
+    }
+
+    @Test
+    void drainReturnsTimesWithEvents() {
+        ScreenshotEventRing ring = new ScreenshotEventRing(4, ScreenshotEventRing.DROP_OLDEST);
+        ring.offer("plain");
+        for (int i = 0; i < 5; i++) {
+            ring.offer("e" + i, 1000 + i);
+        }
+        String[] out = new String[8];
+        long[] times = new long[8];
+        int n = ring.drainTo(out, times);
+        assertArrayEquals(new String[]{"e1", "e2", "e3", "e4"}, java.util.Arrays.copyOf(out, n));
+        assertArrayEquals(new long[]{1001, 1002, 1003, 1004}, java.util.Arrays.copyOf(times, n));
+
+        ring.offer("plain");
+        assertEquals(1, ring.drainTo(out, times));
+        assertEquals(-1, times[0]);
+    }
+
+    @Test
+    void concurrentProducersLoseNothingWhenConsumerKeepsUp() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 20_000;
+        final ScreenshotEventRing ring = new ScreenshotEventRing(64, ScreenshotEventRing.DROP_NEWEST);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    String event = id + ":" + i;
+                    while (!ring.offer(event)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        Set<String> seen = new HashSet<>();
+        start.countDown();
+        String[] out = new String[64];
+        while (seen.size() < producers * perProducer) {
+            int n = ring.drainTo(out);
+            for (int i = 0; i < n; i++) {
+                assertTrue(seen.add(out[i]), "duplicate " + out[i]);
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(ring.poll());
+    }
+}
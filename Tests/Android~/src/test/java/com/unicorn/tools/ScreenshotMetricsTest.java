@@ -0,0 +1,49 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenshotMetricsTest {
+
+    @Test
+    void countsRejectsPerReason() {
+        ScreenshotMetrics metrics = new ScreenshotMetrics();
+        metrics.recordReject("path");
+        metrics.recordReject("path");
+        metrics.recordReject("size");
+        assertEquals(2, metrics.rejectCount("path"));
+        assertEquals(1, metrics.rejectCount("size"));
+        assertEquals(0, metrics.rejectCount("dedup"));
+    }
+
+    @Test
+    void snapshotContainsCountersAndHistograms() {
+        ScreenshotMetrics metrics = new ScreenshotMetrics();
+        metrics.changesReceived.addAndGet(6);
+        metrics.changesCollapsed.addAndGet(5);
+        metrics.queries.incrementAndGet();
+        metrics.recordReject("path");
+        metrics.queryLatency.recordMicros(1200);
+
+        String json = metrics.toJson();
+        assertTrue(json.startsWith("{\"changesReceived\":6,\"changesCollapsed\":5,\"queries\":1,"), json);
+        assertTrue(json.contains("\"rejects\":{\"path\":1}"), json);
+        assertTrue(json.contains("\"queryLatency\":{\"count\":1,\"sumUs\":1200,\"maxUs\":1200,"), json);
+        assertTrue(json.endsWith("}}"), json);
+    }
+
+    @Test
+    void resetKeepsReasonsButZeroesCounts() {
+        ScreenshotMetrics metrics = new ScreenshotMetrics();
+        metrics.accepted.incrementAndGet();
+        metrics.recordReject("dedup");
+        metrics.endToEndLatency.recordMicros(3_000_000);
+        metrics.reset();
+        assertEquals(0, metrics.accepted.get());
+        assertEquals(0, metrics.rejectCount("dedup"));
+        assertEquals(0, metrics.endToEndLatency.count());
+        assertTrue(metrics.toJson().contains("\"rejects\":{\"dedup\":0}"));
+    }
+}
@@ -0,0 +1,87 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenshotPathMatcherTest {
+    private static final String[] KEYWORDS = LegacyDetectionPipeline.KEYWORDS;
+
+    private final ScreenshotPathMatcher matcher = ScreenshotPathMatcher.build(KEYWORDS);
+
+    /**
+     * 旧实现：小写后逐个 contains（使用 Locale.ROOT 作为基准）
+     */
+    private static boolean legacyMatches(String path) {
+        String lowerPath = path.toLowerCase(Locale.ROOT);
+        for (String keyword : KEYWORDS) {
+            if (lowerPath.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void matchesTypicalScreenshotPaths() {
+        assertTrue(matcher.matches("/storage/emulated/0/Pictures/Screenshots/Screenshot_20240101-101010.png"));
+        assertTrue(matcher.matches("/storage/emulated/0/DCIM/Screen_Capture/sc.jpg"));
+        assertTrue(matcher.matches("/sdcard/ScreenCap/1.png"));
+        assertFalse(matcher.matches("/storage/emulated/0/DCIM/Camera/IMG_20240101_101010.jpg"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void sameResultsAsLegacyMatcher() {
+        Random random = new Random(20240101);
+        String alphabet = "scrEENshotcapture_- /.SCRabcCAP截屏0123";
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(48);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            if (random.nextInt(8) == 0) {
+                String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+                sb.insert(random.nextInt(sb.length() + 1), random.nextBoolean() ? keyword.toUpperCase(Locale.ROOT) : keyword);
+            }
+            String path = sb.toString();
+            assertEquals(legacyMatches(path), matcher.matches(path), path);
+        }
+    }
+
+    @Test
+    void caseFoldingDoesNotDependOnDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertTrue(matcher.matches("/DCIM/SCREENSHOTS/IMG.PNG"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void extraKeywordsAreAppendedWithoutChangingOriginal() {
+        ScreenshotPathMatcher extended = matcher.withKeywords("截屏", "截图", "OEM_Snap");
+        assertTrue(extended.matches("/storage/emulated/0/DCIM/截屏/1.png"));
+        assertTrue(extended.matches("/storage/emulated/0/Pictures/截图_2024.jpg"));
+        assertTrue(extended.matches("/storage/emulated/0/oem_snap/1.png"));
+        assertTrue(extended.matches("/storage/emulated/0/Pictures/Screenshots/1.png"));
+        assertFalse(matcher.matches("/storage/emulated/0/DCIM/截屏/1.png"));
+    }
+
+    @Test
+    void overlappingKeywordsUseFailureLinks() {
+        ScreenshotPathMatcher m = ScreenshotPathMatcher.build("abcd", "bce", "c");
+        assertTrue(m.matches("xxabcx"));
+        assertTrue(m.matches("xbcex"));
+        assertFalse(m.matches("xxabdx"));
+    }
+}
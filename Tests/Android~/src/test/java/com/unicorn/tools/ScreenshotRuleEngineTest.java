@@ -0,0 +1,180 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ScreenshotRuleEngineTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    private ScreenshotDedupCache dedupCache;
+    private ScreenshotRuleEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        dedupCache = new ScreenshotDedupCache(64, 10000);
+        ScreenshotRules.CreationTimeRule timeRule = new ScreenshotRules.CreationTimeRule(10000);
+        timeRule.setStartListenTimeMs(START_MS);
+        ScreenshotRules.ScreenSizeRule sizeRule = new ScreenshotRules.ScreenSizeRule();
+        sizeRule.setScreenSize(1080, 2400);
+        engine = ScreenshotRuleEngine.of(
+                new ScreenshotRules.PathKeywordRule(ScreenshotPathMatcher.build("screenshot")),
+                new ScreenshotRules.DedupRule(dedupCache),
+                timeRule,
+                sizeRule);
+    }
+
+    private static ScreenshotCandidate screenshot() {
+        ScreenshotCandidate c = new ScreenshotCandidate();
+        c.id = 1;
+        c.setPath("/storage/emulated/0/Pictures/Screenshots/Screenshot_1.png");
+        c.dateAddedMs = START_MS + 1000;
+        c.observedAtMs = START_MS + 1500;
+        c.width = 1080;
+        c.height = 2400;
+        return c;
+    }
+
+    @Test
+    void projectionIsUnionOfRuleColumns() {
+        assertArrayEquals(new String[]{"_id", "_data", "date_added", "width", "height"}, engine.projection());
+    }
+
+    @Test
+    void rulesRunCheapestFirst() {
+        List<String> names = new ArrayList<>();
+        for (ScreenshotRule rule : engine.rules()) {
+            names.add(rule.name());
+        }
+        assertEquals(List.of("creation_time", "size", "dedup", "path"), names);
+    }
+
+    @Test
+    void acceptsScreenshot() {
+        assertNull(engine.evaluate(screenshot()));
+    }
+
+    @Test
+    void reportsRejectingRule() {
+        ScreenshotCandidate camera = screenshot();
+        camera.setPath("/storage/emulated/0/DCIM/Camera/IMG_1.jpg");
+        assertEquals("path", engine.evaluate(camera).name());
+
+        ScreenshotCandidate pending = screenshot();
+        pending.setPath("/storage/emulated/0/Pictures/Screenshots/.pending-123-Screenshot_1.png");
+        assertEquals("path", engine.evaluate(pending).name());
+
+        ScreenshotCandidate old = screenshot();
+        old.dateAddedMs = START_MS - 1000;
+        assertEquals("creation_time", engine.evaluate(old).name());
+
+        ScreenshotCandidate late = screenshot();
+        late.observedAtMs = late.dateAddedMs + 10001;
+        assertEquals("creation_time", engine.evaluate(late).name());
+
+        ScreenshotCandidate large = screenshot();
+        large.width = 4000;
+        assertEquals("size", engine.evaluate(large).name());
+
+        ScreenshotCandidate rotated = screenshot();
+        rotated.width = 2400;
+        rotated.height = 1080;
+        assertNull(engine.evaluate(rotated));
+
+        ScreenshotCandidate seen = screenshot();
+        dedupCache.add(seen.pathHash(), seen.observedAtMs);
+        assertEquals("dedup", engine.evaluate(seen).name());
+    }
+
+    @Test
+    void shortCircuitsOnFirstRejection() {
+        CountingRule expensive = new CountingRule(100, true);
+        ScreenshotRuleEngine withCustom = engine.withRule(expensive);
+
+        ScreenshotCandidate old = screenshot();
+        old.dateAddedMs = START_MS - 1000;
+        withCustom.evaluate(old);
+        assertEquals(0, expensive.calls);
+
+        withCustom.evaluate(screenshot());
+        assertEquals(1, expensive.calls);
+    }
+
+    @Test
+    void customRuleColumnsJoinProjectionAndReadExtras() {
+        ScreenshotRule mimeRule = new ScreenshotRule() {
+            @Override
+            public String name() {
+                return "mime";
+            }
+
+            @Override
+            public String[] requiredColumns() {
+                return new String[]{ScreenshotCandidate.COLUMN_MIME_TYPE, "vendor_flag"};
+            }
+
+            @Override
+            public int cost() {
+                return 2;
+            }
+
+            @Override
+            public boolean accept(ScreenshotCandidate candidate) {
+                return "image/png".equals(candidate.getString(ScreenshotCandidate.COLUMN_MIME_TYPE))
+                        && candidate.getString("vendor_flag") == null;
+            }
+        };
+        ScreenshotRuleEngine withMime = engine.withRule(mimeRule);
+        assertArrayEquals(new String[]{"_id", "_data", "date_added", "width", "height", "mime_type", "vendor_flag"},
+                withMime.projection());
+
+        ScreenshotCandidate jpeg = screenshot();
+        jpeg.mimeType = "image/jpeg";
+        assertEquals("mime", withMime.evaluate(jpeg).name());
+
+        ScreenshotCandidate png = screenshot();
+        png.mimeType = "image/png";
+        assertNull(withMime.evaluate(png));
+
+        png.putExtra("vendor_flag", "1");
+        assertEquals("mime", withMime.evaluate(png).name());
+    }
+
+    private static final class CountingRule implements ScreenshotRule {
+        private final int cost;
+        private final boolean result;
+        int calls;
+
+        CountingRule(int cost, boolean result) {
+            this.cost = cost;
+            this.result = result;
+        }
+
+        @Override
+        public String name() {
+            return "counting";
+        }
+
+        @Override
+        public String[] requiredColumns() {
+            return new String[0];
+        }
+
+        @Override
+        public int cost() {
+            return cost;
+        }
+
+        @Override
+        public boolean accept(ScreenshotCandidate candidate) {
+            calls++;
+            return result;
+        }
+    }
+}
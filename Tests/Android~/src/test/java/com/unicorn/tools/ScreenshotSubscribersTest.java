@@ -0,0 +1,96 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenshotSubscribersTest {
+
+    private static final class Recorder implements ScreenshotListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onScreenshot(String event, int source) {
+            events.add(source + ":" + event);
+        }
+    }
+
+    @Test
+    void dispatchesOnlyToMatchingSources() {
+        ScreenshotSubscribers subscribers = new ScreenshotSubscribers();
+        Recorder paths = new Recorder();
+        Recorder captures = new Recorder();
+        Recorder all = new Recorder();
+        subscribers.add(paths, ScreenshotListener.SOURCE_MEDIA_STORE);
+        subscribers.add(captures, ScreenshotListener.SOURCE_SCREEN_CAPTURE);
+        subscribers.add(all, 0);
+
+        assertEquals(2, subscribers.dispatch("/a.png", ScreenshotListener.SOURCE_MEDIA_STORE));
+        assertEquals(2, subscribers.dispatch("screenshot_detected", ScreenshotListener.SOURCE_SCREEN_CAPTURE));
+
+        assertEquals(1, paths.events.size());
+        assertEquals("1:/a.png", paths.events.get(0));
+        assertEquals(1, captures.events.size());
+        assertEquals("2:screenshot_detected", captures.events.get(0));
+        assertEquals(2, all.events.size());
+    }
+
+    @Test
+    void removeStopsDelivery() {
+        ScreenshotSubscribers subscribers = new ScreenshotSubscribers();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        int firstId = subscribers.add(first, ScreenshotListener.SOURCE_ALL);
+        int secondId = subscribers.add(second, ScreenshotListener.SOURCE_ALL);
+        assertNotEquals(firstId, secondId);
+
+        assertTrue(subscribers.remove(firstId));
+        assertFalse(subscribers.remove(firstId));
+        assertEquals(1, subscribers.size());
+
+        subscribers.dispatch("/a.png", ScreenshotListener.SOURCE_MEDIA_STORE);
+        assertEquals(0, first.events.size());
+        assertEquals(1, second.events.size());
+    }
+
+    @Test
+    void failingListenerDoesNotAffectOthers() {
+        ScreenshotSubscribers subscribers = new ScreenshotSubscribers();
+        Recorder recorder = new Recorder();
+        subscribers.add((event, source) -> {
+            throw new IllegalStateException("boom");
+        }, ScreenshotListener.SOURCE_ALL);
+        subscribers.add(recorder, ScreenshotListener.SOURCE_ALL);
+
+        assertEquals(1, subscribers.dispatch("/a.png", ScreenshotListener.SOURCE_MEDIA_STORE));
+        assertEquals(1, recorder.events.size());
+        assertEquals(1, subscribers.getFailedDispatchCount());
+    }
+
+    @Test
+    void listenerMayUnsubscribeDuringDispatch() {
+        ScreenshotSubscribers subscribers = new ScreenshotSubscribers();
+        Recorder recorder = new Recorder();
+        int[] selfId = new int[1];
+        selfId[0] = subscribers.add((event, source) -> subscribers.remove(selfId[0]), ScreenshotListener.SOURCE_ALL);
+        subscribers.add(recorder, ScreenshotListener.SOURCE_ALL);
+
+        // 分发遍历调用时刻的快照：取消订阅不影响本次分发的其他订阅者
+        assertEquals(2, subscribers.dispatch("/a.png", ScreenshotListener.SOURCE_MEDIA_STORE));
+        assertEquals(1, recorder.events.size());
+        assertEquals(1, subscribers.size());
+    }
+
+    @Test
+    void nullListenerIsIgnored() {
+        ScreenshotSubscribers subscribers = new ScreenshotSubscribers();
+        assertEquals(0, subscribers.add(null, ScreenshotListener.SOURCE_ALL));
+        assertEquals(0, subscribers.size());
+    }
+}
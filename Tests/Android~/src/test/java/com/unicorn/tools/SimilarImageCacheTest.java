@@ -0,0 +1,52 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarImageCacheTest {
+    private static final long NOW_MS = 1_760_000_000_000L;
+    private static final long HASH = 0x0f0f_3c3c_5a5a_9696L;
+
+    @Test
+    void matchesWithinHammingDistance() {
+        SimilarImageCache cache = new SimilarImageCache(16, 60_000, 4);
+        cache.add(HASH, NOW_MS);
+        assertTrue(cache.containsSimilar(HASH, NOW_MS + 1));
+        assertTrue(cache.containsSimilar(HASH ^ 0b1111, NOW_MS + 1));
+        assertFalse(cache.containsSimilar(HASH ^ 0b11111, NOW_MS + 1));
+    }
+
+    @Test
+    void expiresAfterWindow() {
+        SimilarImageCache cache = new SimilarImageCache(16, 60_000, 4);
+        cache.add(HASH, NOW_MS);
+        assertTrue(cache.containsSimilar(HASH, NOW_MS + 60_000));
+        assertFalse(cache.containsSimilar(HASH, NOW_MS + 60_001));
+    }
+
+    @Test
+    void olderEntriesAreFoundAfterClockStepsBack() {
+        // 校时回拨后写入的记录时间早于之前的记录：不能因为它"已过期"就停止查找
+        SimilarImageCache cache = new SimilarImageCache(16, 60_000, 4);
+        cache.add(HASH, NOW_MS);
+        cache.add(~HASH, NOW_MS - 120_000);
+        assertTrue(cache.containsSimilar(HASH ^ 0b1, NOW_MS + 1));
+        assertFalse(cache.containsSimilar(~HASH, NOW_MS + 1));
+    }
+
+    @Test
+    void overwritesOldestWhenFull() {
+        SimilarImageCache cache = new SimilarImageCache(3, 60_000, 0); // 取整为 4
+        assertEquals(4, cache.capacity());
+        for (int i = 0; i < 5; i++) {
+            cache.add(HASH + i, NOW_MS + i);
+        }
+        assertFalse(cache.containsSimilar(HASH, NOW_MS + 10));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(cache.containsSimilar(HASH + i, NOW_MS + 10));
+        }
+    }
+}
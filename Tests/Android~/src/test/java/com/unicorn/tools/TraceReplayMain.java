@@ -0,0 +1,44 @@
+package com.unicorn.tools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 重放工具入口：gradle replay -Ptrace=&lt;轨迹文件或预置轨迹名&gt; [-Prepeat=N] [-Psdk=N]
+ * <p>
+ * 未找到文件时按 src/test/resources/traces 下的预置轨迹名查找；repeat 大于 1 时重复重放并报告最快一次的吞吐量。
+ */
+public final class TraceReplayMain {
+    private TraceReplayMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TraceReplayMain <trace> [repeat] [sdkInt]");
+            System.exit(2);
+        }
+        int repeat = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 1;
+        TraceReplayer.Options options = new TraceReplayer.Options();
+        if (args.length > 2) {
+            options.sdkInt = Integer.parseInt(args[2]);
+        }
+
+        Path path = Paths.get(args[0]);
+        DetectionTrace trace = Files.isRegularFile(path) ? DetectionTrace.load(path) : DetectionTrace.resource(args[0]);
+        if (trace.truncated) {
+            System.out.println("warning: trace was truncated while recording");
+        }
+
+        TraceReplayer replayer = new TraceReplayer(options);
+        TraceReplayer.Report best = null;
+        for (int i = 0; i < repeat; i++) {
+            TraceReplayer.Report report = replayer.replay(trace);
+            if (best == null || report.wallNanos < best.wallNanos) {
+                best = report;
+            }
+        }
+        System.out.print(best);
+    }
+}
@@ -0,0 +1,104 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceReplayTest {
+
+    @Test
+    void singleScreenshotIsDetectedOnce() throws IOException {
+        DetectionTrace trace = DetectionTrace.resource("single_screenshot.trace");
+        TraceReplayer.Report report = new TraceReplayer().replay(trace);
+
+        assertEquals(trace.expected, report.detectedPaths());
+        assertEquals(1, report.detections.size());
+        assertTrue(report.duplicates.isEmpty());
+        // 同一条目的多次通知合并为一次查询；集合级通知只做一次增量扫描
+        assertEquals(3, report.queries);
+        assertTrue(report.latencyPercentileMs(100) < 1000);
+    }
+
+    @Test
+    void rapidBurstDetectsEveryScreenshotButNotCameraPhoto() throws IOException {
+        DetectionTrace trace = DetectionTrace.resource("rapid_burst.trace");
+        TraceReplayer.Report report = new TraceReplayer().replay(trace);
+
+        assertTrue(report.misses.isEmpty(), report.toString());
+        assertTrue(report.falsePositives.isEmpty(), report.toString());
+        assertTrue(report.duplicates.isEmpty(), report.toString());
+        assertEquals(5, report.detections.size());
+        // 相机照片被查询并判定，但未通过规则
+        assertEquals(6, report.metrics.candidates.get());
+    }
+
+    @Test
+    void gallerySyncStormIsScannedInRanges() throws IOException {
+        DetectionTrace trace = DetectionTrace.resource("gallery_sync_storm.trace");
+        TraceReplayer.Report report = new TraceReplayer().replay(trace);
+
+        assertEquals(1, report.metrics.stormsEntered.get());
+        assertTrue(report.queries * 10 < report.changes, report.toString());
+        // 恢复的旧截图不应被判定为新截图
+        assertTrue(report.falsePositives.isEmpty(), report.toString());
+        assertTrue(report.duplicates.isEmpty(), report.toString());
+        assertTrue(report.detectedPaths().contains(
+                "/storage/emulated/0/Pictures/Screenshots/Screenshot_20251009_120200.png"));
+        assertTrue(report.detectedPaths().contains(
+                "/storage/emulated/0/Pictures/Screenshots/Screenshot_20251009_120207.png"));
+        // 已知取舍：风暴模式只判定每次区间扫描时最新的一批记录，风暴中途的截屏被跳过
+        assertEquals(Collections.singletonList(
+                "/storage/emulated/0/Pictures/Screenshots/Screenshot_20251009_120203.png"), report.misses);
+    }
+
+    @Test
+    void replayIsDeterministic() throws IOException {
+        DetectionTrace trace = DetectionTrace.resource("gallery_sync_storm.trace");
+        TraceReplayer replayer = new TraceReplayer();
+        TraceReplayer.Report first = replayer.replay(trace);
+        TraceReplayer.Report second = replayer.replay(trace);
+
+        assertEquals(first.queries, second.queries);
+        assertEquals(first.detectedPaths(), second.detectedPaths());
+        assertEquals(first.latencyPercentileMs(50), second.latencyPercentileMs(50));
+    }
+
+    @Test
+    void collectionOnlyNotificationScansForNewRows() throws IOException {
+        // 部分设备只发送集合级通知：按该 URI 直接查询只会得到整表第一行（旧照片），应改为扫描高水位之后的新行
+        String path = "/storage/emulated/0/Pictures/Screenshots/Screenshot_collection.png";
+        DetectionTrace trace = DetectionTrace.parse("#screenshot-trace v1\n"
+                + "start 1760000000000 1080 2400\n"
+                + "row 0 id=10 path=/sdcard/DCIM/a.jpg date_added=1750000000 width=10 height=10 pending=0\n"
+                + "row 100 id=11 path=" + path + " date_added=1760000000 width=1080 height=2400 pending=0\n"
+                + "change 100 content://media/external_primary/images/media\n"
+                + "expect " + path + "\n");
+        TraceReplayer.Report report = new TraceReplayer().replay(trace);
+
+        assertTrue(report.misses.isEmpty(), report.toString());
+        assertEquals(1, report.metrics.candidates.get());
+    }
+
+    @Test
+    void pendingRowIsRetriedUntilReady() throws IOException {
+        // 截图写入耗时 900ms，超过首次等待：查询不到 pending 行时按退避重试，而不是当作无新行
+        String path = "/storage/emulated/0/Pictures/Screenshots/Screenshot_slow.png";
+        String uri = "content://media/external_primary/images/media/11";
+        DetectionTrace trace = DetectionTrace.parse("#screenshot-trace v1\n"
+                + "start 1760000000000 1080 2400\n"
+                + "row 0 id=10 path=/sdcard/DCIM/a.jpg date_added=1750000000 width=10 height=10 pending=0\n"
+                + "row 100 id=11 path=" + path + " date_added=1760000000 width=0 height=0 pending=1\n"
+                + "change 100 " + uri + "\n"
+                + "row 1000 id=11 path=" + path + " date_added=1760000000 width=1080 height=2400 pending=0\n"
+                + "expect " + path + "\n");
+        TraceReplayer.Report report = new TraceReplayer().replay(trace);
+
+        assertTrue(report.misses.isEmpty(), report.toString());
+        assertTrue(report.metrics.readinessRetries.get() > 0);
+        assertEquals(0, report.metrics.readinessTimeouts.get());
+    }
+}
@@ -0,0 +1,344 @@
+package com.unicorn.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 在 JVM 上按虚拟时间重放检测轨迹：把 onChange 通知送入 Core 中的 {@link LegacyDetectionPipeline}
+ * （即 ScreenshotLifecycleObserver 的 legacy 策略所用的同一份实现），查询由 {@link FakeMediaStore} 应答。
+ * <p>
+ * 这里只提供虚拟时间的调度器与假媒体库的适配；轨迹开始时间视为开始监听的时间，
+ * 只模拟单个外部存储卷（卷名取自第一条通知的 URI）。
+ */
+final class TraceReplayer {
+    private static final String DEFAULT_VOLUME = "external_primary";
+
+    /**
+     * 重放参数，默认值与 ScreenshotLifecycleObserver 的默认配置一致
+     */
+    static final class Options {
+        private static final LegacyDetectionPipeline.Config DEFAULTS = new LegacyDetectionPipeline.Config();
+
+        int sdkInt = 34;
+        long coalesceWindowMs = DEFAULTS.coalesceWindowMs;
+        long coalesceMaxLatencyMs = DEFAULTS.coalesceMaxLatencyMs;
+        boolean adaptiveReadiness = DEFAULTS.adaptiveReadiness;
+        boolean incrementalScan = true;
+        int stormThreshold = DEFAULTS.stormThreshold;
+        long stormScanIntervalMs = DEFAULTS.stormScanIntervalMs;
+    }
+
+    /**
+     * 一次判定为截图的结果
+     */
+    static final class Detection {
+        final String path;
+        final long timeMs;
+        final long latencyMs;
+
+        Detection(String path, long timeMs, long latencyMs) {
+            this.path = path;
+            this.timeMs = timeMs;
+            this.latencyMs = latencyMs;
+        }
+    }
+
+    /**
+     * 重放结果
+     */
+    static final class Report {
+        String traceName;
+        long virtualDurationMs;
+        long wallNanos;
+        int changes;
+        long queries;
+        final List<Detection> detections = new ArrayList<>();
+        final List<String> falsePositives = new ArrayList<>();
+        final List<String> misses = new ArrayList<>();
+        final List<String> duplicates = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        boolean hasExpectations;
+        final ScreenshotMetrics metrics = new ScreenshotMetrics();
+
+        Set<String> detectedPaths() {
+            Set<String> paths = new LinkedHashSet<>();
+            for (Detection d : detections) {
+                paths.add(d.path);
+            }
+            return paths;
+        }
+
+        /**
+         * 每秒处理的 onChange 数（按实际耗时）
+         */
+        double changesPerSecond() {
+            return wallNanos > 0 ? changes * 1e9 / wallNanos : 0;
+        }
+
+        /**
+         * 虚拟时长与实际耗时之比
+         */
+        double speedup() {
+            return wallNanos > 0 ? virtualDurationMs * 1e6 / wallNanos : 0;
+        }
+
+        /**
+         * 检测延迟（行首次出现在媒体库到判定为截图）的分位数，没有检测结果时返回 -1
+         */
+        long latencyPercentileMs(double percentile) {
+            if (detections.isEmpty()) return -1;
+            long[] sorted = new long[detections.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = detections.get(i).latencyMs;
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("trace            ").append(traceName).append('\n');
+            sb.append(String.format(Locale.ROOT, "virtual duration %d ms, replayed in %.3f ms (x%.0f)%n",
+                    virtualDurationMs, wallNanos / 1e6, speedup()));
+            sb.append(String.format(Locale.ROOT, "throughput       %.0f changes/s%n", changesPerSecond()));
+            sb.append("changes          ").append(changes)
+                    .append(" (collapsed ").append(metrics.changesCollapsed.get())
+                    .append(", during storm ").append(metrics.changesDuringStorm.get()).append(")\n");
+            sb.append("queries          ").append(queries)
+                    .append(" (skipped scans ").append(metrics.scansSkipped.get())
+                    .append(", readiness retries ").append(metrics.readinessRetries.get())
+                    .append(", storm scans ").append(metrics.stormScans.get()).append(")\n");
+            sb.append("candidates       ").append(metrics.candidates.get())
+                    .append(", accepted ").append(metrics.accepted.get()).append('\n');
+            sb.append("latency ms       p50=").append(latencyPercentileMs(50))
+                    .append(" p95=").append(latencyPercentileMs(95))
+                    .append(" max=").append(latencyPercentileMs(100)).append('\n');
+            for (Detection d : detections) {
+                sb.append("  detected @").append(d.timeMs).append(" +").append(d.latencyMs).append("ms ")
+                        .append(d.path).append('\n');
+            }
+            if (hasExpectations) {
+                sb.append("false positives  ").append(falsePositives.size()).append('\n');
+                for (String path : falsePositives) sb.append("  ").append(path).append('\n');
+                sb.append("misses           ").append(misses.size()).append('\n');
+                for (String path : misses) sb.append("  ").append(path).append('\n');
+            }
+            sb.append("duplicates       ").append(duplicates.size()).append('\n');
+            for (String path : duplicates) sb.append("  ").append(path).append('\n');
+            if (!errors.isEmpty()) {
+                sb.append("errors           ").append(errors.size()).append('\n');
+                for (String error : errors) sb.append("  ").append(error).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Options options;
+
+    TraceReplayer(Options options) {
+        this.options = options;
+    }
+
+    TraceReplayer() {
+        this(new Options());
+    }
+
+    Report replay(DetectionTrace trace) {
+        long start = System.nanoTime();
+        Run run = new Run(trace, options);
+        run.execute();
+        run.report.wallNanos = System.nanoTime() - start;
+        return run.report;
+    }
+
+    /**
+     * 虚拟时间调度器：按时间与提交顺序执行任务，相当于会话处理线程的 Handler
+     */
+    private static final class VirtualScheduler implements LegacyDetectionPipeline.Scheduler {
+        private final PriorityQueue<Task> queue = new PriorityQueue<>((a, b) ->
+                a.timeMs != b.timeMs ? Long.compare(a.timeMs, b.timeMs) : Long.compare(a.seq, b.seq));
+        private final long startEpochMs;
+        private long seq;
+        long nowMs;
+
+        VirtualScheduler(long startEpochMs) {
+            this.startEpochMs = startEpochMs;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return nowMs;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return startEpochMs + nowMs;
+        }
+
+        @Override
+        public void postAtTime(Runnable task, long uptimeMs) {
+            queue.add(new Task(Math.max(uptimeMs, nowMs), seq++, task));
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            for (Task t : queue) {
+                if (t.action == task) t.cancelled = true;
+            }
+        }
+
+        void runAll() {
+            Task task;
+            while ((task = queue.poll()) != null) {
+                if (task.cancelled) continue;
+                nowMs = task.timeMs;
+                task.action.run();
+            }
+        }
+    }
+
+    private static final class Task {
+        final long timeMs;
+        final long seq;
+        final Runnable action;
+        boolean cancelled;
+
+        Task(long timeMs, long seq, Runnable action) {
+            this.timeMs = timeMs;
+            this.seq = seq;
+            this.action = action;
+        }
+    }
+
+    /**
+     * 一次重放的全部状态：每次重放新建一份共享组件，重放之间互不影响
+     */
+    private static final class Run implements LegacyDetectionPipeline.MediaSource, LegacyDetectionPipeline.Callback {
+        final DetectionTrace trace;
+        final Report report = new Report();
+        final VirtualScheduler scheduler;
+        final FakeMediaStore store;
+        final boolean r;
+        final String volumeName;
+        final LegacyDetectionPipeline pipeline;
+        final Map<String, Integer> detectionCounts = new HashMap<>();
+
+        Run(DetectionTrace trace, Options options) {
+            this.trace = trace;
+            boolean q = options.sdkInt >= 29;
+            this.r = options.sdkInt >= 30;
+            this.scheduler = new VirtualScheduler(trace.startEpochMs);
+            this.store = new FakeMediaStore(trace.rows, q);
+            String volume = trace.changes.isEmpty() ? null : LegacyDetectionPipeline.volumeName(trace.changes.get(0).uri);
+            this.volumeName = (volume != null) ? volume : DEFAULT_VOLUME;
+
+            LegacyDetectionPipeline.Config config = new LegacyDetectionPipeline.Config();
+            config.startListenTimeMs = trace.startEpochMs / 1000 * 1000;
+            config.screenWidth = trace.screenWidth;
+            config.screenHeight = trace.screenHeight;
+            config.screenSizeRule = q;
+            config.adaptiveReadiness = options.adaptiveReadiness && q;
+            config.coalesceWindowMs = options.coalesceWindowMs;
+            config.coalesceMaxLatencyMs = options.coalesceMaxLatencyMs;
+            config.stormThreshold = options.stormThreshold;
+            config.stormScanIntervalMs = options.stormScanIntervalMs;
+
+            LegacyDetectionPipeline.Shared shared = new LegacyDetectionPipeline.Shared(
+                    new AtomicReference<>(ScreenshotRuleEngine.of(new ScreenshotRules.PathKeywordRule(
+                            ScreenshotPathMatcher.build(LegacyDetectionPipeline.KEYWORDS)))),
+                    new AtomicBoolean(options.incrementalScan), LegacyDetectionPipeline.newReadinessPolicy(),
+                    report.metrics, new DetectionFlightRecorder(256), new AtomicReference<>());
+            this.pipeline = new LegacyDetectionPipeline(config, shared, scheduler, this, this);
+        }
+
+        void execute() {
+            report.traceName = trace.name;
+            report.changes = trace.changes.size();
+            report.hasExpectations = !trace.expected.isEmpty();
+
+            scheduler.postAtTime(() -> pipeline.addVolume(volumeName, null), 0);
+            for (DetectionTrace.Change change : trace.changes) {
+                scheduler.postAtTime(() -> pipeline.onChange(change.uri), change.timeMs);
+            }
+            scheduler.runAll();
+
+            report.virtualDurationMs = Math.max(trace.durationMs(), scheduler.nowMs);
+            report.queries = store.queryCount();
+            Set<String> detected = report.detectedPaths();
+            for (String path : detected) {
+                if (report.hasExpectations && !trace.expected.contains(path)) report.falsePositives.add(path);
+                if (detectionCounts.get(path) > 1) report.duplicates.add(path);
+            }
+            for (String path : trace.expected) {
+                if (!detected.contains(path)) report.misses.add(path);
+            }
+        }
+
+        // ---- MediaSource：假媒体库只有一个卷 ----
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryItem(Object uri, String[] projection) {
+            long id = LegacyDetectionPipeline.itemId(uri.toString());
+            return (id >= 0) ? store.queryItem(id, scheduler.nowMs) : store.queryCollection(scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryLatest(MediaVolumeState volume, String[] projection) {
+            return store.queryLatest(scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryMaxId(MediaVolumeState volume, String[] projection) {
+            return store.queryMaxId(scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryRowsAfterId(MediaVolumeState volume, String[] projection,
+                                                             long afterId) {
+            return store.queryRowsAfterId(afterId, LegacyDetectionPipeline.SCAN_BATCH_SIZE, scheduler.nowMs);
+        }
+
+        @Override
+        public LegacyDetectionPipeline.Rows queryNewestRowsAfterId(MediaVolumeState volume, String[] projection,
+                                                                   long afterId) {
+            return store.queryNewestRowsAfterId(afterId, LegacyDetectionPipeline.SCAN_BATCH_SIZE, scheduler.nowMs);
+        }
+
+        @Override
+        public long generation(MediaVolumeState volume) {
+            return r ? store.generation(scheduler.nowMs) : -1;
+        }
+
+        // ---- Callback ----
+
+        @Override
+        public boolean onScreenshot(MediaVolumeState volume, ScreenshotCandidate row) {
+            long firstSeen = store.firstSeenMs(row.id);
+            long latency = firstSeen >= 0 ? scheduler.nowMs - firstSeen : 0;
+            report.detections.add(new Detection(row.path, scheduler.nowMs, latency));
+            Integer count = detectionCounts.get(row.path);
+            detectionCounts.put(row.path, count == null ? 1 : count + 1);
+            return true;
+        }
+
+        @Override
+        public void onInfo(String message) {
+        }
+
+        @Override
+        public void onError(String message, Exception e) {
+            report.errors.add(message + ": " + e);
+        }
+    }
+}
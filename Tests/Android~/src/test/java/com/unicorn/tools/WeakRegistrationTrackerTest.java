@@ -0,0 +1,78 @@
+package com.unicorn.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeakRegistrationTrackerTest {
+
+    @Test
+    void registersEachTargetOnce() {
+        WeakRegistrationTracker<Object> tracker = new WeakRegistrationTracker<>();
+        Object activity = new Object();
+
+        assertTrue(tracker.track(activity));
+        // 多次 resume：不再重复注册
+        assertFalse(tracker.track(activity));
+        assertFalse(tracker.track(activity));
+
+        assertEquals(1, tracker.activeCount());
+        assertEquals(1, tracker.registeredCount());
+    }
+
+    @Test
+    void tracksByIdentityNotEquality() {
+        WeakRegistrationTracker<String> tracker = new WeakRegistrationTracker<>();
+        String first = new String("activity");
+        String second = new String("activity");
+
+        assertTrue(tracker.track(first));
+        assertTrue(tracker.track(second));
+        assertEquals(2, tracker.activeCount());
+    }
+
+    @Test
+    void untrackOnlyOnce() {
+        WeakRegistrationTracker<Object> tracker = new WeakRegistrationTracker<>();
+        Object activity = new Object();
+        tracker.track(activity);
+
+        assertTrue(tracker.untrack(activity));
+        assertFalse(tracker.untrack(activity));
+        assertFalse(tracker.isTracked(activity));
+        assertEquals(0, tracker.activeCount());
+        assertEquals(1, tracker.unregisteredCount());
+    }
+
+    @Test
+    void drainReturnsEveryLiveTarget() {
+        WeakRegistrationTracker<Object> tracker = new WeakRegistrationTracker<>();
+        Object first = new Object();
+        Object second = new Object();
+        tracker.track(first);
+        tracker.track(second);
+
+        List<Object> live = tracker.drain();
+        assertEquals(2, live.size());
+        assertSame(first, live.get(0));
+        assertSame(second, live.get(1));
+        assertEquals(0, tracker.activeCount());
+        assertEquals(tracker.registeredCount(), tracker.unregisteredCount());
+
+        // 停止后重新出现的实例可以再次注册
+        assertTrue(tracker.track(first));
+    }
+
+    @Test
+    void nullTargetIsIgnored() {
+        WeakRegistrationTracker<Object> tracker = new WeakRegistrationTracker<>();
+        assertFalse(tracker.track(null));
+        assertFalse(tracker.untrack(null));
+        assertEquals("{\"active\":0,\"registered\":0,\"unregistered\":0,\"collected\":0}", tracker.toJson());
+    }
+}
@@ -223,6 +223,28 @@ public class ScreenShotObserverTest : MonoBehaviour
         }
     }
 
+    /// <summary>
+    /// 测试 10: 批量消息解析
+    /// </summary>
+    [ContextMenu("Test 10: Parse Screenshot Batch")]
+    public void TestParseScreenshotBatch() {
+        Debug.Log("=== Test 10: Parse Screenshot Batch ===");
+
+        var batch = ScreenshotEventBatch.FromJson("{\"events\":[\"/sdcard/Pictures/Screenshots/a.png\",\"screenshot_detected\"],\"dropped\":3}");
+        var empty = ScreenshotEventBatch.FromJson("{\"events\":[],\"dropped\":0}");
+        var invalid = ScreenshotEventBatch.FromJson("");
+
+        if (batch != null && batch.events.Length == 2 && batch.events[0] == "/sdcard/Pictures/Screenshots/a.png"
+            && batch.events[1] == "screenshot_detected" && batch.dropped == 3
+            && empty != null && empty.events.Length == 0 && invalid == null) {
+            _lastTestResult = "✅ PASS: Screenshot batch parsed correctly";
+            Debug.Log(_lastTestResult);
+        } else {
+            _lastTestResult = "❌ FAIL: Screenshot batch parse mismatch";
+            Debug.LogError(_lastTestResult);
+        }
+    }
+
     /// <summary>
     /// 运行所有测试
     /// </summary>
@@ -261,6 +283,9 @@ public class ScreenShotObserverTest : MonoBehaviour
         yield return new WaitForSeconds(0.5f);
 
         TestStartStopCycle();
+        yield return new WaitForSeconds(0.5f);
+
+        TestParseScreenshotBatch();
 
         Debug.Log("==========================================");
         Debug.Log("ScreenShotObserver Test Suite - Completed");